@@ -5,6 +5,9 @@ import org.slf4j.LoggerFactory;
 import org.srg.smartclient.isomorphic.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public abstract class AbstractDSHandler extends RelationSupport implements DSHandler {
     private static final String META_DATA_PREFIX = "_";
@@ -13,6 +16,21 @@ public abstract class AbstractDSHandler extends RelationSupport implements DSHan
     private final IDSRegistry dsRegistry;
     private final DataSource datasource;
     private transient Map<DSRequest.OperationType, List<OperationBinding>> bindingsMap;
+    private volatile FetchResponseCache fetchResponseCache;
+
+    private static final AtomicLong relationsGeneration = new AtomicLong();
+    private volatile RelationsMemo relationsMemo = new RelationsMemo(relationsGeneration.get(), new ConcurrentHashMap<>());
+
+    /**
+     * @param kind distinguishes different kinds of relations described for the same field
+     */
+    protected record RelationKey(String kind, DataSource dataSource, DSField field, String relation) {}
+
+    /**
+     * Relations memoized within a single generation, a new memo is created for each generation,
+     * therefore a relation resolved before the generation was changed never gets into the new memo.
+     */
+    private record RelationsMemo(long generation, Map<RelationKey, Object> relations) {}
 
     public AbstractDSHandler(IDSRegistry dsRegistry, DataSource datasource) {
         this.dsRegistry = dsRegistry;
@@ -110,14 +128,204 @@ public abstract class AbstractDSHandler extends RelationSupport implements DSHan
         }
 
         return switch (request.getOperationType()) {
-            case FETCH -> handleFetch(request);
-            case UPDATE -> handleUpdate(request);
-            case ADD -> handleAdd(request);
-            case REMOVE -> handleRemove(request);
+            case FETCH -> handleCachedFetch(request);
+            case UPDATE -> afterModification(handleUpdate(request));
+            case ADD -> afterModification(handleAdd(request));
+            case REMOVE -> afterModification(handleRemove(request));
             default -> failureDueToUnsupportedOperation(request);
         };
     }
 
+    /**
+     * Handles consecutive requests of the same operation type, is used by the transactional queue execution.
+     *
+     * UPDATE and REMOVE requests are passed to {@link #handleUpdates(List)} and {@link #handleRemoves(List)}
+     * that can perform all of them at once, any other requests are handled one by one.
+     */
+    final public List<DSResponse> handleBatch(List<DSRequest> requests) throws Exception {
+        final DSRequest.OperationType operationType = requests.get(0).getOperationType();
+
+        for (DSRequest r : requests) {
+            if (!getDataSource().getId().equalsIgnoreCase(r.getDataSource())) {
+                throw new IllegalStateException("DSHandler '%s': batched request of data source '%s' can't be handled."
+                        .formatted(getDataSource().getId(), r.getDataSource()));
+            }
+
+            if (r.getOperationType() != operationType) {
+                throw new IllegalStateException("DSHandler '%s': all the batched requests must have the same operation type."
+                        .formatted(getDataSource().getId()));
+            }
+        }
+
+        if (operationType != DSRequest.OperationType.UPDATE
+                && operationType != DSRequest.OperationType.REMOVE) {
+            final List<DSResponse> responses = new ArrayList<>(requests.size());
+            for (DSRequest r : requests) {
+                responses.add(handle(r));
+            }
+            return responses;
+        }
+
+        final List<DSResponse> responses = operationType == DSRequest.OperationType.UPDATE ?
+                handleUpdates(requests) : handleRemoves(requests);
+
+        if (responses.stream().anyMatch(r -> r != null && r.getStatus() == DSResponse.STATUS_SUCCESS)) {
+            onDataSourceModified();
+        }
+        return responses;
+    }
+
+    protected List<DSResponse> handleUpdates(List<DSRequest> requests) throws Exception {
+        final List<DSResponse> responses = new ArrayList<>(requests.size());
+        for (DSRequest r : requests) {
+            responses.add(handleUpdate(r));
+        }
+        return responses;
+    }
+
+    protected List<DSResponse> handleRemoves(List<DSRequest> requests) throws Exception {
+        final List<DSResponse> responses = new ArrayList<>(requests.size());
+        for (DSRequest r : requests) {
+            responses.add(handleRemove(r));
+        }
+        return responses;
+    }
+
+    /**
+     * @return fetch response cache or {@code null} if caching is not enabled for the data source
+     */
+    protected FetchResponseCache getFetchResponseCache() {
+        if (dataSource().getFetchCacheMaxEntries() <= 0) {
+            return null;
+        }
+
+        if (fetchResponseCache == null) {
+            synchronized (this) {
+                if (fetchResponseCache == null) {
+                    fetchResponseCache = new FetchResponseCache(dataSource().getFetchCacheMaxEntries());
+                }
+            }
+        }
+        return fetchResponseCache;
+    }
+
+    private DSResponse handleCachedFetch(DSRequest request) throws Exception {
+        /*
+         * Within a transaction the fetched data may include the uncommitted changes, that can be rolled back,
+         * therefore the response is neither taken from nor stored to the cache.
+         */
+        final FetchResponseCache cache = JDBCTransaction.current() == null ? getFetchResponseCache() : null;
+        final FetchResponseCache.Key key = cache == null ? null : FetchResponseCache.createKey(request);
+
+        if (key == null) {
+            return handleFetch(request);
+        }
+
+        final DSResponse cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final long generation = cache.getGeneration();
+        final DSResponse response = handleFetch(request);
+
+        cache.put(key, response, dataSource().getFetchCacheMaxAge(), generation);
+        return response;
+    }
+
+    private DSResponse afterModification(DSResponse response) {
+        if (response != null && response.getStatus() == DSResponse.STATUS_SUCCESS) {
+            onDataSourceModified();
+        }
+        return response;
+    }
+
+    /**
+     * Drops cached fetch responses of all the data sources that depend on the modified one.
+     */
+    protected void onDataSourceModified() {
+        invalidateOnModification(this::invalidateDependentFetchCaches);
+    }
+
+    /**
+     * Performs the invalidation right away and, if the modification is a part of the {@link JDBCTransaction},
+     * once again after the commit: until then concurrent fetches on the other connections still read
+     * the old committed rows and may put them back to the caches.
+     */
+    protected void invalidateOnModification(Runnable invalidation) {
+        invalidation.run();
+
+        final JDBCTransaction tx = JDBCTransaction.current();
+        if (tx != null) {
+            tx.afterCommit(invalidation);
+        }
+    }
+
+    private void invalidateDependentFetchCaches() {
+        final String modifiedId = id();
+
+        invalidateFetchCache(modifiedId);
+
+        if (dsRegistry != null && dsRegistry.handlers() != null) {
+            for (IHandler h : dsRegistry.handlers()) {
+                if (h != this && h instanceof AbstractDSHandler adh) {
+                    adh.invalidateFetchCache(modifiedId);
+                }
+            }
+        }
+    }
+
+    protected void invalidateFetchCache(String modifiedDataSourceId) {
+        if (fetchResponseCache != null
+                && getFetchCacheDependencies().contains(modifiedDataSourceId)) {
+            fetchResponseCache.invalidate();
+        }
+    }
+
+    /**
+     * @return ids of this data source and of all the data sources it refers via foreignKey/includeFrom, transitively
+     */
+    protected Set<String> getFetchCacheDependencies() {
+        return memoizeRelation(new RelationKey("fetchCacheDependencies", getDataSource(), null, null), () -> {
+            final Set<String> ids = new HashSet<>();
+            collectFetchCacheDependencies(getDataSource(), ids);
+            return Collections.unmodifiableSet(ids);
+        });
+    }
+
+    private void collectFetchCacheDependencies(DataSource ds, Set<String> ids) {
+        if (!ids.add(ds.getId())) {
+            return;
+        }
+
+        for (DSField dsf : ds.getFields()) {
+            for (String reference : new String[] {dsf.getForeignKey(), dsf.getIncludeFrom()}) {
+                if (reference == null || reference.isBlank()) {
+                    continue;
+                }
+
+                // All the segments, except the last one that is a field name, are data source ids
+                final String[] parsed = reference.split("\\.");
+                for (int i = 0; i < parsed.length - 1; ++i) {
+                    final String dsId = parsed[i].trim();
+
+                    DataSource related;
+                    try {
+                        related = getDataSourceById(dsId);
+                    } catch (RuntimeException e) {
+                        related = null;
+                    }
+
+                    if (related != null) {
+                        collectFetchCacheDependencies(related, ids);
+                    } else {
+                        ids.add(dsId);
+                    }
+                }
+            }
+        }
+    }
+
     private DSResponse failureDueToUnsupportedOperation(DSRequest request) {
         return DSResponse.failure("Can't handle request: operation '%s' is not supported by '%s' data source.",
                 request.getOperationType(),
@@ -148,16 +356,60 @@ public abstract class AbstractDSHandler extends RelationSupport implements DSHan
         return null;
     }
 
+    /**
+     * Drops relations memoized by all the handlers, must be called whenever any handler is (re-)registered,
+     * since relations refer to the data sources of the other handlers.
+     */
+    public static void invalidateRelations() {
+        relationsGeneration.incrementAndGet();
+    }
+
+    /**
+     * @return current generation of the relations, it is changed by each {@link #invalidateRelations()},
+     * therefore anything derived from the relations must be dropped once the generation is changed
+     */
+    protected static long getRelationsGeneration() {
+        return relationsGeneration.get();
+    }
+
+    /**
+     * Relations are resolved once per handler and re-used by all the subsequent requests.
+     *
+     * Failed resolutions are not memoized.
+     */
+    @SuppressWarnings("unchecked")
+    protected <R> R memoizeRelation(RelationKey key, Supplier<R> resolver) {
+        final long generation = relationsGeneration.get();
+        RelationsMemo memo = relationsMemo;
+        if (memo.generation() != generation) {
+            memo = new RelationsMemo(generation, new ConcurrentHashMap<>());
+            relationsMemo = memo;
+        }
+
+        final Object memoized = memo.relations().get(key);
+        if (memoized != null) {
+            return (R) memoized;
+        }
+
+        // computeIfAbsent is not used intentionally, since resolution may be re-entrant
+        final R relation = resolver.get();
+        final Object existing = memo.relations().putIfAbsent(key, relation);
+        return existing == null ? relation : (R) existing;
+    }
+
     protected ImportFromRelation describeImportFrom(DSField importFromField) {
-        return RelationSupport.describeImportFrom(this::getDataSourceHandlerById, this.getDataSource(), importFromField);
+        return memoizeRelation(new RelationKey("importFrom", getDataSource(), importFromField, null),
+                () -> RelationSupport.describeImportFrom(this::getDataSourceHandlerById, this.getDataSource(), importFromField));
     }
 
     protected ForeignKeyRelation describeForeignKey(DSField foreignKeyField) {
-        return RelationSupport.describeForeignKey(this::getDataSourceHandlerById, this.getDataSource(), foreignKeyField);
+        return memoizeRelation(new RelationKey("foreignKey", getDataSource(), foreignKeyField, null),
+                () -> RelationSupport.describeForeignKey(this::getDataSourceHandlerById, this.getDataSource(), foreignKeyField));
     }
 
     protected ForeignRelation describeForeignRelation(DataSource dataSource, DSField field, String relation) {
-        return RelationSupport.ForeignRelation.describeForeignRelation(dataSource, field, this::getDataSourceHandlerById, relation);
+        return memoizeRelation(new RelationKey("foreignRelation", dataSource, field, relation),
+                () -> RelationSupport.ForeignRelation.describeForeignRelation(dataSource, field, this::getDataSourceHandlerById, relation));
     }
 
     protected ForeignRelation determineEffectiveField(DSField dsf) {
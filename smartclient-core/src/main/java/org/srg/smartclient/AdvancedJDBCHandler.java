@@ -2,14 +2,21 @@ package org.srg.smartclient;
 
 import org.srg.smartclient.isomorphic.DSField;
 import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.DSResponse;
 import org.srg.smartclient.isomorphic.DataSource;
 import org.srg.smartclient.isomorphic.IDSRequestData;
+import org.srg.smartclient.isomorphic.OperationBinding;
 import org.srg.smartclient.isomorphic.criteria.AdvancedCriteria;
 import org.srg.smartclient.isomorphic.criteria.Criteria;
+import org.srg.smartclient.isomorphic.criteria.CriteriaNormalizer;
+import org.srg.smartclient.isomorphic.criteria.OperatorId;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * https://isomorphic.atlassian.net/wiki/spaces/Main/pages/525155/5.+Adding+support+for+AdvancedCriteria
@@ -25,6 +32,75 @@ public class AdvancedJDBCHandler extends JDBCHandler {
         return true;
     }
 
+    /**
+     * Normalizes the criteria before it is translated into SQL, if the criteria can't be satisfied
+     * the empty response is returned without querying the database.
+     *
+     * Normalized criteria is fetched by a copy of the request, the request itself is never modified.
+     */
+    @Override
+    protected DSResponse handleFetch(DSRequest request) throws Exception {
+        if (request.getData() instanceof AdvancedCriteria ac
+                && isCriteriaNormalizationApplicable(getEffectiveOperationBinding(DSRequest.OperationType.FETCH, request.getOperationId()))) {
+            final CriteriaNormalizer.Normalized normalized = CriteriaNormalizer.normalize(ac);
+
+            if (normalized.alwaysFalse()) {
+                return DSResponse.successFetch(request.getStartRow(), request.getStartRow(), 0,
+                        getRequestedFields(request), List.of());
+            }
+
+            final DSRequest normalizedRequest = request.copy();
+            normalizedRequest.setData(normalized.criteria());
+            return super.handleFetch(normalizedRequest);
+        }
+
+        return super.handleFetch(request);
+    }
+
+    /**
+     * Excluded criteria fields and criteria referred by the SQL templates are handled by the templates,
+     * therefore the criteria must reach them exactly as it was sent by the client: merged or re-ordered
+     * conditions change what the templates render, and a contradiction on the excluded field
+     * does not mean that the query returns nothing.
+     */
+    private static boolean isCriteriaNormalizationApplicable(OperationBinding operationBinding) {
+        if (operationBinding == null) {
+            return true;
+        }
+
+        return (operationBinding.getExcludeCriteriaFields() == null || operationBinding.getExcludeCriteriaFields().isBlank())
+                && Stream.of(
+                        operationBinding.getCustomSQL(),
+                        operationBinding.getTableClause(),
+                        operationBinding.getAnsiJoinClause(),
+                        operationBinding.getWhereClause()
+                    )
+                    .noneMatch(SQLFetchContext::isCriteriaReferenced);
+    }
+
+    /**
+     * @return fields requested by the outputs, or all the fields if outputs are not provided
+     */
+    private List<DSField> getRequestedFields(DSRequest request) {
+        if (request.getOutputs() == null || request.getOutputs().isBlank()) {
+            return getDataSource().getFields();
+        }
+
+        final List<DSField> fields = new ArrayList<>();
+        for (String s : request.getOutputs().split(",")) {
+            final String fn = s.trim();
+            if (!fn.isBlank()) {
+                final DSField dsf = getField(fn);
+                if (dsf == null) {
+                    throw new RuntimeException("DataSource '%s': nothing known about requested field '%s'"
+                            .formatted(getDataSource().getId(), fn));
+                }
+                fields.add(dsf);
+            }
+        }
+        return fields;
+    }
+
     private IFilterData generateFD(Criteria ac, Predicate<String> exclusionPredicate ) {
         if (ac.getFieldName() != null && !ac.getFieldName().isBlank()) {
             if (exclusionPredicate.test(ac.getFieldName())){
@@ -95,11 +171,7 @@ public class AdvancedJDBCHandler extends JDBCHandler {
                     if (ac.getOperator().name().charAt(0) == 'I') {
                         // Case Insensitive
 
-                        if (isNot) {
-                            filterStr = "LOWER(%s) NOT LIKE LOWER(?)";
-                        } else {
-                            filterStr = "LOWER(%s) LIKE LOWER(?)";
-                        }
+                        filterStr = getDialect().caseInsensitiveLike(isNot);
                     } else {
                         if (isNot) {
                             filterStr = "%s NOT LIKE ?";
@@ -120,11 +192,7 @@ public class AdvancedJDBCHandler extends JDBCHandler {
 
                     if (ac.getOperator().name().charAt(0) == 'I') {
                         // Case Insensitive
-                        if (isNot) {
-                            filterStr = "LOWER(%s) <> LOWER(?)";
-                        } else {
-                            filterStr = "LOWER(%s) = LOWER(?)";
-                        }
+                        filterStr = getDialect().caseInsensitiveEquals(isNot);
                     } else {
                         // Case Sensitive
                         if (isNot) {
@@ -169,16 +237,8 @@ public class AdvancedJDBCHandler extends JDBCHandler {
                     break;
 
                 case IN_SET:
-                    values = ac.getValue();
-                    final String s;
-                    if ( values instanceof Collection c) {
-                        s = String.join(",", Collections.nCopies(c.size(), "?"));
-                    } else if (values instanceof Object[] a ) {
-                        s = String.join(",", Collections.nCopies(a.length, "?"));
-                    } else {
-                        s = "?";
-                    }
-                    filterStr = "%s IN (" + s + ")";
+                    // SQL depends on the IN_SET strategy, see createInSetFilterData()
+                    filterStr = null;
                     break;
 
                 default:
@@ -199,6 +259,10 @@ public class AdvancedJDBCHandler extends JDBCHandler {
                 )
             );
 
+            if (ac.getOperator() == OperatorId.IN_SET) {
+                return createInSetFilterData(effectiveField, ac.getValue());
+            }
+
             return ValueFilterData.create(effectiveField, filterStr, values);
         } else {
             switch (ac.getOperator()) {
@@ -227,6 +291,26 @@ public class AdvancedJDBCHandler extends JDBCHandler {
     }
 
 
+    /**
+     * Binds IN_SET values according to the {@link #getInSetStrategy()}, see {@link #bindInSet(DSField.FieldType, Collection)}.
+     */
+    protected IFilterData createInSetFilterData(ForeignRelation effectiveField, Object value) {
+        final List<Object> values;
+        if (value instanceof Collection<?> c) {
+            values = new ArrayList<>(c);
+        } else if (value instanceof Object[] a) {
+            values = Arrays.asList(a);
+        } else {
+            values = Collections.singletonList(value);
+        }
+
+        final InSetBinding binding = bindInSet(effectiveField.field().getType(), values);
+
+        return binding.arrayElementType() == null ?
+                new ValueFilterData(effectiveField, binding.sqlTemplate(), binding.values())
+                : new ArrayFilterData(effectiveField, binding.sqlTemplate(), binding.arrayElementType(), binding.values());
+    }
+
     @Override
     protected List<IFilterData> generateFilterData(
             DSRequest.OperationType operationType,
@@ -277,6 +361,10 @@ public class AdvancedJDBCHandler extends JDBCHandler {
             return values;
         }
 
+        protected List<Object> getValues() {
+            return values;
+        }
+
         public static ValueFilterData create(ForeignRelation dsFieldPair, String sql, Object value) {
             if (value == null) {
                 return new ValueFilterData(dsFieldPair, sql);
@@ -288,6 +376,24 @@ public class AdvancedJDBCHandler extends JDBCHandler {
         }
     }
 
+    /**
+     * Binds all the values as a single array parameter.
+     */
+    protected static class ArrayFilterData extends ValueFilterData {
+        private final String elementType;
+
+        public ArrayFilterData(ForeignRelation dsFieldPair, String sql, String elementType, Collection<?> values) {
+            super(dsFieldPair, sql, values);
+            this.elementType = elementType;
+        }
+
+        @Override
+        public int setStatementParameters(int idx, PreparedStatement preparedStatement, StatementArrays arrays) throws SQLException {
+            preparedStatement.setArray(++idx, arrays.create(preparedStatement, elementType, getValues().toArray()));
+            return idx;
+        }
+    }
+
     protected class CompositeFilterData implements IFilterData, Iterable<Object> {
         private final String operator;
         private final List<IFilterData> filterDataList;
@@ -331,6 +437,14 @@ public class AdvancedJDBCHandler extends JDBCHandler {
             return this;
         }
 
+        @Override
+        public int setStatementParameters(int idx, PreparedStatement preparedStatement, StatementArrays arrays) throws SQLException {
+            for (IFilterData fd : filterDataList) {
+                idx = fd.setStatementParameters(idx, preparedStatement, arrays);
+            }
+            return idx;
+        }
+
         @Override
         public Iterator<Object> iterator() {
             return new Iterator<>() {
@@ -69,6 +69,25 @@ public class DBConnectionManager implements JDBCHandler.JDBCPolicy {
         return dbCtx.getDataSource().getConnection();
     }
 
+    @Override
+    public SqlDialect getDialect(String database) {
+        try {
+            if (database == null || database.isEmpty()) {
+                database = getDefaultDatabase();
+            }
+
+            final Config.SQLConfig.Connection connectionInfo = getSqlConfig().getConnections().get(database);
+            if (connectionInfo == null) {
+                return SqlDialect.GENERIC;
+            }
+
+            final SqlDialect dialect = SqlDialect.forDatabaseType(connectionInfo.getDatabase().getType());
+            return connectionInfo.getDatabase().isCaseInsensitiveCollation() ? dialect.withCaseInsensitiveCollation() : dialect;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
         try (Connection connection = this.getConnection(database)){
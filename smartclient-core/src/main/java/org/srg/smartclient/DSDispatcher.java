@@ -28,16 +28,37 @@ import java.io.*;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 
 public class DSDispatcher implements IDSDispatcher {
     private static Logger logger = LoggerFactory.getLogger(DSDispatcher.class);
+    public static final int DEFAULT_PARALLEL_FETCH_LIMIT = 1;
+
+    private static final ExecutorService dispatchExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r, "smartclient-dispatch-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
     private Map<String, IHandler> datasourceMap = new LinkedHashMap<>();
     private JDBCHandlerFactory  jdbcHandlerFactory = new JDBCHandlerFactory();
     private JDBCHandler.JDBCPolicy jdbcPolicy;
     private JDKDMIHandlerFactory dmiHandlerFactory;
+    private boolean transactionalQueues;
+    private int parallelFetchLimit = DEFAULT_PARALLEL_FETCH_LIMIT;
 
     public DSDispatcher() {
         this(DBConnectionManager.get());
@@ -54,6 +75,33 @@ public class DSDispatcher implements IDSDispatcher {
     }
 
 
+    /**
+     * Whether the queue (DSTransaction) is performed as a single DB transaction, see {@link #dispatchTransaction}.
+     */
+    public boolean isTransactionalQueues() {
+        return transactionalQueues;
+    }
+
+    public void setTransactionalQueues(boolean transactionalQueues) {
+        this.transactionalQueues = transactionalQueues;
+    }
+
+    /**
+     * Maximum number of FETCH operations of the same queue that are handled concurrently,
+     * 1 or less disables parallel handling, see {@link #dispatch(IDSRequest)}.
+     *
+     * Parallel handling is disabled by default: concurrent requests are handled by the pool threads,
+     * that do not inherit any ThreadLocal context of the calling thread (security context, DMI or JPA session, etc.),
+     * therefore it must be enabled only if none of the handlers relies on such a context.
+     */
+    public int getParallelFetchLimit() {
+        return parallelFetchLimit;
+    }
+
+    public void setParallelFetchLimit(int parallelFetchLimit) {
+        this.parallelFetchLimit = parallelFetchLimit;
+    }
+
     @Override
     public IHandler getHandlerByName(String dsId) {
         final IHandler ds = datasourceMap.get(dsId);
@@ -117,7 +165,8 @@ public class DSDispatcher implements IDSDispatcher {
                 .addMixIn(DSResponse.class, PropertyFilterMixIn.class)
                 .setFilterProvider(filterProvider)
                 .writer(pp)
-                .withAttribute(Serde.RawDataResponseSerializer.SERIALIZE_FIELDS_ONLY, logger.isTraceEnabled() ? null : Boolean.TRUE);
+                .withAttribute(Serde.RawDataResponseSerializer.SERIALIZE_FIELDS_ONLY, logger.isTraceEnabled() ? null : Boolean.TRUE)
+                .withAttribute(Serde.RawDataResponseSerializer.SKIP_STREAMED_DATA, Boolean.TRUE);
 
 
 //        if (!logger.isTraceEnabled()) {
@@ -130,25 +179,37 @@ public class DSDispatcher implements IDSDispatcher {
     }
 
     protected DSResponse handleRequest(DSRequest request) {
+        return handleRequests(List.of(request)).get(0);
+    }
+
+    /**
+     * Handles requests of the same data source and operation type, more than one request are handled
+     * as a batch by {@link AbstractDSHandler#handleBatch(List)}.
+     */
+    protected List<DSResponse> handleRequests(List<DSRequest> requests) {
+        final DSRequest request = requests.get(0);
         try {
             final IHandler ds = getHandlerByName(request.getDataSource());
-            final DSResponse response = ds.handle(request);
+            final List<DSResponse> responses = requests.size() == 1 ?
+                    List.of(ds.handle(request)) : ((AbstractDSHandler) ds).handleBatch(requests);
 
-            response.setOperationId( request.getOperationId());
-//            response.setOperationType( request.getOperationType());
+            for (int i = 0; i < requests.size(); ++i) {
+                responses.get(i).setOperationId( requests.get(i).getOperationId());
+//                responses.get(i).setOperationType( requests.get(i).getOperationType());
+            }
 
             if (logger.isDebugEnabled()){
                 final ObjectWriter objectWriter = createObjectWriter();
                 String strRequest, strResponse;
 
                 try {
-                    strRequest = objectWriter.writeValueAsString(request);
+                    strRequest = objectWriter.writeValueAsString(requests.size() == 1 ? request : requests);
                 } catch (JsonProcessingException ex) {
                     strRequest = "{Can't serialize request: %s}".formatted(ex.getMessage());
                 }
 
                 try {
-                    strResponse = objectWriter.writeValueAsString(response);
+                    strResponse = objectWriter.writeValueAsString(responses.size() == 1 ? responses.get(0) : responses);
                 } catch (JsonProcessingException ex) {
                     strResponse = "{Can't serialize response: %s}".formatted(ex.getMessage());
                 }
@@ -172,7 +233,7 @@ public class DSDispatcher implements IDSDispatcher {
 
                 ));
             }
-            return response;
+            return responses;
         } catch (Throwable t) {
             final ObjectWriter objectWriter = createObjectWriter();
             StringWriter contextWriter = null;
@@ -191,7 +252,7 @@ public class DSDispatcher implements IDSDispatcher {
 
             String strRequest;
             try {
-                strRequest = objectWriter.writeValueAsString(request);
+                strRequest = objectWriter.writeValueAsString(requests.size() == 1 ? request : requests);
             } catch (JsonProcessingException ex) {
                 strRequest = "{Can't serialize request: %s}".formatted(ex.getMessage());
             }
@@ -217,22 +278,232 @@ public class DSDispatcher implements IDSDispatcher {
                         sw
                     )
             );
-            return DSResponse.failure(t.getMessage() == null ? t.getClass().getCanonicalName() : t.getMessage());
+            final List<DSResponse> responses = new ArrayList<>(requests.size());
+            for (DSRequest r : requests) {
+                responses.add(DSResponse.failure(t.getMessage() == null ? t.getClass().getCanonicalName() : t.getMessage()));
+            }
+            return responses;
         }
     }
 
+    /**
+     * FETCH operations at the beginning of the queue, the ones that are not preceded by any modification,
+     * are independent of each other, therefore they are handled concurrently, up to {@link #getParallelFetchLimit()}
+     * at once. All the subsequent operations are handled in order, after the fetches are completed.
+     *
+     * Responses are always returned in the order of the operations.
+     */
     @Override
     public Collection<DSResponse> dispatch(IDSRequest request) {
+        final List<DSRequest> operations = new ArrayList<>();
+        request.forEach(operations::add);
+
+        final int fetchPrefix = getFetchPrefixLength(operations);
+
+        if (transactionalQueues
+                && request instanceof DSTransaction transaction
+                && fetchPrefix < operations.size()) {
+            final Set<String> databases = getDatabases(transaction);
+
+            /*
+             * Non-JDBC handlers can't join the transaction, they are just performed in order,
+             * queues that span several databases are performed request by request.
+             */
+            if (databases.size() == 1) {
+                return dispatchTransaction(transaction, databases.iterator().next());
+            }
+        }
+
         final LinkedList<DSResponse> responses = new LinkedList<>();
 
-        for (DSRequest r: request) {
+        int from = 0;
+        if (fetchPrefix > 1 && parallelFetchLimit > 1) {
+            for (DSResponse response : handleConcurrently(operations.subList(0, fetchPrefix))) {
+                responses.add(responses.size() < operations.size() - 1 ? bufferStreamedData(response) : response);
+            }
+            from = fetchPrefix;
+        }
+
+        for (DSRequest r: operations.subList(from, operations.size())) {
             final DSResponse response = handleRequest(r);
-            responses.add(response);
+            responses.add(responses.size() < operations.size() - 1 ? bufferStreamedData(response) : response);
         }
 
         return responses;
     }
 
+    /**
+     * Streamed rows are fetched while the response is being serialized, that is after all the operations
+     * of the queue are performed, therefore only the last response of the queue can be streamed,
+     * the rows of any other one are fetched right away, before the subsequent operations may modify them.
+     */
+    private static DSResponse bufferStreamedData(DSResponse response) {
+        if (response.getStatus() != DSResponse.STATUS_SUCCESS
+                || response.getData() == null
+                || response.getData().getResponseType() != DSResponseDataContainer.ResponseType.RAW
+                || !response.getData().getRawDataResponse().isStreamed()) {
+            return response;
+        }
+
+        final DSResponseDataContainer.RawDataResponse raw = response.getData().getRawDataResponse();
+        final List<Object[]> data = new ArrayList<>();
+        try {
+            raw.getData().forEach(data::add);
+        } catch (RuntimeException e) {
+            logger.error("Streamed data can't be fetched.", e);
+            return DSResponse.failure(e.getMessage() == null ? e.getClass().getCanonicalName() : e.getMessage());
+        }
+
+        final DSResponse buffered = DSResponse.successFetch(response.getStartRow(), response.getEndRow(),
+                response.getTotalRows(), raw.getFields(), data);
+        buffered.setOperationId(response.getOperationId());
+        return buffered;
+    }
+
+    /**
+     * Handles each request by a separate thread, requests are handled by the threads of the shared executor,
+     * therefore handlers must not rely on any state bound to the calling thread, ThreadLocal context
+     * is not propagated to the pool threads.
+     *
+     * @return responses in the order of the requests
+     */
+    protected List<DSResponse> handleConcurrently(List<DSRequest> requests) {
+        final Semaphore permits = new Semaphore(parallelFetchLimit);
+        final List<CompletableFuture<DSResponse>> futures = new ArrayList<>(requests.size());
+
+        for (DSRequest r : requests) {
+            permits.acquireUninterruptibly();
+
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return handleRequest(r);
+                } finally {
+                    permits.release();
+                }
+            }, dispatchExecutor));
+        }
+
+        final List<DSResponse> responses = new ArrayList<>(requests.size());
+        for (CompletableFuture<DSResponse> f : futures) {
+            // handleRequest() never throws, any failure is reported by the response
+            responses.add(f.join());
+        }
+        return responses;
+    }
+
+    private static int getFetchPrefixLength(List<DSRequest> operations) {
+        int i = 0;
+        while (i < operations.size()
+                && (operations.get(i).getOperationType() == null
+                    || operations.get(i).getOperationType() == DSRequest.OperationType.FETCH)) {
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * Performs all the operations of the queue on a single connection and commits them at once,
+     * if any operation fails the whole queue is rolled back and all the other operations
+     * are reported as {@link DSResponse#STATUS_TRANSACTION_FAILED}.
+     *
+     * Consecutive UPDATE or REMOVE operations of the same data source are handled as a batch.
+     */
+    protected Collection<DSResponse> dispatchTransaction(DSTransaction transaction, String database) {
+        final List<DSRequest> operations = transaction.getOperations();
+        final List<DSResponse> responses = new ArrayList<>(operations.size());
+        final int[] failedIdx = {-1};
+
+        try {
+            getJdbcPolicy().withConnectionDo(database, conn ->
+                JDBCTransaction.execute(database, conn, tx -> {
+                    int from = 0;
+                    while (from < operations.size()) {
+                        final int to = getBatchEnd(operations, from);
+                        final List<DSResponse> rr = handleRequests(operations.subList(from, to));
+
+                        for (DSResponse r : rr) {
+                            if (r.getStatus() != DSResponse.STATUS_SUCCESS && failedIdx[0] < 0) {
+                                failedIdx[0] = responses.size();
+                            }
+                            responses.add(r);
+                        }
+
+                        if (failedIdx[0] >= 0) {
+                            tx.setRollbackOnly();
+                            break;
+                        }
+                        from = to;
+                    }
+                    return null;
+                })
+            );
+        } catch (Throwable t) {
+            logger.error("Queue transaction %d failed.".formatted(transaction.getTransactionNum()), t);
+
+            if (failedIdx[0] < 0) {
+                // Commit failed, all the operations were rolled back
+                responses.clear();
+                for (DSRequest r : operations) {
+                    final DSResponse response = DSResponse.failure(t.getMessage() == null ? t.getClass().getCanonicalName() : t.getMessage());
+                    response.setOperationId(r.getOperationId());
+                    responses.add(response);
+                }
+                return responses;
+            }
+        }
+
+        if (failedIdx[0] < 0) {
+            return responses;
+        }
+
+        final List<DSResponse> result = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); ++i) {
+            if (i < responses.size() && responses.get(i).getStatus() != DSResponse.STATUS_SUCCESS) {
+                result.add(responses.get(i));
+            } else {
+                final DSResponse response = DSResponse.transactionFailed("Transaction was rolled back due to a failure of another operation.");
+                response.setOperationId(operations.get(i).getOperationId());
+                result.add(response);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return databases of all the JDBC handlers involved into the transaction
+     */
+    private Set<String> getDatabases(DSTransaction transaction) {
+        final Set<String> databases = new HashSet<>();
+
+        for (DSRequest r : transaction) {
+            if (getHandlerByName(r.getDataSource()) instanceof JDBCHandler h) {
+                databases.add(h.getDataSource().getDbName());
+            }
+        }
+        return databases;
+    }
+
+    /**
+     * @return index of the first operation that can't be batched with the operation at the {@code from} index
+     */
+    private int getBatchEnd(List<DSRequest> operations, int from) {
+        final DSRequest first = operations.get(from);
+
+        if ((first.getOperationType() != DSRequest.OperationType.UPDATE
+                && first.getOperationType() != DSRequest.OperationType.REMOVE)
+                || !(getHandlerByName(first.getDataSource()) instanceof AbstractDSHandler)) {
+            return from + 1;
+        }
+
+        int to = from + 1;
+        while (to < operations.size()
+                && first.getOperationType() == operations.get(to).getOperationType()
+                && Objects.equals(first.getDataSource(), operations.get(to).getDataSource())) {
+            ++to;
+        }
+        return to;
+    }
+
     public <A extends Appendable> A generateDSJavaScript(A out, String dispatcherUrl, String... dsId) throws Exception {
         out.append("const DISPATCHER_URL = \"%s\";\n"
                 .formatted(dispatcherUrl));
@@ -433,6 +704,7 @@ public class DSDispatcher implements IDSDispatcher {
     @Override
     public void registerHandler(IHandler handler) {
         datasourceMap.put(handler.id(), handler);
+        AbstractDSHandler.invalidateRelations();
         logger.info("A new DSHandler has been registered as '%s' ".formatted(handler.id()));
     }
 
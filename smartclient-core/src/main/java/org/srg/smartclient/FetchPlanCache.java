@@ -0,0 +1,94 @@
+package org.srg.smartclient;
+
+import org.srg.smartclient.isomorphic.DSField;
+import org.srg.smartclient.isomorphic.DataSource;
+import org.srg.smartclient.isomorphic.OperationBinding;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches fetch query plans of a single data source.
+ *
+ * Plan is identified by the operation binding, requested outputs, sort order and the criteria shape,
+ * criteria shape is represented by the generated WHERE clause that contains only placeholders for the values,
+ * therefore repeated grid requests re-use the generated SQL and only bind the values.
+ *
+ * Plans that depend on the criteria values (templates that refer to {@code criteria} or {@code advancedCriteria})
+ * must not be cached.
+ *
+ * Plans contain the joins derived from the relations with the other data sources, therefore all of them are dropped
+ * once the relations are changed, see {@link AbstractDSHandler#invalidateRelations()}.
+ */
+public class FetchPlanCache {
+    public static final int DEFAULT_MAX_ENTRIES = 500;
+
+    public record Key(OperationBinding operationBinding,
+                      String outputs,
+                      String additionalOutputs,
+                      List<String> sortBy,
+                      boolean keysetPagination,
+                      Set<String> criteriaFieldNames,
+                      String whereClause,
+                      DataSource.IncludeSummaryStrategy includeSummaryStrategy) {}
+
+    public record FetchPlan(List<DSField> requestedFields,
+                            Map<DSField, List<RelationSupport.ForeignRelation>> additionalOutputs,
+                            List<SQLFetchContext.KeysetColumn> keysetColumns,
+                            List<SQLFetchContext.BatchedSummary> batchedSummaries,
+                            String summaryKeyColumn,
+                            String selectClause,
+                            String fromClause,
+                            String joinClause,
+                            String orderClause,
+                            String genericQuery,
+                            String outputColumns) {}
+
+    private final Map<Key, FetchPlan> entries;
+    private long relationsGeneration;
+
+    public FetchPlanCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public FetchPlanCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, FetchPlan> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param relationsGeneration current generation of the relations, plans of the other generations are dropped
+     * @return cached plan or {@code null} if there is no cached plan
+     */
+    public synchronized FetchPlan get(Key key, long relationsGeneration) {
+        if (this.relationsGeneration != relationsGeneration) {
+            entries.clear();
+            this.relationsGeneration = relationsGeneration;
+        }
+        return entries.get(key);
+    }
+
+    /**
+     * @param relationsGeneration generation of the relations the plan was built for, plan built for the relations
+     *                            that were changed meanwhile is not cached
+     */
+    public synchronized void put(Key key, FetchPlan plan, long relationsGeneration) {
+        if (this.relationsGeneration == relationsGeneration) {
+            entries.put(key, plan);
+        }
+    }
+
+    public synchronized void invalidate() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
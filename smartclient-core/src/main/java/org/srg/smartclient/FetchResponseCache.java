@@ -0,0 +1,169 @@
+package org.srg.smartclient;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.srg.smartclient.isomorphic.DSField;
+import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.DSResponseDataContainer;
+import org.srg.smartclient.isomorphic.criteria.AdvancedCriteria;
+import org.srg.smartclient.isomorphic.criteria.CriteriaNormalizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches successful fetch responses of a single data source.
+ *
+ * Entry is identified by the normalized request: operationId, outputs, additionalOutputs, sortBy,
+ * requested rows range, text match style and criteria, criteria is normalized into JSON with the sorted keys
+ * (advanced criteria - by the {@link CriteriaNormalizer}), therefore the same criteria provided in a different order
+ * is the same entry.
+ *
+ * Entries expire after the max age, all the entries are dropped on any modification of the data source
+ * or any data source it refers via foreignKey/includeFrom.
+ */
+public class FetchResponseCache {
+    private static final ObjectMapper criteriaMapper = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    public record Key(String operationId,
+                      String outputs,
+                      String additionalOutputs,
+                      List<String> sortBy,
+                      int startRow,
+                      int endRow,
+                      DSRequest.TextMatchStyle textMatchStyle,
+                      String criteria) {}
+
+    /**
+     * Immutable snapshot of the response, a new response is created for each hit, since responses are modified
+     * by the dispatcher (operationId, transactionNum, etc.).
+     */
+    private record CachedResponse(int startRow, int endRow, int totalRows,
+                                  List<DSField> fields, List<Object[]> data, long expiresAt) {
+        private DSResponse toResponse() {
+            final List<Object[]> rows = new ArrayList<>(data.size());
+            for (Object[] r : data) {
+                rows.add(r.clone());
+            }
+            return DSResponse.successFetch(startRow, endRow, totalRows, fields, rows);
+        }
+    }
+
+    private final Map<Key, CachedResponse> entries;
+
+    // Incremented on each invalidation, prevents caching of responses that were fetched before the modification
+    private long generation;
+
+    public FetchResponseCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the key or {@code null} if the request can't be cached, since its criteria can't be normalized
+     */
+    public static Key createKey(DSRequest request) {
+        final String criteria;
+        try {
+            if (request.getData() instanceof AdvancedCriteria ac) {
+                criteria = CriteriaNormalizer.normalize(ac).key();
+            } else {
+                criteria = request.getData() == null ? null : criteriaMapper.writeValueAsString(request.getData());
+            }
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+
+        return new Key(
+                request.getOperationId(),
+                request.getOutputs(),
+                request.getAdditionalOutputs(),
+                request.getSortBy() == null ? null : List.copyOf(request.getSortBy()),
+                request.getStartRow(),
+                request.getEndRow(),
+                request.getTextMatchStyle(),
+                criteria
+        );
+    }
+
+    /**
+     * @return cached response or {@code null} if there is no cached response or it is expired
+     */
+    public synchronized DSResponse get(Key key) {
+        final CachedResponse e = entries.get(key);
+
+        if (e == null) {
+            return null;
+        }
+
+        if (e.expiresAt() - System.nanoTime() <= 0) {
+            entries.remove(key);
+            return null;
+        }
+
+        return e.toResponse();
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Only successful fetch responses with the raw data are cached, streamed data is fetched on serialization,
+     * therefore there is nothing to cache, the cache keeps a snapshot of the response,
+     * therefore the provided response can be modified afterwards.
+     *
+     * @param maxAgeSeconds 0 means that the entry never expires, but still can be evicted or invalidated
+     * @param generation generation obtained before the response was fetched, response is not cached if the cache
+     *                   was invalidated since then
+     */
+    public void put(Key key, DSResponse response, int maxAgeSeconds, long generation) {
+        if (response.getStatus() != DSResponse.STATUS_SUCCESS
+                || response.getData() == null
+                || response.getData().getResponseType() != DSResponseDataContainer.ResponseType.RAW
+                || response.getData().getRawDataResponse().isStreamed()
+                || response.getStartRow() == null
+                || response.getEndRow() == null
+                || response.getTotalRows() == null) {
+            return;
+        }
+
+        final DSResponseDataContainer.RawDataResponse raw = response.getData().getRawDataResponse();
+
+        final List<DSField> fields = new ArrayList<>();
+        raw.getFields().forEach(fields::add);
+
+        final List<Object[]> data = new ArrayList<>();
+        raw.getData().forEach(r -> data.add(r.clone()));
+
+        final long maxAge = maxAgeSeconds > 0 ? TimeUnit.SECONDS.toNanos(maxAgeSeconds) : Long.MAX_VALUE / 2;
+        final CachedResponse cached = new CachedResponse(response.getStartRow(), response.getEndRow(), response.getTotalRows(),
+                Collections.unmodifiableList(fields), Collections.unmodifiableList(data), System.nanoTime() + maxAge);
+
+        synchronized (this) {
+            if (this.generation == generation) {
+                entries.put(key, cached);
+            }
+        }
+    }
+
+    public synchronized void invalidate() {
+        ++generation;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
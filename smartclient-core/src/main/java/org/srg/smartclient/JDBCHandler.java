@@ -1,5 +1,6 @@
 package org.srg.smartclient;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.srg.smartclient.isomorphic.*;
@@ -11,6 +12,10 @@ import org.srg.smartclient.utils.Utils;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -22,12 +27,25 @@ public class JDBCHandler extends AbstractDSHandler {
     public interface JDBCPolicy {
         // http://java.avdiel.com/Tutorials/JDBCPaging.html
         void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception;
+
+        default SqlDialect getDialect(String database) {
+            return SqlDialect.GENERIC;
+        }
     }
 
+    /**
+     * Max number of the parameters in a single IN list produced by the {@link DataSource.InSetStrategy#PADDED}.
+     */
+    public static final int MAX_IN_SET_BUCKET = 1024;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final JDBCPolicy policy;
 
+    private final TotalRowsCache totalRowsCache = new TotalRowsCache();
+    private final KeysetPaginationCache keysetPaginationCache = new KeysetPaginationCache();
+    private final FetchPlanCache fetchPlanCache = new FetchPlanCache();
+
     public JDBCHandler(JDBCPolicy jdbcPolicy, IDSRegistry dsRegistry, DataSource datasource) {
         super(dsRegistry, datasource);
         policy = jdbcPolicy;
@@ -44,23 +62,19 @@ public class JDBCHandler extends AbstractDSHandler {
         final SQLUpdateContext<JDBCHandler> sqlUpdateContext = new SQLUpdateContext<>(this, request, operationBinding);
 
 
+        final List<DSField> capturedFields = getCapturedFields(request.getOperationId(), getUpdatedOutputs(request));
+
         // --
         final DSResponse[] response = {null};
 
-        policy.withConnectionDo(this.getDataSource().getDbName(), conn-> {
-
-            try (PreparedStatement st = conn.prepareStatement(sqlUpdateContext.getUpdateSQL(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
-                int idx =0;
-
-                final List<IFilterData> l = sqlUpdateContext.getModifiedData();
-                for (IFilterData fd: l) {
-                    idx = fd.setStatementParameters(idx, st);
-                }
+        withConnectionDo(conn -> {
+            List<Object[]> capturedRows = null;
 
-                final List<IFilterData> ll = sqlUpdateContext.getPkFieldData();
-                for (IFilterData fd: ll) {
-                    idx = fd.setStatementParameters(idx, st);
-                }
+            try (PreparedStatement st = capturedFields == null ?
+                    conn.prepareStatement(sqlUpdateContext.getUpdateSQL(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)
+                    : conn.prepareStatement(sqlUpdateContext.getUpdateSQL(), getColumnNames(capturedFields));
+                 StatementArrays arrays = new StatementArrays()) {
+                setUpdateStatementParameters(sqlUpdateContext, st, arrays);
 
                 final int qnt = st.executeUpdate();
 
@@ -69,11 +83,21 @@ public class JDBCHandler extends AbstractDSHandler {
                     // There is no updated/affected records
                     throw new RuntimeException("Zero rows were updated.");
                 }
+
+                if (capturedFields != null) {
+                    capturedRows = readGeneratedKeys(st, new LinkedList<>(), capturedFields);
+                }
             } catch (Throwable t) {
                 conn.rollback();
                 throw new ContextualRuntimeException("SQL update query execution failed.", t, sqlUpdateContext);
             }
 
+            if (capturedRows != null && capturedRows.size() == 1) {
+                conn.commit();
+                response[0] = DSResponse.success(DSResponseDataContainer.createRaw(capturedFields, capturedRows));
+                return null;
+            }
+
             /*
              * It is required to return modified row back to the client.
              *
@@ -86,21 +110,7 @@ public class JDBCHandler extends AbstractDSHandler {
              */
 
 
-            final DSRequest fr = new DSRequest();
-            fr.setDataSource(request.getDataSource());
-            fr.setOperationType(DSRequest.OperationType.FETCH);
-            fr.setOperationId(request.getOperationId());
-            fr.setComponentId(request.getComponentId());
-            fr.wrapAndSetData(sqlUpdateContext.getPkValues());
-
-            // return the only fields that were provided within the request, except metadata
-            fr.setOutputs(
-                request.getOldValues().keySet().stream()
-                    .filter( s -> !s.startsWith(getMetaDataPrefix()))
-                    .collect(Collectors.joining(", "))
-            );
-
-            final DSResponse r =  doHandleFetch(fr, conn, false);
+            final DSResponse r =  doHandleFetch(createUpdatedFetchRequest(request, sqlUpdateContext), conn, false);
 
             if (r.getStatus() == DSResponse.STATUS_SUCCESS ) {
                 conn.commit();
@@ -112,6 +122,8 @@ public class JDBCHandler extends AbstractDSHandler {
             return null;
         });
 
+        invalidateOnModification(this::invalidateQueryCaches);
+
         final DSResponse fetchRespone = response[0];
 
         if (fetchRespone.getStatus() != DSResponse.STATUS_SUCCESS) {
@@ -126,18 +138,216 @@ public class JDBCHandler extends AbstractDSHandler {
         final DSResponse[] r = {null};
         if (request instanceof StickyDBDSRequest sdbRequest) {
             r[0] = doHandleFetch(request, sdbRequest.connection(), true);
-        } else {
-            policy.withConnectionDo(this.getDataSource().getDbName(), conn -> {
-                r[0] = doHandleFetch(request, conn, true);
-                return null;
-            });
+            return r[0];
+        }
+
+        // Rows can't be streamed by a separate connection, since they may depend on the uncommitted changes
+        if (JDBCTransaction.current() == null) {
+            final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, request.getOperationId());
+
+            if (operationBinding != null && operationBinding.isStreamingFetch()) {
+                final SQLFetchContext<JDBCHandler> sqlFetchContext = new SQLFetchContext<>(this, request, operationBinding);
+
+                if (isStreamingFetchApplicable(sqlFetchContext, operationBinding)) {
+                    return doHandleStreamingFetch(request, sqlFetchContext, operationBinding);
+                }
+            }
         }
 
+        withConnectionDo(conn -> {
+            r[0] = doHandleFetch(request, conn, true);
+            return null;
+        });
+
         return r[0];
     }
 
+    /**
+     * Updates all the provided records on a single connection, consecutive updates that produce
+     * the same UPDATE statement are executed as a single JDBC batch.
+     */
+    @Override
+    protected List<DSResponse> handleUpdates(List<DSRequest> requests) throws Exception {
+        final List<SQLUpdateContext<JDBCHandler>> sqlUpdateContexts = new ArrayList<>(requests.size());
+
+        for (DSRequest request : requests) {
+            if (! (request.getData() instanceof Map)) {
+                throw new RuntimeException("Bad request: operation 'UPDATE', the map of modified and PK fields " +
+                        "must be provided in the  'data' field.");
+            }
+
+            final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, request.getOperationId());
+            sqlUpdateContexts.add(new SQLUpdateContext<>(this, request, operationBinding));
+        }
+
+        // --
+        final List<DSResponse> responses = new ArrayList<>(requests.size());
+
+        withConnectionDo(conn -> {
+            executeBatches(conn, sqlUpdateContexts, SQLUpdateContext::getUpdateSQL, JDBCHandler::setUpdateStatementParameters,
+                    "Zero rows were updated.", "SQL update query execution failed.");
+
+            for (int i = 0; i < requests.size(); ++i) {
+                final DSResponse r = doHandleFetch(createUpdatedFetchRequest(requests.get(i), sqlUpdateContexts.get(i)), conn, false);
+
+                if (r.getStatus() != DSResponse.STATUS_SUCCESS) {
+                    conn.rollback();
+                    responses.clear();
+                    for (int j = 0; j < requests.size(); ++j) {
+                        responses.add(r);
+                    }
+                    return null;
+                }
+
+                responses.add(DSResponse.success(r.getData()));
+            }
+
+            conn.commit();
+            return null;
+        });
+
+        invalidateOnModification(this::invalidateQueryCaches);
+
+        return responses;
+    }
+
+    /**
+     * Removes all the provided records on a single connection, consecutive removals that produce
+     * the same DELETE statement are executed as a single JDBC batch.
+     */
+    @Override
+    protected List<DSResponse> handleRemoves(List<DSRequest> requests) throws Exception {
+        final List<SQLRemoveContext<JDBCHandler>> sqlRemoveContexts = new ArrayList<>(requests.size());
+
+        for (DSRequest request : requests) {
+            if (! (request.getData() instanceof Map)) {
+                throw new RuntimeException("Bad request: operation 'REMOVE', the map of modified and PK fields " +
+                        "must be provided in the  'data' field.");
+            }
+
+            final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, request.getOperationId());
+            sqlRemoveContexts.add(new SQLRemoveContext<>(this, request, operationBinding));
+        }
+
+        withConnectionDo(conn -> {
+            executeBatches(conn, sqlRemoveContexts, SQLRemoveContext::getDeleteSQL, JDBCHandler::setRemoveStatementParameters,
+                    null, "SQL remove query execution failed.");
+
+            conn.commit();
+            return null;
+        });
+
+        invalidateOnModification(this::invalidateQueryCaches);
+
+        final List<DSResponse> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); ++i) {
+            responses.add(DSResponse.success(null));
+        }
+        return responses;
+    }
+
+    @FunctionalInterface
+    protected interface StatementBinder<C> {
+        void bind(C ctx, PreparedStatement st, StatementArrays arrays) throws SQLException;
+    }
+
+    /**
+     * Executes statements of the consecutive contexts that produce the same SQL as a single JDBC batch,
+     * on any failure the connection is rolled back.
+     *
+     * @param zeroRowsMessage failure message if any statement does not affect any row,
+     *                        {@code null} if it is not a failure
+     */
+    protected <C extends AbstractSQLContext> void executeBatches(Connection conn, List<C> contexts,
+                                                                 Function<C, String> sqlOf,
+                                                                 StatementBinder<C> binder,
+                                                                 String zeroRowsMessage,
+                                                                 String failureMessage) throws SQLException {
+        int from = 0;
+        try {
+            while (from < contexts.size()) {
+                final String sql = sqlOf.apply(contexts.get(from));
+
+                int to = from + 1;
+                while (to < contexts.size() && sql.equals(sqlOf.apply(contexts.get(to)))) {
+                    ++to;
+                }
+
+                try (PreparedStatement st = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                     StatementArrays arrays = new StatementArrays()) {
+                    for (int i = from; i < to; ++i) {
+                        binder.bind(contexts.get(i), st, arrays);
+                        st.addBatch();
+                    }
+
+                    for (int qnt : st.executeBatch()) {
+                        if (qnt == 0 && zeroRowsMessage != null) {
+                            throw new RuntimeException(zeroRowsMessage);
+                        }
+                    }
+                }
+
+                from = to;
+            }
+        } catch (Throwable t) {
+            conn.rollback();
+            throw new ContextualRuntimeException(failureMessage, t, contexts.get(Math.min(from, contexts.size() - 1)));
+        }
+    }
+
+    private static void setUpdateStatementParameters(SQLUpdateContext<JDBCHandler> sqlUpdateContext, PreparedStatement st,
+                                                     StatementArrays arrays) throws SQLException {
+        int idx =0;
+
+        final List<IFilterData> l = sqlUpdateContext.getModifiedData();
+        for (IFilterData fd: l) {
+            idx = fd.setStatementParameters(idx, st, arrays);
+        }
+
+        final List<IFilterData> ll = sqlUpdateContext.getPkFieldData();
+        for (IFilterData fd: ll) {
+            idx = fd.setStatementParameters(idx, st, arrays);
+        }
+    }
+
+    private static void setRemoveStatementParameters(SQLRemoveContext<JDBCHandler> sqlRemoveContext, PreparedStatement st,
+                                                     StatementArrays arrays) throws SQLException {
+        int idx = 0;
+
+        final List<IFilterData> ll = sqlRemoveContext.getPkFieldData();
+        for (IFilterData fd: ll) {
+            idx = fd.setStatementParameters(idx, st, arrays);
+        }
+    }
+
+    /**
+     * Fetch request that returns the updated row, with the only fields that were provided within the request,
+     * except metadata.
+     */
+    private DSRequest createUpdatedFetchRequest(DSRequest request, SQLUpdateContext<JDBCHandler> sqlUpdateContext) {
+        final DSRequest fr = new DSRequest();
+        fr.setDataSource(request.getDataSource());
+        fr.setOperationType(DSRequest.OperationType.FETCH);
+        fr.setOperationId(request.getOperationId());
+        fr.setComponentId(request.getComponentId());
+        fr.wrapAndSetData(sqlUpdateContext.getPkValues());
+
+        fr.setOutputs(String.join(", ", getUpdatedOutputs(request)));
+        return fr;
+    }
+
+    private List<String> getUpdatedOutputs(DSRequest request) {
+        return request.getOldValues().keySet().stream()
+                .filter( s -> !s.startsWith(getMetaDataPrefix()))
+                .collect(Collectors.toList());
+    }
+
     @Override
     protected DSResponse handleAdd(DSRequest request) throws Exception {
+        if (request.getData() instanceof DSRequest.ListData records) {
+            return handleBatchAdd(request, records);
+        }
+
         if (! (request.getData() instanceof Map)) {
             throw new RuntimeException("Bad request: operation 'ADD', the map of modified and PK fields " +
                     "must be provided in the  'data' field.");
@@ -147,23 +357,26 @@ public class JDBCHandler extends AbstractDSHandler {
         final SQLAddContext<JDBCHandler> sqlAddContext = new SQLAddContext<>(this, request, operationBinding);
 
 
+        final List<DSField> capturedFields = getCapturedFields(request.getOperationId(),
+                getDataSource().getFields().stream()
+                    .map(DSField::getName)
+                    .collect(Collectors.toList())
+        );
+
         // --
         final DSResponse[] response = {null};
 
         final LinkedList<DSRequest.MapData> pks = new LinkedList<>();
 
-        policy.withConnectionDo(this.getDataSource().getDbName(), conn -> {
+        withConnectionDo(conn -> {
+            final List<Object[]> capturedRows;
 
-            try (PreparedStatement st = conn.prepareStatement(sqlAddContext.getAddSQL(),
-                    Statement.RETURN_GENERATED_KEYS)) {
+            try (PreparedStatement st = capturedFields == null ?
+                    conn.prepareStatement(sqlAddContext.getAddSQL(), Statement.RETURN_GENERATED_KEYS)
+                    : conn.prepareStatement(sqlAddContext.getAddSQL(), getColumnNames(capturedFields));
+                 StatementArrays arrays = new StatementArrays()) {
 
-                int idx = 0;
-                final List<IFilterData> l = sqlAddContext.getFilterData();
-                if (l != null && !l.isEmpty()) {
-                    for (IFilterData fd : l) {
-                        idx = fd.setStatementParameters(idx, st);
-                    }
-                }
+                setAddStatementParameters(sqlAddContext, st, arrays);
                 final int qnt = st.executeUpdate();
 
 
@@ -171,74 +384,29 @@ public class JDBCHandler extends AbstractDSHandler {
                     // There is no added/affected records
                     throw new RuntimeException("Zero rows were added.");
                 }
-                try (ResultSet generatedKeys = st.getGeneratedKeys()) {
-                    while (generatedKeys.next()) {
-                        ResultSetMetaData metaData = generatedKeys.getMetaData();
-                        DSRequest.MapData map = new DSRequest.MapData();
-                        for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                            String dbName = metaData.getColumnName(i);
-
-                            Object key = generatedKeys.getObject(i);
-                            this.getDataSource().getFields().stream()
-                                    .filter(it -> it.getDbName().equals(dbName))
-                                    .findFirst()
-                                    .ifPresent(dsField -> { map.put(dsField.getName(), key); });
-                        }
-                        if (!map.isEmpty()) {
-                            pks.add(map);
-                        }
-                    }
-                }
+                capturedRows = readGeneratedKeys(st, pks, capturedFields);
             } catch (Throwable t) {
                 conn.rollback();
                 throw new ContextualRuntimeException("SQL add query execution failed.", t, sqlAddContext);
             }
 
-            /*
-             * It is required to return modified row back to the client.
-             *
-             * This can be done either by comprehensive fetch from DB
-             *
-             * The first option is more durable, since it will handle all side effects like calculated fields? operation bindings
-             * with respect of security rules tat can be affected by side effects.
-             */
-
-
-            final DSRequest fr = new DSRequest();
-            fr.setDataSource(request.getDataSource());
-            fr.setOperationType(DSRequest.OperationType.FETCH);
-            fr.setOperationId(request.getOperationId());
-            fr.setComponentId(request.getComponentId());
-            fr.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
-
-            List<DSResponse> responses = new LinkedList<>();
-            for (DSRequest.MapData data : pks) {
-                fr.setData(data);
-                final DSResponse r = doHandleFetch(fr, conn, false);
-                if (r.getStatus() == DSResponse.STATUS_SUCCESS) {
-                    responses.add(r);
-                } else {
-                    conn.rollback();
-                    return null;
-                }
-
+            if (capturedRows != null && capturedRows.size() == 1) {
+                conn.commit();
+                response[0] = DSResponse.success(DSResponseDataContainer.createRaw(capturedFields, capturedRows));
+                return null;
             }
 
-            if (responses.isEmpty()) {
+            response[0] = fetchAdded(request, conn, pks);
+            if (response[0] == null) {
                 conn.rollback();
-                return null;
+            } else {
+                conn.commit();
             }
-
-            conn.commit();
-
-            Iterable<DSField> fields = responses.get(0).getData().getRawDataResponse().getFields();
-            List<Object[]> data = new LinkedList<>();
-            responses.forEach(it ->
-                    data.add(it.getData().getRawDataResponse().getData().iterator().next()));
-            response[0] = DSResponse.success(DSResponseDataContainer.createRaw(fields, data));
             return null;
         });
 
+        invalidateOnModification(this::invalidateQueryCaches);
+
         final DSResponse fetchRespone = response[0];
 
         if (fetchRespone.getStatus() != DSResponse.STATUS_SUCCESS) {
@@ -248,140 +416,581 @@ public class JDBCHandler extends AbstractDSHandler {
         return DSResponse.success(fetchRespone.getData());
     }
 
-    @Override
-    protected DSResponse handleRemove(DSRequest request) throws Exception {
-        if (! (request.getData() instanceof Map)) {
-            throw new RuntimeException("Bad request: operation 'REMOVE', the map of modified and PK fields " +
+    /**
+     * Adds all the provided records within a single transaction.
+     *
+     * Consecutive records that produce the same INSERT statement (provide the same set of fields) are sent
+     * to the database as a single JDBC batch, therefore bulk import does not require a round trip per record.
+     * Added records are returned back in the order they were provided, see {@link #fetchAdded}.
+     */
+    protected DSResponse handleBatchAdd(DSRequest request, DSRequest.ListData records) throws Exception {
+        if (records.isEmpty()) {
+            throw new RuntimeException("Bad request: operation 'ADD', at least one record " +
                     "must be provided in the  'data' field.");
         }
 
         final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, request.getOperationId());
-        final SQLRemoveContext<JDBCHandler> sqlRemoveContext = new SQLRemoveContext<>(this, request, operationBinding);
+        final List<SQLAddContext<JDBCHandler>> sqlAddContexts = new ArrayList<>(records.size());
+
+        for (Map<String, Object> r : records) {
+            final DSRequest ar = new DSRequest();
+            ar.setDataSource(request.getDataSource());
+            ar.setOperationType(DSRequest.OperationType.ADD);
+            ar.setOperationId(request.getOperationId());
+            ar.setComponentId(request.getComponentId());
+            ar.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+            ar.wrapAndSetData(r);
+
+            sqlAddContexts.add(new SQLAddContext<>(this, ar, operationBinding));
+        }
 
-        policy.withConnectionDo(this.getDataSource().getDbName(), conn -> {
+        // --
+        final DSResponse[] response = {null};
 
-            try (PreparedStatement st = conn.prepareStatement(sqlRemoveContext.getDeleteSQL())) {
+        withConnectionDo(conn -> {
+            final List<DSRequest.MapData> pks = new ArrayList<>(records.size());
 
-                int idx = 0;
+            int from = 0;
+            try {
+                while (from < sqlAddContexts.size()) {
+                    final String addSQL = sqlAddContexts.get(from).getAddSQL();
 
-                final List<IFilterData> ll = sqlRemoveContext.getPkFieldData();
-                for (IFilterData fd: ll) {
-                    idx = fd.setStatementParameters(idx, st);
-                }
+                    int to = from + 1;
+                    while (to < sqlAddContexts.size() && addSQL.equals(sqlAddContexts.get(to).getAddSQL())) {
+                        ++to;
+                    }
 
-                final int qnt = st.executeUpdate();
+                    try (PreparedStatement st = conn.prepareStatement(addSQL, Statement.RETURN_GENERATED_KEYS);
+                         StatementArrays arrays = new StatementArrays()) {
+                        for (int i = from; i < to; ++i) {
+                            setAddStatementParameters(sqlAddContexts.get(i), st, arrays);
+                            st.addBatch();
+                        }
 
-                conn.commit();
+                        for (int qnt : st.executeBatch()) {
+                            if (qnt == 0) {
+                                // There is no added/affected records
+                                throw new RuntimeException("Zero rows were added.");
+                            }
+                        }
+
+                        final List<DSRequest.MapData> generated = new ArrayList<>(to - from);
+                        readGeneratedKeys(st, generated, null);
+
+                        if (generated.size() == to - from) {
+                            pks.addAll(generated);
+                        } else {
+                            // Not all the drivers return generated keys for a batch, PKs must be provided then
+                            for (int i = from; i < to; ++i) {
+                                pks.add(getProvidedPKs(records.get(i)));
+                            }
+                        }
+                    }
 
+                    from = to;
+                }
             } catch (Throwable t) {
                 conn.rollback();
-                throw new ContextualRuntimeException("SQL remove query execution failed.", t, sqlRemoveContext);
+                throw new ContextualRuntimeException("SQL batch add query execution failed.", t, sqlAddContexts.get(from));
+            }
+
+            response[0] = fetchAdded(request, conn, pks);
+            if (response[0] == null) {
+                conn.rollback();
+            } else {
+                conn.commit();
             }
             return null;
         });
 
-        return DSResponse.success(null);
-    }
-
+        invalidateOnModification(this::invalidateQueryCaches);
 
-    private static class StickyDBDSRequest extends DSRequest {
-        private final Connection connection;
+        final DSResponse fetchRespone = response[0];
 
-        public StickyDBDSRequest(Connection connection) {
-            this.connection = connection;
+        if (fetchRespone.getStatus() != DSResponse.STATUS_SUCCESS) {
+            return fetchRespone;
         }
 
-        public Connection connection() {
-            return connection;
+        return DSResponse.success(fetchRespone.getData());
+    }
+
+    private static void setAddStatementParameters(SQLAddContext<JDBCHandler> sqlAddContext, PreparedStatement st,
+                                                  StatementArrays arrays) throws SQLException {
+        int idx = 0;
+        final List<IFilterData> l = sqlAddContext.getFilterData();
+        if (l != null && !l.isEmpty()) {
+            for (IFilterData fd : l) {
+                idx = fd.setStatementParameters(idx, st, arrays);
+            }
         }
     }
 
-    private static class EntitySubFetch {
-        private static final Logger logger = LoggerFactory.getLogger(EntitySubFetch.class);
+    /**
+     * @param capturedFields fields requested as generated columns, {@code null} if only generated keys were requested
+     * @return captured rows, or {@code null} if the columns were not captured, since they were not requested
+     *          or the driver returned only some of them
+     */
+    private List<Object[]> readGeneratedKeys(Statement st, List<DSRequest.MapData> pks, List<DSField> capturedFields) throws SQLException {
+        List<Object[]> capturedRows = capturedFields == null ? null : new LinkedList<>();
 
-        private final Map<String, Object> primaryKeys;
-        private final DSField dsf;
-        private final ForeignKeyRelation foreignKeyRelation;
-        private final List<DSField> requestedFields;
-        private final IDSLookup idsRegistry;
-        private final boolean useSimpleCriteria;
-        private final boolean fetchOnlyPKs;
+        try (ResultSet generatedKeys = st.getGeneratedKeys()) {
+            while (generatedKeys.next()) {
+                ResultSetMetaData metaData = generatedKeys.getMetaData();
 
-        public EntitySubFetch(IDSLookup idsRegistry, DSField dsf, ForeignKeyRelation foreignKeyRelation,
-                              List<DSField> requestedFields, Map<String, Object> primaryKeys,
-                              boolean useSimpleCriteria) {
-            this.idsRegistry = idsRegistry;
-            this.primaryKeys = primaryKeys;
-            this.dsf = dsf;
-            this.foreignKeyRelation = foreignKeyRelation;
+                if (capturedRows != null && metaData.getColumnCount() != capturedFields.size()) {
+                    capturedRows = null;
+                }
 
-            if (requestedFields != null && !requestedFields.isEmpty()) {
-                this.requestedFields = requestedFields;
-                fetchOnlyPKs = false;
-            } else {
-                //this.requestedFields = foreignKeyRelation.foreign().dataSource().getFields();
-                this.requestedFields = null;
-                /*
-                 * If fields are not requested - fetch only PKs
-                 */
-                fetchOnlyPKs = true;
-            }
+                final Object[] row = capturedRows == null ? null : new Object[capturedFields.size()];
 
-            this.useSimpleCriteria = useSimpleCriteria;
-        }
+                DSRequest.MapData map = new DSRequest.MapData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    String dbName = metaData.getColumnName(i);
 
-        public Map<String, Object> getPrimaryKeys() {
-            return primaryKeys;
+                    final Object key;
+                    if (row != null) {
+                        final DSField dsf = capturedFields.get(i - 1);
+                        key = columnReaderFor(dsf, metaData.getColumnType(i)).read(generatedKeys, i);
+                        row[i - 1] = key;
+
+                        if (!dsf.isPrimaryKey()) {
+                            continue;
+                        }
+                    } else {
+                        key = generatedKeys.getObject(i);
+                    }
+
+                    this.getDataSource().getFields().stream()
+                            .filter(it -> it.getDbName().equalsIgnoreCase(dbName))
+                            .findFirst()
+                            .ifPresent(dsField -> { map.put(dsField.getName(), key); });
+                }
+                if (!map.isEmpty()) {
+                    pks.add(map);
+                }
+
+                if (capturedRows != null) {
+                    capturedRows.add(row);
+                }
+            }
         }
 
-        public DSField getDsf() {
-            return dsf;
+        return capturedRows;
+    }
+
+    /**
+     * Determines whether the modified row can be returned by the modification statement itself,
+     * see {@link DataSource#isCaptureModifiedRows()}.
+     *
+     * @param outputs names of the fields that must be returned
+     * @return fields in the order of the outputs or {@code null} if the subsequent fetch is required
+     */
+    protected List<DSField> getCapturedFields(String operationId, List<String> outputs) {
+        if (!getDataSource().isCaptureModifiedRows()
+                || !getDialect().supportsReturning()
+                || outputs.isEmpty()
+                || isRowPostProcessingRequired()) {
+            return null;
         }
 
-        public ForeignKeyRelation getForeignKeyRelation() {
-            return foreignKeyRelation;
+        final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, operationId);
+        if (operationBinding != null
+                && (StringUtils.isNotBlank(operationBinding.getCustomSQL())
+                    || StringUtils.isNotBlank(operationBinding.getTableClause())
+                    || StringUtils.isNotBlank(operationBinding.getWhereClause()))) {
+            return null;
         }
 
-        public List<DSField> getRequestedFields() {
-            return requestedFields;
+        final List<DSField> fields = new ArrayList<>(outputs.size());
+        for (String fn : outputs) {
+            final DSField dsf = getField(fn);
+
+            if (dsf == null
+                    || dsf.isIncludeField()
+                    || dsf.isCustomSQL()
+                    || dsf.isMultiple()
+                    || DSField.FieldType.ENTITY.equals(dsf.getType())
+                    || isSubEntityFetchRequired(dsf)
+                    || StringUtils.isBlank(dsf.getDbName())) {
+                return null;
+            }
+
+            fields.add(dsf);
         }
+        return fields;
+    }
 
-        public static EntitySubFetch create(boolean useSimpleCriteria, IDSLookup idsRegistry,
-                                            DataSource dataSource, DSField dsf, List<DSField> requestedFields,
-                                            Map<String, Object> rowPkValues) {
-            final ForeignKeyRelation foreignKeyRelation;
+    private static String[] getColumnNames(List<DSField> fields) {
+        return fields.stream()
+                .map(DSField::getDbName)
+                .toArray(String[]::new);
+    }
 
-            if (dsf.getIncludeFrom() != null
-                    && !dsf.getIncludeFrom().isBlank()) {
-                /*
-                 * Use 'includeFrom' if it is provided
-                 */
-                final ImportFromRelation importFromRelation = RelationSupport.describeImportFrom(idsRegistry, dataSource, dsf);
-                foreignKeyRelation = importFromRelation.toForeignDisplayKeyRelation();
-            } else {
-                foreignKeyRelation = RelationSupport.describeForeignKey(idsRegistry, dataSource, dsf);
+    private DSRequest.MapData getProvidedPKs(Map<String, Object> record) {
+        final DSRequest.MapData map = new DSRequest.MapData();
+
+        for (DSField pk : getDataSource().getPKFields()) {
+            final Object v = record.get(pk.getName());
+            if (v == null) {
+                throw new RuntimeException("JDBC driver does not return generated keys for the batch, " +
+                        "PK field '%s' must be provided in each record.".formatted(pk.getName()));
             }
+            map.put(pk.getName(), v);
+        }
+        return map;
+    }
 
-            return new EntitySubFetch(idsRegistry, dsf, foreignKeyRelation, requestedFields,
-                    rowPkValues, useSimpleCriteria);
+    /**
+     * It is required to return added rows back to the client.
+     *
+     * This is done by comprehensive fetch from DB, since it will handle all side effects like calculated fields?
+     * operation bindings with respect of security rules tat can be affected by side effects.
+     *
+     * Rows identified by a single-field PK are fetched by a single IN_SET fetch if the handler supports advanced
+     * criteria, otherwise - one fetch per row.
+     *
+     * @return response or {@code null} if any of the added rows can't be fetched
+     */
+    private DSResponse fetchAdded(DSRequest request, Connection conn, List<DSRequest.MapData> pks) throws Exception {
+        if (pks.isEmpty()) {
+            return null;
         }
 
-        protected DSResponse fetchForeignEntity(Connection connection, ForeignKeyRelation foreignKeyRelation, String outputs, IDSRequestData criteria) throws Exception {
-            logger.debug("Performing foreign fetch for relation '%s' with criteria: %s"
-                    .formatted(
-                            foreignKeyRelation,
-                            criteria
-                    )
-            );
+        final DSRequest fr = new DSRequest();
+        fr.setDataSource(request.getDataSource());
+        fr.setOperationType(DSRequest.OperationType.FETCH);
+        fr.setOperationId(request.getOperationId());
+        fr.setComponentId(request.getComponentId());
+        fr.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
 
-            final DSHandler dsHandler = this.idsRegistry.getDataSourceHandlerById(foreignKeyRelation.foreign().dataSourceId());
-            if (dsHandler == null) {
-                throw new RuntimeException( "Foreign data source handler with id '%s' is not registered."
-                        .formatted(foreignKeyRelation.foreign().dataSourceId())
-                );
+        final Set<DSField> pkFields = getDataSource().getPKFields();
+        if (pks.size() > 1 && pkFields.size() == 1 && allowAdvancedCriteria()) {
+            final String pkName = pkFields.iterator().next().getName();
+
+            final List<Object> keys = new ArrayList<>(pks.size());
+            for (DSRequest.MapData pk : pks) {
+                keys.add(pk.get(pkName));
             }
 
-            /*
+            fr.setData(EntitySubFetch.createInSetCriteria(pkName, keys));
+            final DSResponse r = doHandleFetch(fr, conn, false);
+            if (r.getStatus() != DSResponse.STATUS_SUCCESS) {
+                return null;
+            }
+
+            return orderByKeys(r, pkName, keys);
+        }
+
+        List<DSResponse> responses = new LinkedList<>();
+        for (DSRequest.MapData data : pks) {
+            fr.setData(data);
+            final DSResponse r = doHandleFetch(fr, conn, false);
+            if (r.getStatus() == DSResponse.STATUS_SUCCESS) {
+                responses.add(r);
+            } else {
+                return null;
+            }
+        }
+
+        Iterable<DSField> fields = responses.get(0).getData().getRawDataResponse().getFields();
+        List<Object[]> data = new LinkedList<>();
+        responses.forEach(it ->
+                data.add(it.getData().getRawDataResponse().getData().iterator().next()));
+        return DSResponse.success(DSResponseDataContainer.createRaw(fields, data));
+    }
+
+    /**
+     * Re-orders fetched rows in the order of the provided keys.
+     *
+     * @return response or {@code null} if any of the keys was not fetched
+     */
+    private static DSResponse orderByKeys(DSResponse response, String pkName, List<Object> keys) {
+        final DSResponseDataContainer.RawDataResponse raw = response.getData().getRawDataResponse();
+
+        int pkIdx = -1;
+        int idx = 0;
+        for (DSField f : raw.getFields()) {
+            if (f.getName().equals(pkName)) {
+                pkIdx = idx;
+                break;
+            }
+            ++idx;
+        }
+
+        final List<Object[]> data = new ArrayList<>(keys.size());
+
+        if (pkIdx < 0) {
+            // PK is not in the outputs, the order can't be restored
+            raw.getData().forEach(data::add);
+        } else {
+            final Map<Object, Object[]> rowsByKey = new HashMap<>();
+            for (Object[] row : raw.getData()) {
+                rowsByKey.put(EntitySubFetch.normalizeKey(row[pkIdx]), row);
+            }
+
+            for (Object key : keys) {
+                final Object[] row = rowsByKey.get(EntitySubFetch.normalizeKey(key));
+                if (row != null) {
+                    data.add(row);
+                }
+            }
+        }
+
+        if (data.size() != keys.size()) {
+            return null;
+        }
+
+        return DSResponse.success(DSResponseDataContainer.createRaw(raw.getFields(), data));
+    }
+
+    @Override
+    protected DSResponse handleRemove(DSRequest request) throws Exception {
+        if (! (request.getData() instanceof Map)) {
+            throw new RuntimeException("Bad request: operation 'REMOVE', the map of modified and PK fields " +
+                    "must be provided in the  'data' field.");
+        }
+
+        final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, request.getOperationId());
+        final SQLRemoveContext<JDBCHandler> sqlRemoveContext = new SQLRemoveContext<>(this, request, operationBinding);
+
+        withConnectionDo(conn -> {
+
+            try (PreparedStatement st = conn.prepareStatement(sqlRemoveContext.getDeleteSQL());
+                 StatementArrays arrays = new StatementArrays()) {
+                setRemoveStatementParameters(sqlRemoveContext, st, arrays);
+
+                final int qnt = st.executeUpdate();
+
+                conn.commit();
+
+            } catch (Throwable t) {
+                conn.rollback();
+                throw new ContextualRuntimeException("SQL remove query execution failed.", t, sqlRemoveContext);
+            }
+            return null;
+        });
+
+        invalidateOnModification(this::invalidateQueryCaches);
+
+        return DSResponse.success(null);
+    }
+
+
+    /**
+     * Performs the callback with the connection of the current {@link JDBCTransaction} if it is bound
+     * to the same database, otherwise - with a connection provided by the policy.
+     */
+    protected void withConnectionDo(Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+        final JDBCTransaction tx = JDBCTransaction.current();
+
+        if (tx != null && tx.isBoundTo(getDataSource().getDbName())) {
+            callback.apply(tx.connection());
+        } else {
+            policy.withConnectionDo(getDataSource().getDbName(), callback);
+        }
+    }
+
+    public SqlDialect getDialect() {
+        final SqlDialect dialect = policy.getDialect(getDataSource().getDbName());
+        return dialect == null ? SqlDialect.GENERIC : dialect;
+    }
+
+    public DataSource.InSetStrategy getInSetStrategy() {
+        final DataSource.InSetStrategy strategy = getDataSource().getInSetStrategy();
+        return strategy == null ? getDialect().getDefaultInSetStrategy() : strategy;
+    }
+
+    /**
+     * IN predicate template with a single {@code %s} placeholder for the column, and the values to bind.
+     *
+     * @param arrayElementType SQL type of the array elements if all the values are bound as a single array parameter,
+     *                         otherwise {@code null} and each value is bound as a separate parameter
+     */
+    protected record InSetBinding(String sqlTemplate, List<Object> values, String arrayElementType) {
+        public String sql(String column) {
+            return sqlTemplate.formatted(column);
+        }
+
+        public int setStatementParameters(int idx, PreparedStatement st, StatementArrays arrays) throws SQLException {
+            if (arrayElementType != null) {
+                st.setArray(++idx, arrays.create(st, arrayElementType, values.toArray()));
+                return idx;
+            }
+
+            for (Object v : values) {
+                st.setObject(++idx, v);
+            }
+            return idx;
+        }
+    }
+
+    /**
+     * Binds IN_SET values according to the {@link #getInSetStrategy()}, strategies other than
+     * {@link DataSource.InSetStrategy#EXPANDED} produce the same SQL for the lists of different sizes,
+     * therefore the statement and the query plan can be re-used.
+     *
+     * @param fieldType type of the compared column, it determines the array element type
+     */
+    protected InSetBinding bindInSet(DSField.FieldType fieldType, Collection<?> values) {
+        final List<Object> effectiveValues = new ArrayList<>(values);
+
+        return switch (getInSetStrategy()) {
+            case ARRAY -> new InSetBinding(getDialect().inArray(), effectiveValues,
+                    getDialect().arrayElementType(fieldType));
+
+            case PADDED -> {
+                final List<Object> padded = padInSetValues(effectiveValues);
+                yield new InSetBinding(formatInSet(padded.size()), padded, null);
+            }
+
+            case EXPANDED -> new InSetBinding(formatInSet(effectiveValues.size()), effectiveValues, null);
+        };
+    }
+
+    /**
+     * Pads values with the last value up to the next power of two, or up to the multiple of
+     * {@link #MAX_IN_SET_BUCKET} for the long lists.
+     */
+    protected static List<Object> padInSetValues(List<Object> values) {
+        if (values.isEmpty()) {
+            return values;
+        }
+
+        final int size;
+        if (values.size() >= MAX_IN_SET_BUCKET) {
+            size = (values.size() + MAX_IN_SET_BUCKET - 1) / MAX_IN_SET_BUCKET * MAX_IN_SET_BUCKET;
+        } else {
+            size = Integer.highestOneBit(values.size() - 1) << 1;
+        }
+
+        final List<Object> padded = new ArrayList<>(Math.max(size, 1));
+        padded.addAll(values);
+        while (padded.size() < size) {
+            padded.add(values.get(values.size() - 1));
+        }
+        return padded;
+    }
+
+    /**
+     * @return IN predicate template, lists longer than {@link #MAX_IN_SET_BUCKET} are split into several IN lists
+     */
+    protected static String formatInSet(int size) {
+        if (size == 0) {
+            return "%s IN (NULL)";
+        }
+
+        if (size <= MAX_IN_SET_BUCKET) {
+            return "%s IN (" + String.join(",", Collections.nCopies(size, "?")) + ")";
+        }
+
+        final List<String> lists = new ArrayList<>();
+        for (int i = 0; i < size; i += MAX_IN_SET_BUCKET) {
+            lists.add("%1$s IN (" + String.join(",", Collections.nCopies(Math.min(MAX_IN_SET_BUCKET, size - i), "?")) + ")");
+        }
+        return "(" + String.join(" OR ", lists) + ")";
+    }
+
+    /**
+     * Request is bound to the connection if it must be handled on the provided connection only,
+     * any additional connection will not see the uncommitted changes.
+     */
+    private static boolean isConnectionBound(DSRequest request) {
+        return request instanceof StickyDBDSRequest || JDBCTransaction.current() != null;
+    }
+
+    private static class StickyDBDSRequest extends DSRequest {
+        private final Connection connection;
+
+        public StickyDBDSRequest(Connection connection) {
+            this.connection = connection;
+        }
+
+        public Connection connection() {
+            return connection;
+        }
+    }
+
+    private static class EntitySubFetch {
+        private static final Logger logger = LoggerFactory.getLogger(EntitySubFetch.class);
+
+        private final Map<String, Object> primaryKeys;
+        private final DSField dsf;
+        private final ForeignKeyRelation foreignKeyRelation;
+        private final List<DSField> requestedFields;
+        private final JDBCHandler handler;
+        private final IDSLookup idsRegistry;
+        private final boolean useSimpleCriteria;
+        private final boolean fetchOnlyPKs;
+
+        public EntitySubFetch(JDBCHandler handler, DSField dsf, ForeignKeyRelation foreignKeyRelation,
+                              List<DSField> requestedFields, Map<String, Object> primaryKeys,
+                              boolean useSimpleCriteria) {
+            this.handler = handler;
+            this.idsRegistry = handler::getDataSourceHandlerById;
+            this.primaryKeys = primaryKeys;
+            this.dsf = dsf;
+            this.foreignKeyRelation = foreignKeyRelation;
+
+            if (requestedFields != null && !requestedFields.isEmpty()) {
+                this.requestedFields = requestedFields;
+                fetchOnlyPKs = false;
+            } else {
+                //this.requestedFields = foreignKeyRelation.foreign().dataSource().getFields();
+                this.requestedFields = null;
+                /*
+                 * If fields are not requested - fetch only PKs
+                 */
+                fetchOnlyPKs = true;
+            }
+
+            this.useSimpleCriteria = useSimpleCriteria;
+        }
+
+        public Map<String, Object> getPrimaryKeys() {
+            return primaryKeys;
+        }
+
+        public DSField getDsf() {
+            return dsf;
+        }
+
+        public ForeignKeyRelation getForeignKeyRelation() {
+            return foreignKeyRelation;
+        }
+
+        public List<DSField> getRequestedFields() {
+            return requestedFields;
+        }
+
+        public static ForeignKeyRelation describeRelation(IDSLookup idsRegistry, DataSource dataSource, DSField dsf) {
+            if (dsf.getIncludeFrom() != null
+                    && !dsf.getIncludeFrom().isBlank()) {
+                /*
+                 * Use 'includeFrom' if it is provided
+                 */
+                final ImportFromRelation importFromRelation = RelationSupport.describeImportFrom(idsRegistry, dataSource, dsf);
+                return importFromRelation.toForeignDisplayKeyRelation();
+            } else {
+                return RelationSupport.describeForeignKey(idsRegistry, dataSource, dsf);
+            }
+        }
+
+        protected DSResponse fetchForeignEntity(Connection connection, ForeignKeyRelation foreignKeyRelation, String outputs, IDSRequestData criteria) throws Exception {
+            logger.debug("Performing foreign fetch for relation '%s' with criteria: %s"
+                    .formatted(
+                            foreignKeyRelation,
+                            criteria
+                    )
+            );
+
+            final DSHandler dsHandler = this.idsRegistry.getDataSourceHandlerById(foreignKeyRelation.foreign().dataSourceId());
+            if (dsHandler == null) {
+                throw new RuntimeException( "Foreign data source handler with id '%s' is not registered."
+                        .formatted(foreignKeyRelation.foreign().dataSourceId())
+                );
+            }
+
+            /*
              * Create sticky request to re-use the same DB connection
              */
             final DSRequest fetchEntity = new StickyDBDSRequest(connection);
@@ -390,6 +999,15 @@ public class JDBCHandler extends AbstractDSHandler {
             fetchEntity.setData(criteria);
             fetchEntity.setOutputs(outputs);
 
+            return dsHandler.handle(fetchEntity);
+        }
+
+        /**
+         * Determines the comma separated list of foreign fields that must be fetched.
+         */
+        protected String getEntityOutputs() {
+            final Set<DSField> pkFields = getForeignKeyRelation().foreign().dataSource().getPKFields();
+
             /*
              * if type is not provided it indicates that the only PKs should be fetched.
              *
@@ -405,223 +1023,1174 @@ public class JDBCHandler extends AbstractDSHandler {
                         )
                 );
 
-                final DataSource foreignDS = foreignKeyRelation.foreign().dataSource();
+                return pkFields.stream()
+                        .map(DSField::getName)
+                        .collect(Collectors.joining(", "));
+            }
+
+            final Collection<DSField> effectiveFields = fetchOnlyPKs ? pkFields : getRequestedFields();
+            return effectiveFields.stream()
+                    .map(DSField::getName)
+                    .collect(Collectors.joining(", "));
+        }
+
+        /**
+         * Retrieves secondary ids from the join table for all the provided source PK values at once.
+         *
+         * Source PK values are bound according to the IN_SET strategy of the handler.
+         *
+         * @return secondary ids grouped by the normalized source PK value,
+         * source PKs that do not have related records are not included
+         */
+        protected Map<Object, Set<Object>> retrieveIdsFromDb(Connection connection, Collection<Object> srcPkValues) throws SQLException {
+            final DSField.JoinTableDescr jtd = getDsf().getJoinTable();
+            final Map<Object, Set<Object>> values = new HashMap<>();
+
+            final List<Object> effectivePkValues = srcPkValues.stream()
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .collect(Collectors.toList());
+
+            if (effectivePkValues.isEmpty()) {
+                return values;
+            }
+
+            final DSField srcPk = foreignKeyRelation.dataSource().getNonCompositePK();
+            final InSetBinding inSet = handler.bindInSet(srcPk.getType(), effectivePkValues);
+
+            try (PreparedStatement st = connection.prepareStatement(
+                    "SELECT %s, %s FROM %s WHERE %s"
+                            .formatted(
+                                    jtd.getSourceColumn(),
+                                    jtd.getDestColumn(),
+                                    jtd.getTableName(),
+                                    inSet.sql(jtd.getSourceColumn())
+                            ),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 StatementArrays arrays = new StatementArrays()) {
+
+                inSet.setStatementParameters(0, st, arrays);
+
+                try (ResultSet rs = st.executeQuery()) {
+                    while (rs.next()) {
+                        final Object src = rs.getObject(1);
+                        final Object dst = rs.getObject(2);
+                        assert dst != null;
+
+                        values.computeIfAbsent(normalizeKey(src), k -> new LinkedHashSet<>())
+                                .add(dst);
+                    }
+                }
+            }
+
+            return values;
+        }
+
+        protected Object getSourcePkValue() {
+            if (getPrimaryKeys().size() > 1) {
+                throw new IllegalStateException("Composite PKs is not supported");
+            }
+
+            final DSField srcPk = foreignKeyRelation.dataSource().getNonCompositePK();
+            return getPrimaryKeys().get(srcPk.getName());
+        }
+
+        /**
+         * Converts secondary ids retrieved from the join table into the PK values of the foreign data source.
+         *
+         * @return {@code null} if there is no related records, no needs to perform actual fetch in that case
+         */
+        protected Map<String, Object> toEffectivePKs(Set<Object> ids) {
+            if (ids == null || ids.isEmpty()) {
+                return null;
+            }
+
+            final DSField dstPk = foreignKeyRelation.foreign().dataSource().getNonCompositePK();
+            return Map.of(dstPk.getName(), ids);
+        }
+
+        /**
+         * Determines PK/FK values that must be used to fetch related foreign entities.
+         *
+         * @return {@code null} if there is no related records at all
+         */
+        protected Map<String, Object> resolveEffectivePKs(Connection connection) throws SQLException {
+            if (getDsf().getJoinTable() != null) {
+                /*
+                 * If join table is provided - it indicates that the relation is Many to Many.
+                 * And to Handle Many To Many relation it is required to retrieve correspondent
+                 * secondary ids from join table
+                 */
+
+                final Object srcPkValue = getSourcePkValue();
+                final Map<Object, Set<Object>> ids = retrieveIdsFromDb(connection, Collections.singletonList(srcPkValue));
+                return toEffectivePKs(ids.get(normalizeKey(srcPkValue)));
+            }
+
+            final DSField pkField = foreignKeyRelation.dataSource().getNonCompositePK();
+            final Object v = getPrimaryKeys().get(pkField.getName());
+
+            if (v == null) {
+                // This will indicate serious error in the request handling logic, if any
+                throw new IllegalStateException("PK/FK value can not be null, but actually it is null: '%s.%s'."
+                                .formatted(
+                                        foreignKeyRelation.dataSource().getId(),
+                                        dsf.getName()
+                                )
+                );
+            }
+
+            return Map.of(foreignKeyRelation.foreign().fieldName(), v );
+        }
+
+        /**
+         * Foreign fetch is not required if the only PKs were requested and all of them are already known.
+         */
+        protected boolean isFetchRequired(Map<String, Object> effectivePKs) {
+            if (!fetchOnlyPKs) {
+                return true;
+            }
+
+            final Set<DSField> pkFields = getForeignKeyRelation().foreign().dataSource().getPKFields();
+            for (DSField pkf: pkFields) {
+                if (!effectivePKs.containsKey(pkf.getName())) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        protected DSResponse createResponseWithoutFetch(Map<String, Object> effectivePKs) {
+            if (effectivePKs.size() > 1) {
+                throw new IllegalStateException("Composite PKs is not supported.");
+            }
+
+            final Set<DSField> pkFields = getForeignKeyRelation().foreign().dataSource().getPKFields();
+            final Map.Entry<String, Object> e = effectivePKs.entrySet().iterator().next();
+
+            // Not sure that it will work with composite PKs
+            assert pkFields.size() <= 1;
+
+            if (e.getValue() instanceof Collection c) {
+                final int size = c.size();
+                final List<Object[]> cc = (List)c.stream()
+                        .map( v -> new Object[]{v} )
+                        .collect(Collectors.toList());
+
+                return DSResponse.successFetch(0, size-1, size, pkFields, cc);
+            } else {
+                return DSResponse.successFetch(0, 1, 1, pkFields, (List)List.of(new Object[] {e.getValue()}));
+            }
+        }
+
+        /**
+         * Batch fetch requires IN_SET support from the foreign handler.
+         */
+        protected boolean isBatchFetchSupported() {
+            final DSHandler dsHandler = this.idsRegistry.getDataSourceHandlerById(foreignKeyRelation.foreign().dataSourceId());
+            return dsHandler != null && dsHandler.allowAdvancedCriteria();
+        }
+
+        protected RuntimeException fetchFailed(Throwable t, Object filters) {
+            final String message = "Subsequent entity fetch failed: %s, filters: %s"
+                    .formatted(
+                            foreignKeyRelation,
+                            filters
+                    );
+
+            logger.error(message, t);
+            return new RuntimeException(message, t);
+        }
+
+        protected String formatPrimaryKeys() {
+            return getPrimaryKeys().entrySet().stream()
+                    .map( e -> "'%s': %s"
+                            .formatted(
+                                    e.getKey(),
+                                    e.getValue()
+                            )
+                    )
+                    .collect(Collectors.joining(","));
+        }
+
+        public Object fetch(Connection connection) {
+            final Map<String, Object> effectivePKs;
+            try {
+                effectivePKs = resolveEffectivePKs(connection);
+            } catch ( Throwable t) {
+                throw fetchFailed(t, formatPrimaryKeys());
+            }
+
+            return fetch(connection, effectivePKs);
+        }
+
+        protected Object fetch(Connection connection, Map<String, Object> effectivePKs) {
+
+            final DSResponse response;
+            try {
+                if (effectivePKs == null) {
+                    /*
+                     * It can happen when Many2Many does not have related records
+                     */
+                    return null;
+                }
+
+                if (!isFetchRequired(effectivePKs)) {
+                    /*
+                     * No needs to fetch PKs
+                     */
+                    response = createResponseWithoutFetch(effectivePKs);
+                } else {
+
+                    // -- create Criteria to fetch by PK
+                    if (primaryKeys.size() > 1) {
+                        throw new IllegalStateException("Composite PKs is not supported");
+                    }
+
+                    final IDSRequestData filterData;
+
+                    if (useSimpleCriteria) {
+                        final DSRequest.MapData md = new DSRequest.MapData();
+                        md.putAll(effectivePKs);
+                        filterData = md;
+                    } else {
+                        final Map.Entry<String, Object> e = effectivePKs.entrySet().iterator().next();
+                        filterData = createInSetCriteria(e.getKey(), e.getValue());
+                    }
+
+                    // --
+                    response = this.fetchForeignEntity(connection, getForeignKeyRelation(), getEntityOutputs(), filterData);
+                }
+                assert response != null;
+            } catch ( Throwable t) {
+                throw fetchFailed(t, formatPrimaryKeys());
+            }
+
+            if (0 != response.getStatus()) {
+                throw new RuntimeException("Subsequent entity fetch failed: %s, %s, filters: %s"
+                        .formatted(
+                                response.getData().getGeneralFailureMessage(),
+                                foreignKeyRelation,
+                                formatPrimaryKeys()
+                        )
+                );
+            }
+
+            Object o = response.getData().getRawDataResponse();
+            assert o != null;
+
+            return o;
+        }
+
+        protected static AdvancedCriteria createInSetCriteria(String fieldName, Object value) {
+            final AdvancedCriteria ac = new AdvancedCriteria();
+            final Criteria c = new Criteria();
+
+            c.setOperator(OperatorId.IN_SET);
+            c.setValue(value);
+            c.setFieldName(fieldName);
+
+            ac.setCriteria(List.of(c));
+            return ac;
+        }
+
+        /**
+         * Values of the same key can be returned by JDBC driver as instances of different classes,
+         * like Integer for PK and Long for FK column, therefore integral numbers are compared as longs.
+         */
+        protected static Object normalizeKey(Object v) {
+            if (v instanceof Integer
+                    || v instanceof Long
+                    || v instanceof Short
+                    || v instanceof Byte) {
+                return ((Number) v).longValue();
+            }
+            return v;
+        }
+
+        /**
+         * Resolves all the placeholders of the same field by the single foreign IN_SET fetch,
+         * instead of performing one foreign fetch per row, and distributes fetched records back
+         * into the correspondent rows.
+         *
+         * @param slots placeholders of the same field
+         */
+        public static void fetchBatch(Connection connection, List<SubEntityFetchSlot> slots) {
+            final EntitySubFetch first = slots.get(0).subFetch();
+
+            if (slots.size() == 1 || first.getPrimaryKeys().size() > 1) {
+                for (SubEntityFetchSlot slot : slots) {
+                    slot.resolve(slot.subFetch().fetch(connection));
+                }
+                return;
+            }
+
+            /*
+             * Many To Many relation requires secondary ids from the join table,
+             * retrieve them for all the rows by the single query
+             */
+            final Map<Object, Set<Object>> joinTableIds;
+            if (first.getDsf().getJoinTable() != null) {
+                final List<Object> srcPkValues = slots.stream()
+                        .map(slot -> slot.subFetch().getSourcePkValue())
+                        .collect(Collectors.toList());
+
+                try {
+                    joinTableIds = first.retrieveIdsFromDb(connection, srcPkValues);
+                } catch (Throwable t) {
+                    throw first.fetchFailed(t, "'%s' IN %s".formatted(first.getDsf().getJoinTable().getSourceColumn(), srcPkValues));
+                }
+            } else {
+                joinTableIds = null;
+            }
+
+            final boolean isBatchFetchSupported = first.isBatchFetchSupported();
+
+            record PendingSlot(SubEntityFetchSlot slot, Collection<?> keys) {}
+
+            // -- Resolve keys for each placeholder, skip ones that do not require actual fetch
+            final List<PendingSlot> pending = new ArrayList<>(slots.size());
+            final Set<Object> batchKeys = new LinkedHashSet<>();
+            String keyFieldName = null;
+
+            for (SubEntityFetchSlot slot : slots) {
+                final EntitySubFetch esf = slot.subFetch();
+
+                final Map<String, Object> effectivePKs;
+                try {
+                    effectivePKs = joinTableIds == null ?
+                            esf.resolveEffectivePKs(connection)
+                            : esf.toEffectivePKs(joinTableIds.get(normalizeKey(esf.getSourcePkValue())));
+                } catch (Throwable t) {
+                    throw esf.fetchFailed(t, esf.formatPrimaryKeys());
+                }
+
+                if (!isBatchFetchSupported || effectivePKs == null || !esf.isFetchRequired(effectivePKs)) {
+                    /*
+                     * Either there is no related records (it can happen when Many2Many does not have them),
+                     * or there is no needs to perform actual fetch, or foreign handler can't fetch by IN_SET
+                     */
+                    slot.resolve(esf.fetch(connection, effectivePKs));
+                    continue;
+                }
+
+                assert effectivePKs.size() == 1;
+                final Map.Entry<String, Object> e = effectivePKs.entrySet().iterator().next();
+                keyFieldName = e.getKey();
+
+                final Collection<?> keys = e.getValue() instanceof Collection<?> c ? c : List.of(e.getValue());
+                batchKeys.addAll(keys);
+                pending.add(new PendingSlot(slot, keys));
+            }
+
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            // -- Fetch all related records at once, key field is required to distribute records between rows
+            final String entityOutputs = first.getEntityOutputs();
+            final String effectiveKeyFieldName = keyFieldName;
+            final boolean isKeyFetchedAdditionally = Arrays.stream(entityOutputs.split(","))
+                    .map(String::trim)
+                    .noneMatch(effectiveKeyFieldName::equals);
+
+            final String batchOutputs = isKeyFetchedAdditionally ?
+                    "%s, %s".formatted(entityOutputs, keyFieldName) : entityOutputs;
+
+            final DSResponse response;
+            try {
+                response = first.fetchForeignEntity(connection, first.getForeignKeyRelation(), batchOutputs,
+                        createInSetCriteria(keyFieldName, new ArrayList<>(batchKeys)));
+            } catch (Throwable t) {
+                throw first.fetchFailed(t, "'%s' IN %s".formatted(keyFieldName, batchKeys));
+            }
+
+            if (0 != response.getStatus()) {
+                throw new RuntimeException("Subsequent entity fetch failed: %s, %s, filters: '%s' IN %s"
+                        .formatted(
+                                response.getData().getGeneralFailureMessage(),
+                                first.getForeignKeyRelation(),
+                                keyFieldName,
+                                batchKeys
+                        )
+                );
+            }
+
+            final DSResponseDataContainer.RawDataResponse rdr = response.getData().getRawDataResponse();
+
+            final List<DSField> fetchedFields = new ArrayList<>();
+            rdr.getFields().forEach(fetchedFields::add);
+
+            int keyIdx = -1;
+            for (int i = 0; i < fetchedFields.size(); ++i) {
+                if (fetchedFields.get(i).getName().equals(keyFieldName)) {
+                    keyIdx = i;
+                    break;
+                }
+            }
+
+            if (keyIdx == -1) {
+                throw new IllegalStateException("Subsequent entity fetch failed: %s, key field '%s' was not fetched."
+                        .formatted(first.getForeignKeyRelation(), keyFieldName));
+            }
+
+            final List<DSField> effectiveFields = isKeyFetchedAdditionally ?
+                    fetchedFields.subList(0, fetchedFields.size() - 1) : fetchedFields;
+
+            // -- Group fetched records by key, preserving the original order
+            record FetchedRow(int ordinal, Object[] data) {}
+
+            final Map<Object, List<FetchedRow>> rowsByKey = new HashMap<>();
+            int ordinal = 0;
+            for (Object[] r : rdr.getData()) {
+                final Object[] effectiveRow = isKeyFetchedAdditionally ? Arrays.copyOf(r, r.length - 1) : r;
+                rowsByKey.computeIfAbsent(normalizeKey(r[keyIdx]), k -> new LinkedList<>())
+                        .add(new FetchedRow(ordinal++, effectiveRow));
+            }
+
+            // -- Distribute fetched records between rows
+            for (PendingSlot ps : pending) {
+                final List<FetchedRow> matched = new ArrayList<>();
+                for (Object k : ps.keys()) {
+                    final List<FetchedRow> rows = rowsByKey.get(normalizeKey(k));
+                    if (rows != null) {
+                        matched.addAll(rows);
+                    }
+                }
+
+                if (ps.keys().size() > 1) {
+                    matched.sort(Comparator.comparingInt(FetchedRow::ordinal));
+                }
+
+                final List<Object[]> data = matched.stream()
+                        .map(FetchedRow::data)
+                        .collect(Collectors.toList());
+
+                ps.slot().resolve(new DSResponseDataContainer.RawDataResponse(effectiveFields, data));
+            }
+        }
+    }
+
+    /**
+     * Position of the {@link EntitySubFetch} placeholder within the fetched data.
+     */
+    private record SubEntityFetchSlot(Object[] row, int index, EntitySubFetch subFetch) {
+        void resolve(Object value) {
+            row[index] = value;
+        }
+    }
+
+    /**
+     * Indicates whether sub-entities should be fetched by a single request per relation,
+     * rather than by a separate request per each fetched row.
+     */
+    protected boolean allowBatchedSubEntityFetch() {
+        return true;
+    }
+
+    protected void fetchSubEntities(Connection connection, List<Object[]> data) {
+        fetchSubEntities(connection, data, 1);
+    }
+
+    /**
+     * @param parallelism maximum number of fields which sub-entities are fetched concurrently,
+     *                    each by its own connection, {@code 1} keeps everything on the provided connection
+     */
+    protected void fetchSubEntities(Connection connection, List<Object[]> data, int parallelism) {
+        if (!allowBatchedSubEntityFetch()) {
+            for(Object[] r: data) {
+                for (int i=0; i< r.length; ++i) {
+                    if (r[i]  instanceof EntitySubFetch esf) {
+                        r[i] = esf.fetch(connection);
+                    }
+                }
+            }
+            return;
+        }
+
+        /*
+         * All the placeholders of the same field share the same relation,
+         * therefore they can be resolved by the single foreign fetch.
+         */
+        final Map<DSField, List<SubEntityFetchSlot>> slotsByField = new LinkedHashMap<>();
+        for(Object[] r: data) {
+            for (int i=0; i< r.length; ++i) {
+                if (r[i]  instanceof EntitySubFetch esf) {
+                    slotsByField.computeIfAbsent(esf.getDsf(), k -> new ArrayList<>(data.size()))
+                            .add(new SubEntityFetchSlot(r, i, esf));
+                }
+            }
+        }
+
+        if (parallelism <= 1 || slotsByField.size() <= 1) {
+            for (List<SubEntityFetchSlot> slots : slotsByField.values()) {
+                EntitySubFetch.fetchBatch(connection, slots);
+            }
+            return;
+        }
+
+        /*
+         * Each field resolves its own slots, therefore concurrent fetches never touch the same row cell,
+         * completion of all the futures makes resolved values visible to the current thread.
+         *
+         * Once the additional connection is not borrowed in time, the pool is considered exhausted
+         * and the rest of the fields are fetched by the current connection.
+         */
+        final Semaphore permits = new Semaphore(parallelism);
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(slotsByField.size());
+        boolean isPoolExhausted = false;
+
+        try {
+            for (List<SubEntityFetchSlot> slots : slotsByField.values()) {
+                permits.acquire();
+
+                final CompletableFuture<Void> future = isPoolExhausted ? null : supplyOnConcurrentConnection(conn -> {
+                    EntitySubFetch.fetchBatch(conn, slots);
+                    return null;
+                });
+
+                if (future != null) {
+                    futures.add(future.whenComplete((r, t) -> permits.release()));
+                    continue;
+                }
+
+                isPoolExhausted = true;
+                try {
+                    EntitySubFetch.fetchBatch(connection, slots);
+                } finally {
+                    permits.release();
+                }
+            }
+
+            await(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])));
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Sub-entity fetch was interrupted.", e);
+        }
+    }
+
+    private static final ExecutorService queryExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r, "smartclient-query-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * Executor used for the queries that are performed concurrently with the main fetch query by their own
+     * connections: parallel sub-entity fetches, bounded per request by {@link OperationBinding#getSubEntityFetchParallelism()},
+     * and concurrent totalRows calculation, it also holds the connections of the streamed responses.
+     */
+    protected Executor getQueryExecutor() {
+        return queryExecutor;
+    }
+
+    /**
+     * Waits for the concurrently performed query, its failure is re-thrown as is.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts the query that is performed concurrently with the caller by an additional connection.
+     *
+     * Caller already holds a connection, therefore blocking on the exhausted pool may deadlock: once all the pooled
+     * connections are held by the callers that wait for the second one, none of them is ever returned. The additional
+     * connection is awaited at most {@link #getConcurrentConnectionTimeout()} milliseconds, if it is not borrowed
+     * in time the query is abandoned and the caller must perform it by its own connection.
+     *
+     * @return the query result or {@code null} if the connection was not borrowed
+     */
+    private <T> CompletableFuture<T> supplyOnConcurrentConnection(Utils.CheckedFunction<Connection, T> query) throws InterruptedException {
+        final CompletableFuture<Boolean> borrowed = new CompletableFuture<>();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        getQueryExecutor().execute(() -> {
+            try {
+                policy.withConnectionDo(getDataSource().getDbName(), conn -> {
+                    // The connection borrowed after the caller gave up is returned untouched
+                    if (borrowed.complete(Boolean.TRUE)) {
+                        result.complete(query.apply(conn));
+                    }
+                    return null;
+                });
+            } catch (Throwable t) {
+                if (borrowed.complete(Boolean.FALSE)) {
+                    logger.debug("DataSource '%s': concurrent connection can't be borrowed, query is performed by the current one."
+                            .formatted(getDataSource().getId()), t);
+                } else {
+                    result.completeExceptionally(t instanceof RuntimeException ? t : new RuntimeException(t));
+                }
+            }
+        });
+
+        try {
+            return borrowed.get(getConcurrentConnectionTimeout(), TimeUnit.MILLISECONDS) ? result : null;
+        } catch (TimeoutException e) {
+            return borrowed.complete(Boolean.FALSE) || !borrowed.join() ? null : result;
+        } catch (ExecutionException e) {
+            // never happens, borrowed is never completed exceptionally
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            borrowed.complete(Boolean.FALSE);
+            throw e;
+        }
+    }
+
+    /**
+     * Max number of milliseconds the additional connection is awaited for the concurrent query, see
+     * {@link DataSource#isConcurrentTotalRows()} and {@link OperationBinding#isParallelSubEntityFetch()}.
+     */
+    protected int getConcurrentConnectionTimeout() {
+        return 200;
+    }
+
+    protected int fetchTotalRows(SQLFetchContext<JDBCHandler> sqlFetchContext, Connection connection) {
+        /*
+         * Opaque query is required for a proper filtering by calculated fields
+         */
+        @SuppressWarnings("SqlNoDataSourceInspection") final String countQuery = "SELECT count(*) FROM %s"
+                .formatted(sqlFetchContext.getGenericQuery());
+
+        return executeCountQuery(sqlFetchContext, connection, countQuery);
+    }
+
+    private int executeCountQuery(SQLFetchContext<JDBCHandler> sqlFetchContext, Connection connection, String countQuery) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("DataSource %s fetch count(*) query:\n%s\n\nparams:\n%s"
+                    .formatted(
+                            getDataSource().getId(),
+                            countQuery,
+                            sqlFetchContext.getFilterData().stream()
+                                    .flatMap(fd -> StreamSupport.stream(fd.values().spliterator(), false))
+                                    .map("%s"::formatted)
+                                    .collect(Collectors.joining(", "))
+                    )
+            );
+        }
+
+        /*
+         * Count may be performed concurrently with the page query, therefore it does not touch the fetch context,
+         * the count query is reported by the exception itself.
+         */
+        try (PreparedStatement st = connection.prepareStatement(countQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             StatementArrays arrays = new StatementArrays()) {
+            int idx = 0;
+
+            for (IFilterData fd : sqlFetchContext.getFilterData()) {
+                idx = fd.setStatementParameters(idx, st, arrays);
+            }
+
+            try (ResultSet rs = st.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } catch (Throwable t) {
+            throw new ContextualRuntimeException("SQL count query execution failed:\n%s".formatted(countQuery), t, sqlFetchContext);
+        }
+    }
+
+    /**
+     * Query parameters identify the query along with the query text, they are used as a part of cache keys.
+     */
+    private static List<Object> getQueryParams(SQLFetchContext<JDBCHandler> sqlFetchContext) {
+        final List<Object> queryParams = new ArrayList<>();
+        for (IFilterData fd : sqlFetchContext.getFilterData()) {
+            fd.values().forEach(queryParams::add);
+        }
+        return queryParams;
+    }
 
-                final String pkNames = foreignDS.getPKFields().stream()
-                        .map(DSField::getName)
-                        .collect(Collectors.joining(", "));
+    /**
+     * Streamed response must report the exact total, since the number of the streamed rows
+     * is not known until the response is serialized, therefore the estimated total can't be used.
+     */
+    private static boolean isStreamingFetchApplicable(SQLFetchContext<JDBCHandler> sqlFetchContext, OperationBinding operationBinding) {
+        return !OperationBinding.TotalRowsStrategy.ESTIMATED.equals(operationBinding.getTotalRowsStrategy())
+                && !sqlFetchContext.isKeysetPagination()
+                && sqlFetchContext.getBatchedSummaries().isEmpty()
+                && sqlFetchContext.getRequestedFields().stream().noneMatch(AbstractDSHandler::isSubEntityFetchRequired);
+    }
+
+    /**
+     * Total is calculated and the fetch query is executed immediately, since the response must be completely
+     * determined before serialization, whereas the rows are read from the open ResultSet later, while the response
+     * is being serialized.
+     *
+     * Both queries are performed on the same connection, it is held by a query executor thread until the rows
+     * are traversed, see {@link StreamedFetchData}. Rows are not available when the total is required, therefore
+     * the total is always counted, even if the operation binding prefers the window function,
+     * though the cached total is used if it is enabled.
+     */
+    protected DSResponse doHandleStreamingFetch(DSRequest request, SQLFetchContext<JDBCHandler> sqlFetchContext,
+                                                OperationBinding operationBinding) {
+        final CompletableFuture<DSResponse> opened = new CompletableFuture<>();
+
+        getQueryExecutor().execute(() -> {
+            try {
+                policy.withConnectionDo(getDataSource().getDbName(), conn -> {
+                    final int totalRows = fetchStreamedTotalRows(request, conn, sqlFetchContext, operationBinding);
+                    final int endRow = sqlFetchContext.getPageSize() > 0 ?
+                            Math.min(totalRows, request.getEndRow()) : totalRows;
+
+                    final StreamedFetchData data = new StreamedFetchData(sqlFetchContext, conn);
+                    try {
+                        opened.complete(DSResponse.successFetch(request.getStartRow(), Math.max(request.getStartRow(), endRow), totalRows,
+                                sqlFetchContext.getRequestedFields(),
+                                data));
+
+                        data.awaitRelease(getStreamingCursorTimeout());
+                    } finally {
+                        data.close();
+                    }
+                    return null;
+                });
+            } catch (Throwable t) {
+                final RuntimeException e = t instanceof RuntimeException re ?
+                        re : new ContextualRuntimeException("SQL streaming fetch query execution failed.", t, sqlFetchContext);
 
-                fetchEntity.setOutputs(pkNames);
+                if (!opened.completeExceptionally(e)) {
+                    logger.error("DataSource '%s': streamed fetch cursor was not released properly."
+                            .formatted(getDataSource().getId()), e);
+                }
             }
+        });
 
-            return dsHandler.handle(fetchEntity);
+        return await(opened);
+    }
+
+    private int fetchStreamedTotalRows(DSRequest request, Connection connection,
+                                       SQLFetchContext<JDBCHandler> sqlFetchContext, OperationBinding operationBinding) {
+        final int totalRowsCacheMaxAge = operationBinding.getTotalRowsCacheMaxAge();
+        final List<Object> queryParams = totalRowsCacheMaxAge > 0 ? getQueryParams(sqlFetchContext) : null;
+
+        final Integer cachedTotal = totalRowsCacheMaxAge > 0 ?
+                totalRowsCache.get(request.getOperationId(), sqlFetchContext.getGenericQuery(), queryParams) : null;
+
+        if (cachedTotal != null) {
+            return cachedTotal;
         }
 
-        protected static Map<String, Object> retrieveIdsFromDb(Connection connection, DSField sourceField, ForeignKeyRelation foreignKeyRelation, Map<String, Object> pks) throws SQLException {
+        final long totalRowsGeneration = totalRowsCache.getGeneration();
+        final int totalRows = fetchTotalRows(sqlFetchContext, connection);
 
-            if (pks.size() > 1) {
-                throw new IllegalStateException("Composite PKs is not supported");
-            }
+        if (totalRowsCacheMaxAge > 0) {
+            totalRowsCache.put(request.getOperationId(), sqlFetchContext.getGenericQuery(), queryParams,
+                    totalRows, totalRowsCacheMaxAge, totalRowsGeneration);
+        }
+        return totalRows;
+    }
 
-            final DSField.JoinTableDescr jtd =sourceField.getJoinTable();
-            final Set<Object> values = new HashSet<>();
+    /**
+     * Cursor over the ResultSet of the executed fetch query, rows are read while they are being consumed.
+     *
+     * Rows can be traversed only once, either by {@link #forEach(Consumer)} or by {@link #iterator()},
+     * the cursor is closed and the connection is released as soon as the traversal ends. If the traversal
+     * is not started within {@link #getStreamingCursorTimeout()} seconds, the cursor is closed anyway.
+     */
+    private class StreamedFetchData implements DSResponseDataContainer.StreamedData {
+        private final SQLFetchContext<JDBCHandler> sqlFetchContext;
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private final RowReader rowReader;
+        private final CountDownLatch released = new CountDownLatch(1);
+        private boolean traversed;
+        private boolean expired;
+
+        private StreamedFetchData(SQLFetchContext<JDBCHandler> sqlFetchContext, Connection connection) throws SQLException {
+            this.sqlFetchContext = sqlFetchContext;
+
+            @SuppressWarnings("SqlNoDataSourceInspection")
+            final String opaqueFetchQuery = """
+                 SELECT %s FROM %s
+                    %s
+                    %s
+            """.formatted(sqlFetchContext.getOutputColumns(), sqlFetchContext.getGenericQuery(),
+                    sqlFetchContext.getOrderClause(), sqlFetchContext.getPaginationClause());
+
+            this.statement = connection.prepareStatement(opaqueFetchQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            try {
+                statement.setFetchSize(sqlFetchContext.getPageSize() > 0 ?
+                        Math.min(sqlFetchContext.getPageSize(), getStreamingFetchSize()) : getStreamingFetchSize());
 
-            try (PreparedStatement st = connection.prepareStatement(
-                    "SELECT %s FROM %s WHERE %s IN (?)"
-                            .formatted(
-                                    jtd.getDestColumn(),
-                                    jtd.getTableName(),
-                                    jtd.getSourceColumn()
-                            ),
-                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                if (sqlFetchContext.getPageSize() > 0) {
+                    statement.setMaxRows(sqlFetchContext.getPageSize());
+                }
 
+                statement.setFetchDirection(ResultSet.FETCH_FORWARD);
 
-                // -- Get Source PK value
-                final DSField srcPk = foreignKeyRelation.dataSource().getNonCompositePK();
-                final Object srcPkValue = pks.get(srcPk.getName());
+                try (StatementArrays arrays = new StatementArrays()) {
+                    int idx = 0;
+                    for (IFilterData fd : sqlFetchContext.getFilterData()) {
+                        idx = fd.setStatementParameters(idx, statement, arrays);
+                    }
 
-                if (srcPkValue == null) {
-                    // NOT sure what should be done in that case
+                    this.resultSet = statement.executeQuery();
                 }
+                this.rowReader = new RowReader(sqlFetchContext, resultSet.getMetaData());
+            } catch (Throwable t) {
+                statement.close();
+                throw t;
+            }
+        }
 
-                // --
-                st.setObject(1, srcPkValue);
+        @Override
+        public void forEach(Consumer<? super Object[]> action) {
+            begin();
+            try {
+                while (resultSet.next()) {
+                    action.accept(rowReader.read(resultSet));
+                }
+            } catch (SQLException e) {
+                throw new ContextualRuntimeException("SQL streaming fetch query execution failed.", e, sqlFetchContext);
+            } finally {
+                close();
+            }
+        }
 
+        @Override
+        public Iterator<Object[]> iterator() {
+            begin();
+            return new Iterator<>() {
+                private Object[] next;
+
+                @Override
+                public boolean hasNext() {
+                    if (next == null && released.getCount() > 0) {
+                        try {
+                            if (resultSet.next()) {
+                                next = rowReader.read(resultSet);
+                            } else {
+                                close();
+                            }
+                        } catch (SQLException e) {
+                            close();
+                            throw new ContextualRuntimeException("SQL streaming fetch query execution failed.", e, sqlFetchContext);
+                        } catch (RuntimeException e) {
+                            close();
+                            throw e;
+                        }
+                    }
+                    return next != null;
+                }
 
-                try (ResultSet rs = st.executeQuery()) {
-                    while (rs.next()) {
-                        Object v = rs.getObject(1);
-                        assert v != null;
-                        values.add(v);
+                @Override
+                public Object[] next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
                     }
+
+                    final Object[] r = next;
+                    next = null;
+                    return r;
                 }
+            };
+        }
 
-                if (values.isEmpty()) {
-                    /*
-                     * There is no relevant records found, therefore,
-                     * no needs to perform actual fetch
-                     */
-                    return null;
+        private synchronized void begin() {
+            if (expired) {
+                throw new IllegalStateException("DataSource '%s': streamed rows were not traversed within %d seconds, the cursor is closed."
+                        .formatted(getDataSource().getId(), getStreamingCursorTimeout()));
+            }
+
+            if (traversed) {
+                throw new IllegalStateException("DataSource '%s': streamed rows can be traversed only once."
+                        .formatted(getDataSource().getId()));
+            }
+            traversed = true;
+        }
+
+        /**
+         * Blocks the thread that holds the connection until the traversal ends,
+         * or until the timeout if the traversal is not started.
+         */
+        private void awaitRelease(int timeoutSeconds) throws InterruptedException {
+            if (released.await(timeoutSeconds, TimeUnit.SECONDS)) {
+                return;
+            }
+
+            synchronized (this) {
+                if (!traversed) {
+                    expired = true;
+                    return;
                 }
             }
 
-            // -- Create resulting Map<PkFieldName, PkValue>
-            final DSField dstPk = foreignKeyRelation.foreign().dataSource().getNonCompositePK();
-            return Map.of(dstPk.getName(), values);
+            released.await();
         }
 
-        public Object fetch(Connection connection) {
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (released.getCount() == 0) {
+                    return;
+                }
+                released.countDown();
+            }
 
-            final DSResponse response;
             try {
-                final Map<String, Object> effectivePKs;
+                statement.close();
+            } catch (SQLException e) {
+                logger.warn("DataSource '%s': streamed fetch statement can't be closed.".formatted(getDataSource().getId()), e);
+            }
+        }
+    }
 
-                if (getDsf().getJoinTable() != null) {
-                    /*
-                     * If join table is provided - it indicates that the relation is Many to Many.
-                     * And to Handle Many To Many relation it is required to retrieve correspondent
-                     * secondary ids from join table
-                     */
+    /**
+     * Max number of seconds the connection of the streamed response is held until the rows are traversed.
+     */
+    protected int getStreamingCursorTimeout() {
+        return 60;
+    }
 
-                    effectivePKs = retrieveIdsFromDb(connection, getDsf(), foreignKeyRelation, getPrimaryKeys());
-                } else {
-                    final DSField pkField = foreignKeyRelation.dataSource().getNonCompositePK();
-                    final Object v = getPrimaryKeys().get(pkField.getName());
-
-                    if (v == null) {
-                        // This will indicate serious error in the request handling logic, if any
-                        throw new IllegalStateException("PK/FK value can not be null, but actually it is null: '%s.%s'."
-                                        .formatted(
-                                                foreignKeyRelation.dataSource().getId(),
-                                                dsf.getName()
-                                        )
-                        );
-                    }
+    /**
+     * Number of rows that is fetched from the database at once by the streaming fetch.
+     */
+    protected int getStreamingFetchSize() {
+        return 1000;
+    }
 
-                    effectivePKs = Map.of(foreignKeyRelation.foreign().fieldName(), v );
-                }
+    protected ForeignKeyRelation describeSubEntityRelation(DSField dsf) {
+        return memoizeRelation(new RelationKey("subEntity", getDataSource(), dsf, null),
+                () -> EntitySubFetch.describeRelation(this::getDataSourceHandlerById, this.getDataSource(), dsf));
+    }
 
-                if (effectivePKs == null) {
-                    /*
-                     * It can happen when Many2Many does not have related records
-                     */
-                    return null;
-                }
+    /**
+     * Totals and seek keys are calculated by the queries that join the referred data sources,
+     * therefore they are dropped along with the fetch responses.
+     */
+    @Override
+    protected void invalidateFetchCache(String modifiedDataSourceId) {
+        super.invalidateFetchCache(modifiedDataSourceId);
 
-                boolean allKeysProvided = true;
-                final Set<DSField> pkFields = getForeignKeyRelation().foreign().dataSource().getPKFields();
-                for (DSField pkf: pkFields) {
-                    if (!effectivePKs.containsKey(pkf.getName())) {
-                        allKeysProvided = false;
-                        break;
-                    }
-                }
+        if (getFetchCacheDependencies().contains(modifiedDataSourceId)) {
+            invalidateQueryCaches();
+        }
+    }
 
+    private void invalidateQueryCaches() {
+        totalRowsCache.invalidate();
+        keysetPaginationCache.invalidate();
+    }
 
-                if (fetchOnlyPKs && allKeysProvided) {
-                    /*
-                     * No needs to fetch PKs
-                     */
+    protected FetchPlanCache getFetchPlanCache() {
+        return fetchPlanCache;
+    }
 
-                    if (effectivePKs.size() > 1) {
-                        throw new IllegalStateException("Composite PKs is not supported.");
-                    }
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet rs, int column) throws SQLException;
+    }
 
+    private static final ColumnReader OBJECT_READER = ResultSet::getObject;
+    private static final ColumnReader INT_READER = (rs, c) -> { final int v = rs.getInt(c); return rs.wasNull() ? null : v; };
+    private static final ColumnReader LONG_READER = (rs, c) -> { final long v = rs.getLong(c); return rs.wasNull() ? null : v; };
+    private static final ColumnReader DOUBLE_READER = (rs, c) -> { final double v = rs.getDouble(c); return rs.wasNull() ? null : v; };
+    private static final ColumnReader BOOLEAN_READER = (rs, c) -> { final boolean v = rs.getBoolean(c); return rs.wasNull() ? null : v; };
+    private static final ColumnReader TIMESTAMP_READER = ResultSet::getTimestamp;
+    private static final ColumnReader DATE_READER = ResultSet::getDate;
+
+    /**
+     * Typed accessor is used only if the actual column type matches the field type, therefore the value
+     * is exactly the same as it would be returned by {@link ResultSet#getObject(int)}.
+     */
+    private static ColumnReader columnReaderFor(DSField dsf, int sqlType) {
+        if (dsf.getType() == null) {
+            return OBJECT_READER;
+        }
+
+        return switch (dsf.getType()) {
+            case INTEGER, SEQUENCE -> switch (sqlType) {
+                case Types.INTEGER -> INT_READER;
+                case Types.BIGINT -> LONG_READER;
+                default -> OBJECT_READER;
+            };
+            case FLOAT -> sqlType == Types.DOUBLE || sqlType == Types.FLOAT ? DOUBLE_READER : OBJECT_READER;
+            case BOOLEAN -> sqlType == Types.BOOLEAN ? BOOLEAN_READER : OBJECT_READER;
+            case DATETIME -> sqlType == Types.TIMESTAMP ? TIMESTAMP_READER : OBJECT_READER;
+            case DATE -> sqlType == Types.DATE ? DATE_READER : OBJECT_READER;
+            default -> OBJECT_READER;
+        };
+    }
 
+    private volatile Boolean rowPostProcessingRequired;
 
-                    final Map.Entry<String, Object> e = effectivePKs.entrySet().iterator().next();
+    /**
+     * Post-processing hooks are invoked only if they are overridden by a subclass.
+     */
+    private boolean isRowPostProcessingRequired() {
+        if (rowPostProcessingRequired == null) {
+            try {
+                rowPostProcessingRequired =
+                        findDeclaringClass("postProcessRow", SQLFetchContext.class, Object[].class) != JDBCHandler.class
+                        || findDeclaringClass("postProcessFieldValue", SQLFetchContext.class, Map.class, DSField.class, Object.class) != JDBCHandler.class;
+            } catch (NoSuchMethodException e) {
+                rowPostProcessingRequired = true;
+            }
+        }
+        return rowPostProcessingRequired;
+    }
 
-                    // Not sure that it will work with composite PKs
-                    assert pkFields.size() <= 1;
+    private Class<?> findDeclaringClass(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        for (Class<?> c = getClass(); c != null; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return c;
+            } catch (NoSuchMethodException e) {
+                // check superclass
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
 
-                    if (e.getValue() instanceof Collection c) {
-                        final int size = c.size();
-                        final List<Object[]> cc = (List)c.stream()
-                                .map( v -> new Object[]{v} )
-                                .collect(Collectors.toList());
+    /**
+     * Reads rows of a single result set, everything that is the same for all the rows is resolved
+     * once, when the reader is created: column accessors, PK columns and sub-entity relations.
+     *
+     * Sub-entities are represented by {@link EntitySubFetch} placeholders.
+     */
+    private final class RowReader {
+        private final SQLFetchContext<JDBCHandler> sqlFetchContext;
+        private final DSField[] fields;
+        private final ColumnReader[] columnReaders;
+        private final int[] pkIdxs;
+        private final ForeignKeyRelation[] subEntityRelations;
+        private final List<DSField>[] subEntityOutputs;
+        private final boolean hasSubEntities;
+        private final boolean postProcessingRequired;
+
+        @SuppressWarnings("unchecked")
+        private RowReader(SQLFetchContext<JDBCHandler> sqlFetchContext, ResultSetMetaData md) throws SQLException {
+            this.sqlFetchContext = sqlFetchContext;
+            this.fields = sqlFetchContext.getRequestedFields().toArray(new DSField[0]);
+            this.columnReaders = new ColumnReader[fields.length];
+            this.subEntityRelations = new ForeignKeyRelation[fields.length];
+            this.subEntityOutputs = new List[fields.length];
+            this.postProcessingRequired = isRowPostProcessingRequired();
+
+            boolean hasSubEntities = false;
+            final List<Integer> pkIdxs = new ArrayList<>();
+
+            for (int i = 0; i < fields.length; ++i) {
+                final DSField dsf = fields[i];
+
+                if (dsf.isPrimaryKey()) {
+                    pkIdxs.add(i);
+                }
 
-                        response = DSResponse.successFetch(0, size-1, size, pkFields, cc);
-                    } else {
-                        response = DSResponse.successFetch(0, 1, 1, pkFields, (List)List.of(new Object[] {e.getValue()}));
-                    }
+                if (isSubEntityFetchRequired(dsf)) {
+                    hasSubEntities = true;
+                    columnReaders[i] = OBJECT_READER;
+                    subEntityRelations[i] = describeSubEntityRelation(dsf);
 
+                    final List<ForeignRelation> ffs = sqlFetchContext.getAdditionalOutputs().get(dsf);
+                    subEntityOutputs[i] = ffs == null ? null : ffs.stream()
+                            .map(ForeignRelation::field)
+                            .collect(Collectors.toList());
                 } else {
+                    columnReaders[i] = columnReaderFor(dsf, md.getColumnType(i + 1));
+                }
+            }
 
-                    final Collection<DSField> effectiveFields = fetchOnlyPKs ? pkFields : getRequestedFields();
-                    final String entityOutputs = effectiveFields.stream()
-                                    .map(DSField::getName)
-                                    .collect(Collectors.joining(", "));
+            this.hasSubEntities = hasSubEntities;
+            this.pkIdxs = pkIdxs.stream().mapToInt(Integer::intValue).toArray();
+        }
 
-                    // -- create Criteria to fetch by PK
-                    if (primaryKeys.size() > 1) {
-                        throw new IllegalStateException("Composite PKs is not supported");
-                    }
+        private Object[] read(ResultSet rs) throws SQLException {
+            final Object[] r = new Object[fields.length];
 
-                    final IDSRequestData filterData;
+            // ORIGINAL FIELD ORDER MUST BE PRESERVED
+            for (int i = 0; i < fields.length; ++i) {
+                r[i] = columnReaders[i].read(rs, i + 1);
+            }
 
-                    if (useSimpleCriteria) {
-                        final DSRequest.MapData md = new DSRequest.MapData();
-                        md.putAll(effectivePKs);
-                        filterData = md;
-                    } else {
-                        final Map.Entry<String, Object> e = effectivePKs.entrySet().iterator().next();
-                        final AdvancedCriteria ac = new AdvancedCriteria();
-                        final Criteria c = new Criteria();
+            for (int i : pkIdxs) {
+                if (r[i] == null) {
+                    throw new ContextualRuntimeException(
+                            "Datasource '%s': Fetch failed, Primary Key value can not be null, but actually it is, field: '%s'."
+                                    .formatted(
+                                        getDataSource().getId(),
+                                        fields[i].getName()
+                                    ),
+                            sqlFetchContext
+                    );
+                }
+            }
 
-                        c.setOperator(OperatorId.IN_SET);
-                        c.setValue(e.getValue());
-                        c.setFieldName(e.getKey());
+            if (!hasSubEntities && !postProcessingRequired) {
+                return r;
+            }
 
-                        ac.setCriteria(List.of(c));
-                        filterData = ac;
-                    }
+            final Map<String, Object> rowPkValues = new HashMap<>();
+            for (int i : pkIdxs) {
+                rowPkValues.put(fields[i].getName(), r[i]);
+            }
 
-                    // --
-                    response = this.fetchForeignEntity(connection, getForeignKeyRelation(), entityOutputs, filterData);
+            for (int j = 0; j < fields.length; ++j) {
+                final DSField dsf = fields[j];
+
+                if (postProcessingRequired) {
+                    r[j] = postProcessFieldValue(sqlFetchContext, rowPkValues, dsf, r[j]);
                 }
-                assert response != null;
-            } catch ( Throwable t) {
-                final String message = "Subsequent entity fetch failed: %s, filters: %s"
-                        .formatted(
-                                foreignKeyRelation,
-                                getPrimaryKeys().entrySet().stream()
-                                        .map( e -> "'%s': %s"
-                                                .formatted(
-                                                        e.getKey(),
-                                                        e.getValue()
-                                                )
-                                        )
-                                        .collect(Collectors.joining(","))
-                        );
 
-                logger.error(message, t);
-                throw new RuntimeException(message, t);
-            }
+                if (subEntityRelations[j] == null) {
+                    continue;
+                }
 
-            if (0 != response.getStatus()) {
-                throw new RuntimeException("Subsequent entity fetch failed: %s, %s, filters: %s"
-                        .formatted(
-                                response.getData().getGeneralFailureMessage(),
-                                foreignKeyRelation,
-                                getPrimaryKeys().entrySet().stream()
-                                        .map( e -> "'%s': %s"
-                                                .formatted(
-                                                        e.getKey(),
-                                                        e.getValue()
-                                                )
-                                        )
-                                        .collect(Collectors.joining(","))
-                        )
+                /*
+                 * Create EntitySubFetch for further processing
+                 */
+                r[j] = new EntitySubFetch(JDBCHandler.this,
+                        dsf,
+                        subEntityRelations[j],
+                        subEntityOutputs[j],
+                        rowPkValues,
+                        !allowAdvancedCriteria()
                 );
             }
 
-            Object o = response.getData().getRawDataResponse();
-            assert o != null;
+            if (!postProcessingRequired) {
+                return r;
+            }
 
-            return o;
+            final Object[] postProcessed = postProcessRow(sqlFetchContext, r);
+
+            assert postProcessed.length == r.length;
+            return postProcessed;
         }
     }
 
+    private int calculateTotalRows(SQLFetchContext<JDBCHandler> sqlFetchContext, Connection connection,
+                                   OperationBinding.TotalRowsStrategy totalRowsStrategy, OperationBinding operationBinding) {
+        return OperationBinding.TotalRowsStrategy.ESTIMATED.equals(totalRowsStrategy) ?
+                fetchEstimatedTotalRows(sqlFetchContext, connection, operationBinding.getEstimatedTotalRowsLimit())
+                : fetchTotalRows(sqlFetchContext, connection);
+    }
+
+    /**
+     * Counts at most {@code limit} rows, it is much cheaper than the exact count for the huge tables.
+     */
+    protected int fetchEstimatedTotalRows(SQLFetchContext<JDBCHandler> sqlFetchContext, Connection connection, int limit) {
+        @SuppressWarnings("SqlNoDataSourceInspection") final String countQuery = "SELECT count(*) FROM (SELECT 1 FROM %s %s) capped"
+                .formatted(sqlFetchContext.getGenericQuery(), getDialect().limitClause(limit));
+
+        return executeCountQuery(sqlFetchContext, connection, countQuery);
+    }
+
     protected DSResponse doHandleFetch(DSRequest request, Connection connection, boolean calculateTotal) throws Exception {
         final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, request.getOperationId());
         final SQLFetchContext<JDBCHandler> sqlFetchContext = new SQLFetchContext<>(this, request, operationBinding);
@@ -635,55 +2204,101 @@ public class JDBCHandler extends AbstractDSHandler {
 
         final int[] totalRows = new int[] {-1};
 
+        // Sort key of the last fetched row, it is tracked for the keyset pagination only
+        final Object[][] lastKey = new Object[][] {null};
+
+        // PK values of the fetched rows, they are tracked for the batched summaries only
+        final List<Object> summaryKeys = new ArrayList<>(Math.max(sqlFetchContext.getPageSize(), 0));
+
         // -- calculate total
-        if (calculateTotal) {
-            /*
-             * Opaque query is required for a proper filtering by calculated fields
-             */
-            @SuppressWarnings("SqlNoDataSourceInspection") final String countQuery = "SELECT count(*) FROM %s"
-                    .formatted(sqlFetchContext.getGenericQuery());
+        final OperationBinding.TotalRowsStrategy totalRowsStrategy = operationBinding == null ?
+                OperationBinding.TotalRowsStrategy.COUNT : operationBinding.getTotalRowsStrategy();
 
-            if (logger.isTraceEnabled()) {
-                logger.trace("DataSource %s fetch count(*) query:\n%s\n\nparams:\n%s"
-                        .formatted(
-                                getDataSource().getId(),
-                                countQuery,
-                                sqlFetchContext.getFilterData().stream()
-                                        .flatMap(fd -> StreamSupport.stream(fd.values().spliterator(), false))
-                                        .map("%s"::formatted)
-                                        .collect(Collectors.joining(", "))
-                        )
-                );
-            }
+        /*
+         * Request bound to the connection may see the uncommitted changes, that can be rolled back later,
+         * therefore neither totals nor seek keys are taken from or stored to the caches.
+         */
+        final boolean useCaches = !isConnectionBound(request);
 
-            sqlFetchContext.setEffectiveSQL(countQuery);
+        final int totalRowsCacheMaxAge = operationBinding == null || !useCaches ? 0 : operationBinding.getTotalRowsCacheMaxAge();
+        boolean isTotalRequired = calculateTotal;
 
-            try (PreparedStatement st = connection.prepareStatement(countQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
-                int idx = 0;
+        final List<Object> queryParams = (calculateTotal && totalRowsCacheMaxAge > 0) || (useCaches && sqlFetchContext.isKeysetPagination()) ?
+                getQueryParams(sqlFetchContext) : null;
 
-                for (IFilterData fd : sqlFetchContext.getFilterData()) {
-                    idx = fd.setStatementParameters(idx, st);
-                }
+        final long totalRowsGeneration = totalRowsCache.getGeneration();
+        if (calculateTotal && totalRowsCacheMaxAge > 0) {
+            final Integer cachedTotal = totalRowsCache.get(request.getOperationId(),
+                    sqlFetchContext.getGenericQuery(), queryParams);
 
-                try (ResultSet rs = st.executeQuery()) {
-                    rs.next();
-                    totalRows[0] = rs.getInt(1);
-                }
-            } catch (Throwable t) {
-                throw new ContextualRuntimeException("SQL count query execution failed.", t, sqlFetchContext);
+            if (cachedTotal != null) {
+                totalRows[0] = cachedTotal;
+                isTotalRequired = false;
             }
         }
 
+        // -- keyset pagination, the page can be located by seek only if the previous one is known
+        final long keysetGeneration = keysetPaginationCache.getGeneration();
+        final Object[] seekKey = useCaches && sqlFetchContext.isKeysetPagination() && request.getStartRow() > 0 ?
+                keysetPaginationCache.get(request.getComponentId(), request.getOperationId(),
+                        sqlFetchContext.getGenericQuery() + sqlFetchContext.getOrderClause(), queryParams, request.getStartRow())
+                : null;
+
+        /*
+         * Window function will count only the rows that are after the seek key,
+         * therefore it can't be used along with the seek.
+         */
+        final boolean useWindowFunction = isTotalRequired
+                && seekKey == null
+                && OperationBinding.TotalRowsStrategy.WINDOW_FUNCTION.equals(totalRowsStrategy);
+
+        /*
+         * Count and page queries are independent, therefore the count can be performed concurrently
+         * by its own connection, unless the fetch is bound to the connection of the outer request.
+         * If the connection is not borrowed in time, the count is performed by the current connection.
+         */
+        final CompletableFuture<Integer> concurrentTotalRows = isTotalRequired
+                && !useWindowFunction
+                && getDataSource().isConcurrentTotalRows()
+                && !isConnectionBound(request) ?
+                supplyOnConcurrentConnection(conn -> calculateTotalRows(sqlFetchContext, conn, totalRowsStrategy, operationBinding))
+                : null;
+
+        if (isTotalRequired && !useWindowFunction && concurrentTotalRows == null) {
+            totalRows[0] = calculateTotalRows(sqlFetchContext, connection, totalRowsStrategy, operationBinding);
+        }
+
         // -- fetch data
         /*
-         * Opaque query is required for a proper filtering by calculated fields
+         * Opaque query is required for a proper filtering by calculated fields,
+         * only the output columns are projected, criteria only columns are never transferred.
          */
+        final String outputColumns = sqlFetchContext.getOutputColumns();
+
         @SuppressWarnings("SqlNoDataSourceInspection")
-        final String opaqueFetchQuery = """
-             SELECT * FROM %s
+        final String opaqueFetchQuery = seekKey == null ? """
+             SELECT %s FROM %s
+                %s
                 %s
+        """.formatted(
+                useWindowFunction ? outputColumns + ", COUNT(*) OVER() AS opaque_total_rows" : outputColumns,
+                sqlFetchContext.getGenericQuery(),
+                sqlFetchContext.getOrderClause(),
+                sqlFetchContext.getPaginationClause()
+        ) : """
+             SELECT %s FROM (
+                SELECT * FROM %s
+             ) opaque
+                WHERE %s
                 %s
-        """.formatted(sqlFetchContext.getGenericQuery(), sqlFetchContext.getOrderClause(), sqlFetchContext.getPaginationClause());
+                %s
+        """.formatted(
+                outputColumns,
+                sqlFetchContext.getGenericQuery(),
+                sqlFetchContext.getKeysetSeekClause("opaque"),
+                sqlFetchContext.getOrderClause(),
+                sqlFetchContext.getKeysetPaginationClause()
+        );
 
         if (logger.isTraceEnabled()) {
             logger.trace("DataSource %s fetch query:\n%s\n\nparams:\n%s"
@@ -701,7 +2316,8 @@ public class JDBCHandler extends AbstractDSHandler {
 
         sqlFetchContext.setEffectiveSQL(opaqueFetchQuery);
 
-        try(PreparedStatement st = connection.prepareStatement(opaqueFetchQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)){
+        try(PreparedStatement st = connection.prepareStatement(opaqueFetchQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            StatementArrays arrays = new StatementArrays()){
 
             // If paginated, then tune statement accordingly
             if (sqlFetchContext.getPageSize() != -1) {
@@ -713,70 +2329,47 @@ public class JDBCHandler extends AbstractDSHandler {
 
             int idx =0;
             for (IFilterData fd: sqlFetchContext.getFilterData()) {
-                idx = fd.setStatementParameters(idx, st);
+                idx = fd.setStatementParameters(idx, st, arrays);
             }
 
-            try (ResultSet rs = st.executeQuery() ) {
-                while (rs.next())  {
-                    final Map<String, Object> rowPkValues =  new HashMap<>();
+            if (seekKey != null) {
+                for (Object v : sqlFetchContext.getKeysetSeekParameters(seekKey)) {
+                    st.setObject(++idx, v);
+                }
+            }
 
-                    final Object[] r = new Object[sqlFetchContext.getRequestedFields().size()];
+            try (ResultSet rs = st.executeQuery() ) {
+                // Window function column, if any, is always the last one
+                final int totalRowsColumn = useWindowFunction ? rs.getMetaData().getColumnCount() : -1;
+                final RowReader rowReader = new RowReader(sqlFetchContext, rs.getMetaData());
+
+                final List<SQLFetchContext.KeysetColumn> keysetColumns = sqlFetchContext.getKeysetColumns();
+                final int[] keysetColumnIdxs = new int[keysetColumns.size()];
+                for (int k = 0; k < keysetColumnIdxs.length; ++k) {
+                    keysetColumnIdxs[k] = rs.findColumn(keysetColumns.get(k).columnName());
+                }
 
-                    int i =0;
+                final int summaryKeyIdx = sqlFetchContext.getSummaryKeyColumn() == null ?
+                        -1 : rs.findColumn(sqlFetchContext.getSummaryKeyColumn());
 
-                    // ORIGINAL FIELD ORDER MUST BE PRESERVED
-                    for (DSField dsf: sqlFetchContext.getRequestedFields()) {
-                        Object v = rs.getObject(i + 1);
-                        if (rs.wasNull()) {
-                            v = null;
-                        }
-                        r[i++] = v;
-
-                        if (dsf.isPrimaryKey()) {
-                            if (v == null) {
-                                throw new ContextualRuntimeException(
-                                        "Datasource '%s': Fetch failed, Primary Key value can not be null, but actually it is, field: '%s'."
-                                                .formatted(
-                                                    this.getDataSource().getId(),
-                                                    dsf.getName()
-                                                ),
-                                        sqlFetchContext
-                                );
-                            }
-                            rowPkValues.put(dsf.getName(), v);
-                        }
+                while (rs.next())  {
+                    if (summaryKeyIdx > 0) {
+                        summaryKeys.add(rs.getObject(summaryKeyIdx));
                     }
 
-                    for(int j = 0; j< sqlFetchContext.getRequestedFields().size(); ++j) {
-                        final DSField dsf = sqlFetchContext.getRequestedFields().get(j);
-
-                        r[j] = postProcessFieldValue(sqlFetchContext, rowPkValues, dsf, r[j]);
-
-                        if (!isSubEntityFetchRequired(dsf)) {
-                            continue;
+                    if (keysetColumnIdxs.length > 0) {
+                        final Object[] key = new Object[keysetColumnIdxs.length];
+                        for (int k = 0; k < key.length; ++k) {
+                            key[k] = rs.getObject(keysetColumnIdxs[k]);
                         }
-
-                        /*
-                         * Create EntitySubFetch for further processing
-                         */
-                        final List<ForeignRelation> ffs = sqlFetchContext.getAdditionalOutputs().get(dsf);
-                        final List<DSField> requestedFields = ffs == null ? null : ffs.stream()
-                                .map(ForeignRelation::field)
-                                .collect(Collectors.toList());
-
-                        r[j] = EntitySubFetch.create( !this.allowAdvancedCriteria(),
-                                this::getDataSourceHandlerById,
-                                this.getDataSource(),
-                                dsf,
-                                requestedFields,
-                                rowPkValues
-                        );
+                        lastKey[0] = key;
                     }
 
-                    final Object[] postProcessed = postProcessRow(sqlFetchContext, r);
+                    if (useWindowFunction && totalRows[0] == -1) {
+                        totalRows[0] = rs.getInt(totalRowsColumn);
+                    }
 
-                    assert postProcessed.length == r.length;
-                    data.add(postProcessed);
+                    data.add(rowReader.read(rs));
                 }
             } catch (Throwable t) {
                 if (t instanceof ContextualRuntimeException) {
@@ -786,21 +2379,114 @@ public class JDBCHandler extends AbstractDSHandler {
             }
         }
 
-        // -- Perform subsequent entity fetch requests, if any
-        for(Object[] r: data) {
-            for (int i=0; i< r.length; ++i) {
-                if (r[i]  instanceof EntitySubFetch esf) {
-                    r[i] = esf.fetch(connection);
-                }
-            }
+        if (concurrentTotalRows != null) {
+            totalRows[0] = await(concurrentTotalRows);
+        }
+
+        if (useWindowFunction && data.isEmpty()) {
+            /*
+             * Window function does not provide total for the empty page, it is known only for the first one,
+             * for any other pages it is required to perform an actual count.
+             */
+            totalRows[0] = request.getStartRow() == 0 ?
+                    0 : fetchTotalRows(sqlFetchContext, connection);
+        }
+
+        if (isTotalRequired && totalRowsCacheMaxAge > 0) {
+            totalRowsCache.put(request.getOperationId(), sqlFetchContext.getGenericQuery(), queryParams,
+                    totalRows[0], totalRowsCacheMaxAge, totalRowsGeneration);
+        }
+
+        if (useCaches
+                && lastKey[0] != null
+                && Arrays.stream(lastKey[0]).allMatch(Objects::nonNull)) {
+            // Rows with NULL sort key can't be located by seek, therefore the next page will be fetched with OFFSET
+            keysetPaginationCache.put(request.getComponentId(), request.getOperationId(),
+                    sqlFetchContext.getGenericQuery() + sqlFetchContext.getOrderClause(), queryParams,
+                    request.getStartRow() + data.size(), lastKey[0], keysetGeneration);
+        }
+
+        if (calculateTotal
+                && OperationBinding.TotalRowsStrategy.ESTIMATED.equals(totalRowsStrategy)
+                && totalRows[0] >= operationBinding.getEstimatedTotalRowsLimit()) {
+            /*
+             * Estimated total is capped, therefore it must never be less than the rows that were actually fetched,
+             * and one more row is reported for the full page to let client request the next one.
+             */
+            final int fetched = request.getStartRow() + data.size();
+            final boolean isFullPage = sqlFetchContext.getPageSize() > 0 && data.size() >= sqlFetchContext.getPageSize();
+            totalRows[0] = Math.max(totalRows[0], isFullPage ? fetched + 1 : fetched);
         }
 
+        fetchBatchedSummaries(sqlFetchContext, connection, data, summaryKeys);
+
+        // -- Perform subsequent entity fetch requests, if any
+        /*
+         * Nested fetch shares the connection of the outer one, therefore it must stay on that connection
+         */
+        final int subEntityFetchParallelism = operationBinding != null
+                && operationBinding.isParallelSubEntityFetch()
+                && !isConnectionBound(request) ?
+                Math.max(1, operationBinding.getSubEntityFetchParallelism()) : 1;
+
+        fetchSubEntities(connection, data, subEntityFetchParallelism);
+
 
         return DSResponse.successFetch(request.getStartRow(), request.getStartRow() + data.size(), totalRows[0],
                 sqlFetchContext.getRequestedFields(),
                 data);
     }
 
+    /**
+     * Calculates the batched summaries of all the fetched rows by a single aggregate query per field,
+     * restricted to the PKs of the fetched rows, see {@link DataSource.IncludeSummaryStrategy#BATCHED}.
+     *
+     * @param keys PK values of the fetched rows, in the order of the rows
+     */
+    protected void fetchBatchedSummaries(SQLFetchContext<JDBCHandler> sqlFetchContext, Connection connection,
+                                         List<Object[]> data, List<Object> keys) {
+        if (sqlFetchContext.getBatchedSummaries().isEmpty() || data.isEmpty()) {
+            return;
+        }
+
+        final InSetBinding inSet = bindInSet(getDataSource().getNonCompositePK().getType(),
+                keys.stream().distinct().collect(Collectors.toList()));
+
+        for (SQLFetchContext.BatchedSummary bs : sqlFetchContext.getBatchedSummaries()) {
+            @SuppressWarnings("SqlNoDataSourceInspection") final String summaryQuery = """
+                    SELECT %s, %s
+                        FROM %s
+                    WHERE %s
+                    GROUP BY %s""".formatted(
+                            bs.foreignKeyColumn(), bs.aggregate(),
+                            bs.fromClause(),
+                            inSet.sql(bs.foreignKeyColumn()),
+                            bs.foreignKeyColumn()
+                    );
+
+            final Map<Object, Object> values = new HashMap<>();
+
+            try (PreparedStatement st = connection.prepareStatement(summaryQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 StatementArrays arrays = new StatementArrays()) {
+                inSet.setStatementParameters(0, st, arrays);
+
+                try (ResultSet rs = st.executeQuery()) {
+                    while (rs.next()) {
+                        values.put(EntitySubFetch.normalizeKey(rs.getObject(1)), rs.getObject(2));
+                    }
+                }
+            } catch (Throwable t) {
+                throw new ContextualRuntimeException("SQL summary query execution failed:\n%s".formatted(summaryQuery), t, sqlFetchContext);
+            }
+
+            final Iterator<Object> ki = keys.iterator();
+            for (Object[] r : data) {
+                final Object v = values.get(EntitySubFetch.normalizeKey(ki.next()));
+                r[bs.index()] = v == null && bs.count() ? 0L : v;
+            }
+        }
+    }
+
     protected Object[] postProcessRow(SQLFetchContext<JDBCHandler> ctx, Object[] row) {
         return row;
     }
@@ -882,13 +2568,51 @@ public class JDBCHandler extends AbstractDSHandler {
                 );
     }
 
+    /**
+     * Arrays bound as the statement parameters hold the driver resources until they are freed,
+     * therefore they are freed once the statement has executed.
+     */
+    protected static class StatementArrays implements AutoCloseable {
+        private final List<Array> arrays = new ArrayList<>(0);
+
+        public Array create(PreparedStatement st, String elementType, Object[] elements) throws SQLException {
+            final Array array = st.getConnection().createArrayOf(elementType, elements);
+            arrays.add(array);
+            return array;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            SQLException failure = null;
+            for (Array array : arrays) {
+                try {
+                    array.free();
+                } catch (SQLException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            arrays.clear();
+
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
     protected interface IFilterData {
         String sql();
         String sql(String aliasOrTable);
 
         Iterable<Object> values();
 
-        default int setStatementParameters(int idx, PreparedStatement preparedStatement) throws SQLException {
+        /**
+         * @param arrays creates the array parameters, they are freed once the statement has executed
+         */
+        default int setStatementParameters(int idx, PreparedStatement preparedStatement, StatementArrays arrays) throws SQLException {
             for (Object v : values()) {
                 preparedStatement.setObject(++idx, v);
             }
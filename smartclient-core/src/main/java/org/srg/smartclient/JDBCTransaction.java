@@ -0,0 +1,129 @@
+package org.srg.smartclient;
+
+import org.srg.smartclient.utils.Utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Binds a single DB connection to the current thread for the duration of the queue (DSTransaction) execution,
+ * therefore all the operations of the queue are performed on the same connection and are committed
+ * or rolled back at once.
+ *
+ * Handlers obtain the bound connection via {@link JDBCHandler#withConnectionDo(Utils.CheckedFunction)},
+ * the connection is provided to them wrapped, so that {@code commit()} and {@code close()} are ignored and
+ * {@code rollback()} just marks the whole transaction as rollback-only, the actual commit or rollback is
+ * performed once the queue is completed.
+ *
+ * Actions registered by {@link #afterCommit(Runnable)} are performed once the transaction is committed,
+ * they are discarded if the transaction is rolled back.
+ */
+public class JDBCTransaction {
+    private static final ThreadLocal<JDBCTransaction> current = new ThreadLocal<>();
+
+    private final String database;
+    private final Connection connection;
+    private final Connection boundConnection;
+    private final List<Runnable> afterCommitActions = new ArrayList<>();
+    private volatile boolean rollbackOnly;
+
+    private JDBCTransaction(String database, Connection connection) {
+        this.database = database;
+        this.connection = connection;
+        this.boundConnection = createBoundConnection(connection);
+    }
+
+    /**
+     * @return transaction bound to the current thread or {@code null} if there is no one
+     */
+    public static JDBCTransaction current() {
+        return current.get();
+    }
+
+    /**
+     * Performs the callback within a transaction bound to the provided connection, then commits it
+     * or rolls it back if the transaction was marked as rollback-only or the callback failed.
+     */
+    public static <R> R execute(String database, Connection connection, Utils.CheckedFunction<JDBCTransaction, R> callback) throws Exception {
+        if (current.get() != null) {
+            throw new IllegalStateException("Nested JDBC transactions are not supported.");
+        }
+
+        final JDBCTransaction tx = new JDBCTransaction(database, connection);
+        current.set(tx);
+
+        final R result;
+        try {
+            result = callback.apply(tx);
+        } catch (Throwable t) {
+            connection.rollback();
+            throw t;
+        } finally {
+            current.remove();
+        }
+
+        if (tx.isRollbackOnly()) {
+            connection.rollback();
+        } else {
+            connection.commit();
+
+            for (Runnable action : tx.afterCommitActions) {
+                action.run();
+            }
+        }
+        return result;
+    }
+
+    public boolean isBoundTo(String database) {
+        return Objects.equals(this.database, database);
+    }
+
+    public Connection connection() {
+        return boundConnection;
+    }
+
+    public void setRollbackOnly() {
+        this.rollbackOnly = true;
+    }
+
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    /**
+     * Registers the action that is performed right after the commit, on the thread that executed the transaction.
+     */
+    public void afterCommit(Runnable action) {
+        afterCommitActions.add(action);
+    }
+
+    private Connection createBoundConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                JDBCTransaction.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "commit":
+                        case "close":
+                            return null;
+
+                        case "rollback":
+                            if (args == null) {
+                                setRollbackOnly();
+                                return null;
+                            }
+                            break;
+                    }
+
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,77 @@
+package org.srg.smartclient;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the last sort key of the fetched pages, that makes it possible to locate
+ * the next page by the seek predicate instead of OFFSET.
+ *
+ * Pages are tracked per component and per query, since only the same query with the same parameters
+ * produces the same row sequence. All the entries are dropped on any modification of the data source
+ * or any data source it refers via foreignKey/includeFrom.
+ */
+public class KeysetPaginationCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final int DEFAULT_MAX_PAGES_PER_ENTRY = 64;
+
+    private record Key(String componentId, String operationId, String query, List<Object> params) {}
+
+    private final Map<Key, Map<Integer, Object[]>> entries;
+    private final int maxPagesPerEntry;
+
+    // Incremented on each invalidation, prevents caching of keys that were fetched before the modification
+    private long generation;
+
+    public KeysetPaginationCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_PAGES_PER_ENTRY);
+    }
+
+    public KeysetPaginationCache(int maxEntries, int maxPagesPerEntry) {
+        this.maxPagesPerEntry = maxPagesPerEntry;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Map<Integer, Object[]>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param endRow the row number right after the last row of the previously fetched page
+     * @return sort key values of the last row of the page that ends at {@code endRow}, or {@code null} if it is unknown
+     */
+    public synchronized Object[] get(String componentId, String operationId, String query, List<Object> params, int endRow) {
+        final Map<Integer, Object[]> pages = entries.get(new Key(componentId, operationId, query, params));
+        return pages == null ? null : pages.get(endRow);
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @param generation generation obtained before the page was fetched, key is not cached if the cache
+     *                   was invalidated since then
+     */
+    public synchronized void put(String componentId, String operationId, String query, List<Object> params, int endRow,
+                                 Object[] lastKey, long generation) {
+        if (this.generation != generation) {
+            return;
+        }
+
+        entries.computeIfAbsent(new Key(componentId, operationId, query, params), k -> new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+                        return size() > maxPagesPerEntry;
+                    }
+                })
+                .put(endRow, lastKey);
+    }
+
+    public synchronized void invalidate() {
+        ++generation;
+        entries.clear();
+    }
+}
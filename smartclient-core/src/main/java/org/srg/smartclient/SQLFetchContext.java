@@ -14,24 +14,64 @@ import org.srg.smartclient.utils.ContextualRuntimeException;
 import java.io.IOException;
 import java.util.*;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.AbstractSQLContext<JDBCHandler> {
     private static final Logger logger = LoggerFactory.getLogger(SQLFetchContext.class);
+
+    /**
+     * Templates that refer criteria produce SQL that depends on the criteria values, such SQL can't be cached.
+     */
+    private static final Pattern CRITERIA_REFERENCE = Pattern.compile("\\b(?:advancedCriteria|criteria)\\b");
+
+    /**
+     * @return {@code true} if the SQL template refers the criteria values
+     */
+    static boolean isCriteriaReferenced(String template) {
+        return template != null && CRITERIA_REFERENCE.matcher(template).find();
+    }
+
     private String genericQuery;
     private int pageSize;
     private String orderClause;
     private String paginationClause;
+    private String outputColumns;
 
     private final List<DSField> requestedFields = new LinkedList<>();
     private final Map<DSField, List<RelationSupport.ForeignRelation>> additionalOutputs = new HashMap<>();
     private List<JDBCHandler.IFilterData> filterData = new LinkedList<>();
 
+    private final List<KeysetColumn> keysetColumns = new LinkedList<>();
+
+    private final List<BatchedSummary> batchedSummaries = new LinkedList<>();
+    private String summaryKeyColumn;
+
+    // Summary fields used in criteria or in sortBy are always calculated by the SQL query itself
+    private Set<String> sqlSummaryFieldNames = Set.of();
+
     private Map<String, Object> templateContext;
 
     private String effectiveSQL;
 
+    /**
+     * Column used for keyset(seek) pagination, {@code columnName} is the column alias within the opaque query.
+     */
+    public record KeysetColumn(DSField field, String columnName, boolean descending) {}
+
+    /**
+     * Summary field that is calculated by a separate query for all the fetched rows at once,
+     * see {@link DataSource.IncludeSummaryStrategy#BATCHED}.
+     *
+     * @param index index of the field within the requested fields
+     * @param aggregate aggregate expression
+     * @param fromClause related table, followed by the join table if any
+     * @param foreignKeyColumn column of the related records that refers the summarized record
+     * @param count indicates that the summary is COUNT, that is 0 rather than NULL if there are no related records
+     */
+    public record BatchedSummary(int index, String aggregate, String fromClause, String foreignKeyColumn, boolean count) {}
+
     public SQLFetchContext(H dsHandler, DSRequest request, OperationBinding operationBinding) throws Exception {
         super(dsHandler, request, operationBinding);
         init();
@@ -122,13 +162,28 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
                             );
                     }
 
-                    final String query = fetchSummarized(ifr);
-                    effectiveColumn = """
-                            (
-                               /*  %s  */
-                               %s
-                            ) 
-                            """.formatted(extraInfo, query);
+                    final DataSource.IncludeSummaryStrategy summaryStrategy = getEffectiveSummaryStrategy(dsf);
+
+                    if (summaryStrategy == DataSource.IncludeSummaryStrategy.BATCHED) {
+                        // Value is provided by the subsequent query, see getBatchedSummaries()
+                        effectiveColumn = "NULL  /*  %s  */".formatted(extraInfo);
+                    } else if (summaryStrategy == DataSource.IncludeSummaryStrategy.SUBQUERY) {
+                        final String query = fetchSummarized(ifr, dsHandler().getDialect());
+                        effectiveColumn = """
+                                (
+                                   /*  %s  */
+                                   %s
+                                ) 
+                                """.formatted(extraInfo, query);
+                    } else {
+                        // Value is provided by the summary join, see getSummaryJoinClause()
+                        final String column = "%s.%s".formatted(getSummaryAlias(dsf), SUMMARY_VALUE_COLUMN);
+                        effectiveColumn = "%s  /*  %s  */".formatted(
+                                getSummaryFunction(ifr) == DSField.SummaryFunctionType.COUNT ?
+                                        "COALESCE(%s, 0)".formatted(column) : column,
+                                extraInfo
+                        );
+                    }
 
                 } else {
                     effectiveColumn = effectiveRelation.formatAsSQL();
@@ -177,38 +232,233 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
         return genericQuery;
     }
 
+    public boolean isKeysetPagination() {
+        return !keysetColumns.isEmpty();
+    }
+
+    public List<KeysetColumn> getKeysetColumns() {
+        return keysetColumns;
+    }
+
+    public List<BatchedSummary> getBatchedSummaries() {
+        return batchedSummaries;
+    }
+
+    /**
+     * @return column of the opaque query that contains the PK value the batched summaries refer to,
+     * {@code null} if there are no batched summaries
+     */
+    public String getSummaryKeyColumn() {
+        return summaryKeyColumn;
+    }
+
+    /**
+     * Generates the expanded form of the row value comparison, since not all the databases support
+     * row values and the columns can be sorted in different directions:
+     * <pre>
+     *     (c1 > ?) OR (c1 = ? AND c2 > ?) OR ...
+     * </pre>
+     *
+     * @see #getKeysetSeekParameters(Object[])
+     */
+    public String getKeysetSeekClause(String aliasOrTable) {
+        final List<String> disjuncts = new ArrayList<>(keysetColumns.size());
+
+        for (int i = 0; i < keysetColumns.size(); ++i) {
+            final List<String> conjuncts = new ArrayList<>(i + 1);
+
+            for (int j = 0; j < i; ++j) {
+                conjuncts.add("%s.%s = ?".formatted(aliasOrTable, keysetColumns.get(j).columnName()));
+            }
+
+            final KeysetColumn kc = keysetColumns.get(i);
+            conjuncts.add("%s.%s %s ?".formatted(aliasOrTable, kc.columnName(), kc.descending() ? "<" : ">"));
+
+            disjuncts.add("(%s)".formatted(String.join(" AND ", conjuncts)));
+        }
+
+        return String.join("\n\t\t OR ", disjuncts);
+    }
+
+    /**
+     * Only the own columns of the data source are known to be non-nullable, since included fields
+     * are fetched by outer joins and custom expressions may produce NULL regardless of the field settings.
+     */
+    private static boolean isNonNullable(DSField dsf) {
+        return dsf.isPrimaryKey()
+                || (dsf.isRequired() && !dsf.isIncludeField() && !dsf.isCustomSQL());
+    }
+
+    public List<Object> getKeysetSeekParameters(Object[] lastKey) {
+        assert lastKey.length == keysetColumns.size();
+
+        final List<Object> params = new LinkedList<>();
+        for (int i = 0; i < lastKey.length; ++i) {
+            params.addAll(Arrays.asList(lastKey).subList(0, i + 1));
+        }
+        return params;
+    }
+
+    /**
+     * Columns of the opaque query that are transferred to the application, fields that are used only for filtering
+     * are not included. Requested fields go first and preserve the original order, since the rows are read by
+     * the column position, they are followed by the keyset columns, if any.
+     *
+     * Custom SQL produces its own set of columns, therefore all of them are transferred as is.
+     */
+    public String getOutputColumns() {
+        return outputColumns;
+    }
+
+    private String buildOutputColumns(String aliasOrTable) {
+        if (operationBinding() != null && StringUtils.isNotBlank(operationBinding().getCustomSQL())) {
+            return "%s.*".formatted(aliasOrTable);
+        }
+
+        final List<String> columns = new ArrayList<>(requestedFields.size() + keysetColumns.size());
+
+        for (DSField dsf : requestedFields) {
+            // Sub-entity placeholder is always aliased as a field of the current data source
+            columns.add(AbstractDSHandler.isSubEntityFetchRequired(dsf) ?
+                    JDBCHandler.formatColumnNameToAvoidAnyPotentialDuplication(dataSource(), dsf)
+                    : formatFieldNameForSqlOrderClause(dsf));
+        }
+
+        for (KeysetColumn kc : keysetColumns) {
+            if (!columns.contains(kc.columnName())) {
+                columns.add(kc.columnName());
+            }
+        }
+
+        if (summaryKeyColumn != null && !columns.contains(summaryKeyColumn)) {
+            columns.add(summaryKeyColumn);
+        }
+
+        return columns.stream()
+                .map(c -> "%s.%s".formatted(aliasOrTable, c))
+                .collect(Collectors.joining(", "));
+    }
+
+    public String getKeysetPaginationClause() {
+        return pageSize <= 0 ? "" : dsHandler().getDialect().limitClause(pageSize);
+    }
+
     protected void init() throws IOException, TemplateException {
         this.pageSize = request().getEndRow() == -1 ? -1 : request().getEndRow() - request().getStartRow();
 
         // -- LIMIT
-        this.paginationClause = pageSize <= 0 ? "" : String.format("LIMIT %d OFFSET %d",
+        this.paginationClause = pageSize <= 0 ? "" : dsHandler().getDialect().paginationClause(
                 request().getEndRow(), request().getStartRow());
 
+        // -- WHERE
+        final Predicate<String> exclusionPredicate = createCriteriaExclusionPredicate(
+                operationBinding() != null? operationBinding().getExcludeCriteriaFields() : null);
+
+        this.filterData = dsHandler().generateFilterData(DSRequest.OperationType.FETCH,
+                request().getTextMatchStyle(),
+                request().getData(),
+                exclusionPredicate
+            );
+
+
+        final String whereClause = this.getFilterData().isEmpty() ?  "" : this.getFilterData().stream()
+                .map(fd -> fd.sql("opaque"))
+                .collect(Collectors.joining("\n\t\t AND "));
+
+        final Set<String> criteriaFieldNames;
+
+        if (request().getData() instanceof Map m) {
+            // It is required to make a copy of the original keySet to prevent it from the modifications
+            criteriaFieldNames = new HashSet<>(m.keySet());
+        } else if (request().getData() instanceof AdvancedCriteria ac) {
+            criteriaFieldNames = new HashSet<>(ac.getCriteriaFieldNames());
+        } else if (request().getData() == null) {
+            criteriaFieldNames = Set.of();
+        } else {
+            throw new IllegalStateException("Unsupported IDSRequestData type '%s'".formatted(request().getData().getClass().getCanonicalName()));
+        }
+
+        // -- re-use the previously built plan, if any
+        final boolean keysetPagination = pageSize > 0
+                && operationBinding() != null
+                && OperationBinding.PaginationStrategy.KEYSET.equals(operationBinding().getPaginationStrategy());
+
+        final FetchPlanCache.Key planKey = new FetchPlanCache.Key(
+                operationBinding(),
+                request().getOutputs(),
+                request().getAdditionalOutputs(),
+                request().getSortBy() == null ? null : List.copyOf(request().getSortBy()),
+                keysetPagination,
+                criteriaFieldNames,
+                whereClause,
+                getIncludeSummaryStrategy()
+        );
+
+        final long relationsGeneration = AbstractDSHandler.getRelationsGeneration();
+        final FetchPlanCache.FetchPlan cachedPlan = dsHandler().getFetchPlanCache().get(planKey, relationsGeneration);
+        if (cachedPlan != null) {
+            this.requestedFields.addAll(cachedPlan.requestedFields());
+            this.additionalOutputs.putAll(cachedPlan.additionalOutputs());
+            this.keysetColumns.addAll(cachedPlan.keysetColumns());
+            this.batchedSummaries.addAll(cachedPlan.batchedSummaries());
+            this.summaryKeyColumn = cachedPlan.summaryKeyColumn();
+            this.orderClause = cachedPlan.orderClause();
+            this.genericQuery = cachedPlan.genericQuery();
+            this.outputColumns = cachedPlan.outputColumns();
+            this.templateContext = createTemplateContext(cachedPlan.selectClause(), cachedPlan.fromClause(),
+                    cachedPlan.joinClause(), whereClause);
+            return;
+        }
+
         // -- fetch data
-        this.orderClause = request().getSortBy() == null || request().getSortBy().isEmpty() ? "" :  " ORDER BY \n" +
-                request().getSortBy().stream()
-                        .map(s -> {
-                            String order = "";
-                            switch (s.charAt(0)) {
-                                case '-':
-                                    order = " DESC";
-                                case '+':
-                                    s = s.substring(1);
-                                default:
-                                    final DSField dsf = dsHandler().getField(s);
-                                    if (dsf == null) {
-                                        throw new ContextualRuntimeException("Data source '%s': nothing known about field '%s' listed in order by clause."
-                                                .formatted(dataSource().getId(), s), this);
-                                    }
-
-                                    return "%s.%s%s"
-                                            .formatted(
-                                                    "opaque",
-                                                    formatFieldNameForSqlOrderClause(dsf),
-                                                    order
-                                            );
-                            }
-                        })
+        final List<KeysetColumn> sortColumns = new LinkedList<>();
+        if (request().getSortBy() != null) {
+            for (String s : request().getSortBy()) {
+                boolean descending = false;
+                switch (s.charAt(0)) {
+                    case '-':
+                        descending = true;
+                    case '+':
+                        s = s.substring(1);
+                    default:
+                        final DSField dsf = dsHandler().getField(s);
+                        if (dsf == null) {
+                            throw new ContextualRuntimeException("Data source '%s': nothing known about field '%s' listed in order by clause."
+                                    .formatted(dataSource().getId(), s), this);
+                        }
+
+                        sortColumns.add(new KeysetColumn(dsf, formatFieldNameForSqlOrderClause(dsf), descending));
+                }
+            }
+        }
+
+        /*
+         * Seek predicate never matches the rows with NULL sort key, therefore the nullable sort columns
+         * are paginated with OFFSET.
+         */
+        if (keysetPagination
+                && sortColumns.stream().allMatch(kc -> isNonNullable(kc.field()))) {
+            /*
+             * Seek requires unique and stable order, therefore order is extended with the PK fields
+             */
+            this.keysetColumns.addAll(sortColumns);
+            for (DSField pkf : dataSource().getPKFields()) {
+                if (sortColumns.stream().noneMatch(kc -> kc.field().equals(pkf))) {
+                    this.keysetColumns.add(new KeysetColumn(pkf, formatFieldNameForSqlOrderClause(pkf), false));
+                }
+            }
+        }
+
+        final List<KeysetColumn> effectiveSortColumns = isKeysetPagination() ? keysetColumns : sortColumns;
+        this.orderClause = effectiveSortColumns.isEmpty() ? "" :  " ORDER BY \n" +
+                effectiveSortColumns.stream()
+                        .map(kc -> "%s.%s%s"
+                                .formatted(
+                                        "opaque",
+                                        kc.columnName(),
+                                        kc.descending() ? " DESC" : ""
+                                )
+                        )
                         .collect(Collectors.joining(", "));
 
         // -- SELECT
@@ -318,6 +568,24 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
             this.additionalOutputs.putAll(additionalOutputs);
         }
 
+        // -- batched summaries
+        final Set<String> sqlSummaryFieldNames = new HashSet<>(criteriaFieldNames);
+        sortColumns.forEach(kc -> sqlSummaryFieldNames.add(kc.field().getName()));
+        this.sqlSummaryFieldNames = sqlSummaryFieldNames;
+
+        for (int i = 0; i < requestedFields.size(); ++i) {
+            final DSField dsf = requestedFields.get(i);
+
+            if (isSummaryJoinRequired(dsf)
+                    && getEffectiveSummaryStrategy(dsf) == DataSource.IncludeSummaryStrategy.BATCHED) {
+                final RelationSupport.ImportFromRelation ifr = dsHandler().describeImportFrom(dsf);
+                final SummaryQuery sq = describeSummaryQuery(ifr, dsHandler().getDialect());
+
+                batchedSummaries.add(new BatchedSummary(i, sq.aggregate(), sq.fromClause(), sq.foreignKeyColumn(),
+                        getSummaryFunction(ifr) == DSField.SummaryFunctionType.COUNT));
+            }
+        }
+
         // -- SELECT
 
         /*
@@ -325,18 +593,7 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
          *
          * Otherwise it WHERE clause will produce an error.
          */
-        Set<String> extraFieldNames;
-
-        if (request().getData() instanceof Map m) {
-            // It is required to make a copy of the original keySet to prevent it from the modifications
-            extraFieldNames = new HashSet<>(m.keySet());
-        } else if (request().getData() instanceof AdvancedCriteria ac) {
-            extraFieldNames = ac.getCriteriaFieldNames();
-        } else if (request().getData() == null) {
-            extraFieldNames = Set.of();
-        } else {
-            throw new IllegalStateException("Unsupported IDSRequestData type '%s'".formatted(request().getData().getClass().getCanonicalName()));
-        }
+        final Set<String> extraFieldNames = new HashSet<>(criteriaFieldNames);
 
         if (!extraFieldNames.isEmpty()) {
             extraFieldNames.removeIf(n -> requestedFields.stream().anyMatch(dsf -> dsf.getName().equals(n)));
@@ -374,6 +631,23 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
         effectiveFields.addAll(getRequestedFields());
         effectiveFields.addAll(extraFields);
 
+        // Seek requires values of all the keyset columns
+        for (KeysetColumn kc : keysetColumns) {
+            if (!effectiveFields.contains(kc.field())) {
+                effectiveFields.add(kc.field());
+            }
+        }
+
+        // Batched summaries are matched with the fetched rows by PK
+        if (!batchedSummaries.isEmpty()) {
+            final DSField pk = dataSource().getNonCompositePK();
+            this.summaryKeyColumn = formatFieldNameForSqlOrderClause(pk);
+
+            if (!effectiveFields.contains(pk)) {
+                effectiveFields.add(pk);
+            }
+        }
+
         final String selectClause = effectiveFields
                 .stream()
                 .map(this::formatFieldNameForSqlSelectClause)
@@ -384,9 +658,18 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
         final String fromClause = dataSource().getTableName();
 
         // -- JOIN ON
+
+        /*
+         * Only joins required by the requested, filtered and sorted fields are generated.
+         */
+        final Set<DSField> joinedFields = new HashSet<>(effectiveFields);
+        sortColumns.forEach(kc -> joinedFields.add(kc.field()));
+        final boolean pruneJoins = !isJoinPruningUnsafe(joinedFields);
+
         final List<RelationSupport.ForeignKeyRelation> foreignKeyRelations = dsHandler().getFields()
                 .stream()
                 .filter(dsf -> dsf.isIncludeField()
+                        && (!pruneJoins || joinedFields.contains(dsf))
                         /*
                          * Entities will be handled separately via sub-entity fetch request,
                          * therefore exclude this field from the sql join.
@@ -429,49 +712,13 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
                 })
                 .collect(Collectors.toList());
 
-        final String joinClause = JDBCHandler.AbstractSQLContext.generateSQLJoin(foreignKeyRelations);
+        final String joinClause = JDBCHandler.AbstractSQLContext.generateSQLJoin(foreignKeyRelations)
+                + getSummaryJoinClause(effectiveFields);
 
 
-        // -- WHERE
-        final Predicate<String> exclusionPredicate = createCriteriaExclusionPredicate(
-                operationBinding() != null? operationBinding().getExcludeCriteriaFields() : null);
-
-        this.filterData = dsHandler().generateFilterData(DSRequest.OperationType.FETCH,
-                request().getTextMatchStyle(),
-                request().getData(),
-                exclusionPredicate
-            );
-
-
-        final String whereClause = this.getFilterData().isEmpty() ?  "" : this.getFilterData().stream()
-                .map(fd -> fd.sql("opaque"))
-                .collect(Collectors.joining("\n\t\t AND "));
-
         // -- generate query
         {
-            this.templateContext = SQLTemplateEngine.createContext(request(), selectClause, fromClause, joinClause, whereClause, "");
-
-            templateContext.put("effectiveSelectClause", selectClause);
-
-            final String effectiveFROM = operationBinding() == null
-                    || operationBinding().getTableClause() == null
-                    || operationBinding().getTableClause().isBlank()
-                    ? fromClause : operationBinding().getTableClause();
-            templateContext.put("effectiveTableClause", effectiveFROM);
-
-            final String effectiveWhere = operationBinding() == null
-                    || operationBinding().getWhereClause() == null
-                    || operationBinding().getWhereClause().isBlank()
-                    ? whereClause : operationBinding().getWhereClause();
-            templateContext.put("effectiveWhereClause", effectiveWhere);
-
-
-            final String effectiveJoin = operationBinding() == null
-                    || operationBinding().getAnsiJoinClause() == null
-                    || operationBinding().getAnsiJoinClause().isBlank()
-                    ? joinClause : operationBinding().getAnsiJoinClause();
-            templateContext.put("effectiveAnsiJoinClause", effectiveJoin);
-
+            this.templateContext = createTemplateContext(selectClause, fromClause, joinClause, whereClause);
 
             final String defaultQuery = """
                     (
@@ -501,29 +748,197 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
                     """.formatted(operationBinding().getCustomSQL());
 
             this.genericQuery = SQLTemplateEngine.processSQL(templateContext, effectiveQuery);
+            this.outputColumns = buildOutputColumns("opaque");
+
+            final boolean dependsOnCriteriaValues = isCriteriaReferenced(effectiveQuery)
+                    || (operationBinding() != null
+                        && Stream.of(
+                                operationBinding().getTableClause(),
+                                operationBinding().getAnsiJoinClause(),
+                                operationBinding().getWhereClause()
+                            )
+                            .anyMatch(SQLFetchContext::isCriteriaReferenced));
+
+            if (!dependsOnCriteriaValues) {
+                dsHandler().getFetchPlanCache().put(planKey, new FetchPlanCache.FetchPlan(
+                        List.copyOf(requestedFields),
+                        Map.copyOf(additionalOutputs),
+                        List.copyOf(keysetColumns),
+                        List.copyOf(batchedSummaries),
+                        summaryKeyColumn,
+                        selectClause,
+                        fromClause,
+                        joinClause,
+                        orderClause,
+                        genericQuery,
+                        outputColumns
+                ), relationsGeneration);
+            }
+        }
+    }
 
-            /*
-             *  It seems that FreeMarker does not support recursive interpolations, therefore, as temporary workaround,
-             *  it is required to re-process  Query to do interpolations for the placeholders that
-             *  was introduced during the first interpolation.
-             */
-            this.genericQuery = SQLTemplateEngine.processSQL(templateContext,this.genericQuery);
+    /**
+     * Custom SQL snippets may refer to any joined table, in that case it is impossible to determine which joins
+     * are really required, therefore all the joins must be generated.
+     */
+    private boolean isJoinPruningUnsafe(Set<DSField> joinedFields) {
+        if (operationBinding() != null
+                && (StringUtils.isNotBlank(operationBinding().getCustomSQL())
+                    || StringUtils.isNotBlank(operationBinding().getTableClause())
+                    || StringUtils.isNotBlank(operationBinding().getWhereClause()))) {
+            return true;
+        }
+
+        return joinedFields.stream()
+                .filter(dsf -> !AbstractDSHandler.isSubEntityFetchRequired(dsf))
+                .map(dsf -> dsHandler().determineEffectiveField(dsf).field())
+                .anyMatch(dsf -> dsf.isCustomSQL() && StringUtils.isNotBlank(dsf.getCustomSelectExpression()));
+    }
+
+    /**
+     * Clauses provided by the operation binding are templates themselves, they are rendered before they are put
+     * into the context, therefore the effective query is rendered by a single pass. Clauses are rendered in the order
+     * they appear in the query, each of them may refer the effective clauses that precede it.
+     */
+    private Map<String, Object> createTemplateContext(String selectClause, String fromClause, String joinClause, String whereClause)
+            throws IOException, TemplateException {
+        final Map<String, Object> templateContext = SQLTemplateEngine.createContext(request(), selectClause, fromClause, joinClause, whereClause, "");
+
+        templateContext.put("effectiveSelectClause", selectClause);
+
+        final String effectiveFROM = operationBinding() == null
+                || operationBinding().getTableClause() == null
+                || operationBinding().getTableClause().isBlank()
+                ? fromClause : SQLTemplateEngine.processSQL(templateContext, operationBinding().getTableClause());
+        templateContext.put("effectiveTableClause", effectiveFROM);
+
+        final String effectiveJoin = operationBinding() == null
+                || operationBinding().getAnsiJoinClause() == null
+                || operationBinding().getAnsiJoinClause().isBlank()
+                ? joinClause : SQLTemplateEngine.processSQL(templateContext, operationBinding().getAnsiJoinClause());
+        templateContext.put("effectiveAnsiJoinClause", effectiveJoin);
+
+        final String effectiveWhere = operationBinding() == null
+                || operationBinding().getWhereClause() == null
+                || operationBinding().getWhereClause().isBlank()
+                ? whereClause : SQLTemplateEngine.processSQL(templateContext, operationBinding().getWhereClause());
+        templateContext.put("effectiveWhereClause", effectiveWhere);
+
+        return templateContext;
+    }
+
+    protected DataSource.IncludeSummaryStrategy getIncludeSummaryStrategy() {
+        final DataSource.IncludeSummaryStrategy strategy = dataSource().getIncludeSummaryStrategy();
+        return strategy == null ? DataSource.IncludeSummaryStrategy.SUBQUERY : strategy;
+    }
+
+    /**
+     * LATERAL falls back to SUBQUERY if the dialect does not support it, BATCHED falls back to SUBQUERY
+     * for the summary fields that are referred by the query itself (criteria, sortBy), not requested,
+     * or if the query is provided by the custom SQL.
+     */
+    protected DataSource.IncludeSummaryStrategy getEffectiveSummaryStrategy(DSField dsf) {
+        return switch (getIncludeSummaryStrategy()) {
+            case SUBQUERY -> DataSource.IncludeSummaryStrategy.SUBQUERY;
+
+            case LATERAL -> dsHandler().getDialect().supportsLateralJoin() ?
+                    DataSource.IncludeSummaryStrategy.LATERAL : DataSource.IncludeSummaryStrategy.SUBQUERY;
+
+            case BATCHED -> sqlSummaryFieldNames.contains(dsf.getName())
+                    || !requestedFields.contains(dsf)
+                    || (operationBinding() != null && StringUtils.isNotBlank(operationBinding().getCustomSQL())) ?
+                    DataSource.IncludeSummaryStrategy.SUBQUERY : DataSource.IncludeSummaryStrategy.BATCHED;
+        };
+    }
+
+    private boolean isSummaryJoinRequired(DSField dsf) {
+        return !AbstractDSHandler.isSubEntityFetchRequired(dsf)
+                && dsHandler().isIncludeSummaryRequired(dsf)
+                && !dsHandler().determineEffectiveField(dsf).field().isCustomSQL();
+    }
+
+    private static String getSummaryAlias(DSField dsf) {
+        return "_%sSummary".formatted(dsf.getName());
+    }
+
+    /**
+     * Generates LEFT JOIN LATERALs that provide values of the summary fields,
+     * if the {@link DataSource.IncludeSummaryStrategy#LATERAL} strategy is used.
+     */
+    protected String getSummaryJoinClause(Collection<DSField> fields) {
+        final StringBuilder sbld = new StringBuilder();
+
+        for (DSField dsf : fields) {
+            if (!isSummaryJoinRequired(dsf)
+                    || getEffectiveSummaryStrategy(dsf) != DataSource.IncludeSummaryStrategy.LATERAL) {
+                continue;
+            }
+
+            final RelationSupport.ImportFromRelation ifr = dsHandler().describeImportFrom(dsf);
+            final SummaryQuery sq = describeSummaryQuery(ifr, dsHandler().getDialect());
+            final String alias = getSummaryAlias(dsf);
+
+            sbld.append("""
+                    
+                    LEFT JOIN LATERAL (
+                        SELECT %s AS %s
+                            FROM %s
+                        WHERE %s = %s
+                    ) %s ON TRUE""".formatted(
+                            sq.aggregate(), SUMMARY_VALUE_COLUMN,
+                            sq.fromClause(),
+                            sq.sourcePkColumn(), sq.foreignKeyColumn(),
+                            alias
+                    )
+            );
         }
+
+        return sbld.toString();
     }
 
-    public static String fetchSummarized(RelationSupport.ImportFromRelation ifr) {
+    private static final String SUMMARY_VALUE_COLUMN = "summary_value";
+
+    /**
+     * Parts of the query that calculates the summary of the related records.
+     *
+     * @param aggregate aggregate expression
+     * @param fromClause related table, followed by the join table if any
+     * @param sourcePkColumn PK column of the summarized table, that is referred by the related records
+     * @param foreignKeyColumn column of the related records that refers the summarized record
+     */
+    private record SummaryQuery(String aggregate, String fromClause, String sourcePkColumn, String foreignKeyColumn) {}
+
+    private static DSField.SummaryFunctionType getSummaryFunction(RelationSupport.ImportFromRelation ifr) {
+        final DSField sourceField = ifr.sourceField();
+
+        if (sourceField.getIncludeSummaryFunction() != null) {
+            return sourceField.getIncludeSummaryFunction();
+        } else {
+            return DSField.SummaryFunctionType.CONCAT;
+        }
+    }
+
+    public static String fetchSummarized(RelationSupport.ImportFromRelation ifr, SqlDialect dialect) {
+        final SummaryQuery sq = describeSummaryQuery(ifr, dialect);
+
+        return """
+                SELECT %s
+                    FROM %s
+                WHERE %s = %s""".formatted(
+                        sq.aggregate(),
+                        sq.fromClause(),
+                        sq.sourcePkColumn(), sq.foreignKeyColumn()
+                );
+    }
+
+    private static SummaryQuery describeSummaryQuery(RelationSupport.ImportFromRelation ifr, SqlDialect dialect) {
         final DSField sourceField = ifr.sourceField();
         if (!sourceField.isIncludeField()
                 || !sourceField.isMultiple()) {
             throw new IllegalStateException();
         }
 
-        final DSField.SummaryFunctionType summaryFunction;
-        if (sourceField.getIncludeSummaryFunction() != null) {
-            summaryFunction = sourceField.getIncludeSummaryFunction();
-        } else {
-            summaryFunction = DSField.SummaryFunctionType.CONCAT;
-        }
+        final DSField.SummaryFunctionType summaryFunction = getSummaryFunction(ifr);
 
         /*
          * <em>Note:</em> that tables in sub-select will always use relatedTableAlias if set or automatically generated aliases.
@@ -554,10 +969,8 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
             fieldSeparator = ifr.foreignDisplay().getMultipleValueSeparator();
         }
 
-        // TODO: Think about DB agnostic approach: STRING_AGG is PostgreSQL specific
-        //       in MySQL it is GROUP_CONCAT and LISTAGG in Oracle.
         final String effectiveField = switch (summaryFunction) {
-            case CONCAT -> "STRING_AGG(%s, '%s')".formatted(fieldName, fieldSeparator);
+            case CONCAT -> dialect.stringAggregate(fieldName, fieldSeparator);
             case AVG, MAX, COUNT, MIN, SUM  -> "%s(%s)".formatted(summaryFunction.name(),fieldName);
             case FIRST -> "MIN(%s)".formatted(fieldName);
 
@@ -576,11 +989,7 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
                 .wrap();
         }
 
-        final StringBuilder sbld = new StringBuilder("""
-                SELECT %s
-                    FROM %s %s
-                """.formatted(
-                        effectiveField,
+        final StringBuilder sbld = new StringBuilder("%s %s".formatted(
                         fkr.foreign().dataSource().getTableName(),
                         effectiveRelatedTableAlias
                 )
@@ -600,17 +1009,15 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
             alias = effectiveRelatedTableAlias;
         }
 
-        // -- where
+        // -- correlation
         final DSField sourcePk = ifr.dataSource().getNonCompositePK();
         final DSField foreignPk = ifr.toForeignKeyRelation().foreign().field();
 
-        sbld.append('\n')
-                .append("WHERE %s.%s = %s.%s".formatted(
-                        ifr.dataSource().getTableName(), sourcePk.getDbName(),
-                        alias, foreignPk.getDbName()
-                    )
-                );
-
-        return sbld.toString();
+        return new SummaryQuery(
+                effectiveField,
+                sbld.toString(),
+                "%s.%s".formatted(ifr.dataSource().getTableName(), sourcePk.getDbName()),
+                "%s.%s".formatted(alias, foreignPk.getDbName())
+        );
     }
 }
@@ -12,6 +12,7 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -20,15 +21,70 @@ import java.util.Map;
  * @see <ahref="https://www.smartclient.com/smartclient-release/isomorphic/system/reference/?id=type..DefaultQueryClause">DefaultQueryClause</a>
  */
 public class SQLTemplateEngine {
+    public static final int MAX_CACHED_TEMPLATES = 256;
 
+    /**
+     * Configuration is thread-safe as long as it is not modified after creation.
+     */
+    private static final Configuration configuration = new Configuration(Configuration.VERSION_2_3_30);
+
+    /**
+     * Templates are cached by their source: the operation binding SQL or the generated query skeleton.
+     * Rendered SQL is never processed as a template, otherwise each criteria would produce its own entry.
+     */
+    private static final Map<String, Template> templates = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+            return size() > MAX_CACHED_TEMPLATES;
+        }
+    };
+
+    /**
+     * Renders the sql template once, plain SQL is returned as is.
+     */
     public static String processSQL(Map<String,Object> context, String sql) throws IOException, TemplateException {
-        final Configuration cfg = new Configuration(Configuration.VERSION_2_3_30);
-        final Template template = new Template("t", new StringReader(sql), cfg);
-        final Writer out = new StringWriter();
-        template.process(context, out);
+        if (!isTemplate(sql)) {
+            return sql;
+        }
+
+        final Writer out = new StringWriter(sql.length());
+        getTemplate(sql).process(context, out);
         return out.toString();
     }
 
+    /**
+     * Cheap check that allows to avoid parsing of the plain SQL.
+     */
+    protected static boolean isTemplate(String sql) {
+        return sql.contains("${")
+                || sql.contains("#{")
+                || sql.contains("<#")
+                || sql.contains("<@");
+    }
+
+    protected static Template getTemplate(String sql) throws IOException {
+        synchronized (templates) {
+            final Template cached = templates.get(sql);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // Parsing is performed outside the lock, concurrent parsing of the same template is harmless
+        final Template template = new Template("t", new StringReader(sql), configuration);
+
+        synchronized (templates) {
+            templates.put(sql, template);
+        }
+        return template;
+    }
+
+    protected static int getCachedTemplateCount() {
+        synchronized (templates) {
+            return templates.size();
+        }
+    }
+
     private static Map<String, Object> populateAdvancedCriteriaMap(Map<String, Object> values, Criteria ac) {
         if (ac.getFieldName() != null && !ac.getFieldName().isBlank()) {
             if (ac.getCriteria() != null && !ac.getCriteria().isEmpty()) {
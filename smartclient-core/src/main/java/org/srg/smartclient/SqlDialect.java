@@ -0,0 +1,263 @@
+package org.srg.smartclient;
+
+import org.srg.smartclient.isomorphic.Config;
+import org.srg.smartclient.isomorphic.DSField;
+import org.srg.smartclient.isomorphic.DataSource;
+
+/**
+ * Generates database specific SQL constructs, therefore the generated queries use the fastest native
+ * construct of each database instead of the lowest common denominator.
+ *
+ * Predicate templates contain a single {@code %s} placeholder for the column and a single {@code ?} parameter,
+ * the same way as the rest of the filter templates do.
+ *
+ * Default methods produce PostgreSQL/H2 compatible SQL, that was used before the dialects were introduced.
+ * Dialect is provided by the {@link JDBCHandler.JDBCPolicy#getDialect(String)}.
+ */
+public interface SqlDialect {
+    SqlDialect GENERIC = new SqlDialect() {
+        @Override
+        public String toString() {
+            return "GENERIC";
+        }
+    };
+
+    SqlDialect H2 = new H2Dialect();
+    SqlDialect POSTGRESQL = new PostgreSQLDialect();
+    SqlDialect MYSQL = new MySQLDialect(false);
+
+    static SqlDialect forDatabaseType(Config.SQLConfig.Connection.Database.DatabaseType type) {
+        if (type == null) {
+            return GENERIC;
+        }
+
+        return switch (type) {
+            case h2 -> H2;
+            case postgresql -> POSTGRESQL;
+            case mysql -> MYSQL;
+        };
+    }
+
+    /**
+     * @param productName as it is reported by {@link java.sql.DatabaseMetaData#getDatabaseProductName()}
+     */
+    static SqlDialect forProductName(String productName) {
+        if (productName == null) {
+            return GENERIC;
+        }
+
+        final String name = productName.toLowerCase();
+        if (name.contains("postgres")) {
+            return POSTGRESQL;
+        } else if (name.contains("mysql") || name.contains("mariadb")) {
+            return MYSQL;
+        } else if (name.equals("h2")) {
+            return H2;
+        }
+        return GENERIC;
+    }
+
+    /**
+     * Case-insensitive collation is an explicit opt-in, since it can't be verified for every compared column.
+     *
+     * @return dialect that relies on the case-insensitive collation of the compared columns instead of LOWER(),
+     * or this dialect if the database does not compare strings according to the column collation
+     */
+    default SqlDialect withCaseInsensitiveCollation() {
+        return this;
+    }
+
+    /**
+     * @return clause that limits the number of the fetched rows, it is appended after the ORDER BY
+     */
+    default String limitClause(int limit) {
+        return "LIMIT %d".formatted(limit);
+    }
+
+    /**
+     * @return clause that skips the {@code offset} rows and limits the number of the fetched rows,
+     * it is appended after the ORDER BY
+     */
+    default String paginationClause(int limit, int offset) {
+        return "LIMIT %d OFFSET %d".formatted(limit, offset);
+    }
+
+    /**
+     * @return aggregate function that concatenates the values with the separator
+     */
+    default String stringAggregate(String expression, String separator) {
+        return "STRING_AGG(%s, %s)".formatted(expression, quote(separator));
+    }
+
+    /**
+     * @return case-insensitive LIKE predicate template
+     */
+    default String caseInsensitiveLike(boolean isNot) {
+        return isNot ? "LOWER(%s) NOT LIKE LOWER(?)" : "LOWER(%s) LIKE LOWER(?)";
+    }
+
+    /**
+     * @return case-insensitive equality predicate template
+     */
+    default String caseInsensitiveEquals(boolean isNot) {
+        return isNot ? "LOWER(%s) <> LOWER(?)" : "LOWER(%s) = LOWER(?)";
+    }
+
+    /**
+     * @return {@code true} if the driver returns arbitrary requested columns of the inserted/updated rows
+     * via the generated keys (that is INSERT/UPDATE ... RETURNING), otherwise only the auto-generated key
+     * is returned and the modified rows must be re-fetched
+     */
+    default boolean supportsReturning() {
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the database supports {@code LEFT JOIN LATERAL}
+     */
+    default boolean supportsLateralJoin() {
+        return false;
+    }
+
+    /**
+     * ARRAY is never used by default, since the array element type is derived from the field type
+     * and does not match all the column types (e.g. uuid or enum columns compared with varchar[]).
+     *
+     * @return strategy used for the IN_SET criteria if it is not configured by the data source
+     */
+    default DataSource.InSetStrategy getDefaultInSetStrategy() {
+        return DataSource.InSetStrategy.PADDED;
+    }
+
+    /**
+     * @return predicate template that matches the column against all the elements of the array parameter
+     */
+    default String inArray() {
+        return "%s = ANY(?)";
+    }
+
+    /**
+     * @return SQL type name of the array elements, as it is expected by {@link java.sql.Connection#createArrayOf(String, Object[])}
+     */
+    default String arrayElementType(DSField.FieldType fieldType) {
+        if (fieldType == null) {
+            return "varchar";
+        }
+
+        return switch (fieldType) {
+            case INTEGER, INTENUM, SEQUENCE -> "bigint";
+            case FLOAT -> "float8";
+            case BOOLEAN -> "boolean";
+            case DATE -> "date";
+            case DATETIME, CREATORTIMESTAMP, MODIFIERTIMESTAMP -> "timestamp";
+            default -> "varchar";
+        };
+    }
+
+    /**
+     * @return SQL string literal
+     */
+    default String quote(String value) {
+        return "'%s'".formatted(value.replace("'", "''"));
+    }
+
+    class H2Dialect implements SqlDialect {
+        @Override
+        public String caseInsensitiveLike(boolean isNot) {
+            return isNot ? "%s NOT ILIKE ?" : "%s ILIKE ?";
+        }
+
+        @Override
+        public String toString() {
+            return "H2";
+        }
+    }
+
+    class PostgreSQLDialect implements SqlDialect {
+        @Override
+        public String limitClause(int limit) {
+            return "FETCH FIRST %d ROWS ONLY".formatted(limit);
+        }
+
+        @Override
+        public String paginationClause(int limit, int offset) {
+            return "OFFSET %d ROWS FETCH FIRST %d ROWS ONLY".formatted(offset, limit);
+        }
+
+        /**
+         * ILIKE can use a trigram index and works as is for the citext columns.
+         */
+        @Override
+        public String caseInsensitiveLike(boolean isNot) {
+            return isNot ? "%s NOT ILIKE ?" : "%s ILIKE ?";
+        }
+
+        @Override
+        public boolean supportsLateralJoin() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "POSTGRESQL";
+        }
+    }
+
+    /**
+     * MySQL compares strings according to the column collation. Case-insensitive predicates use LOWER() by default,
+     * since the case-sensitive ({@code _bin}, {@code _cs}) and binary collations are not rare. If all the compared
+     * columns have case-insensitive collation, {@link #withCaseInsensitiveCollation()} generates them without LOWER(),
+     * therefore the regular indexes can be used.
+     */
+    class MySQLDialect implements SqlDialect {
+        private final boolean caseInsensitiveCollation;
+
+        protected MySQLDialect(boolean caseInsensitiveCollation) {
+            this.caseInsensitiveCollation = caseInsensitiveCollation;
+        }
+
+        @Override
+        public SqlDialect withCaseInsensitiveCollation() {
+            return caseInsensitiveCollation ? this : new MySQLDialect(true);
+        }
+
+        @Override
+        public String stringAggregate(String expression, String separator) {
+            return "GROUP_CONCAT(%s SEPARATOR %s)".formatted(expression, quote(separator));
+        }
+
+        @Override
+        public String caseInsensitiveLike(boolean isNot) {
+            if (!caseInsensitiveCollation) {
+                return SqlDialect.super.caseInsensitiveLike(isNot);
+            }
+            return isNot ? "%s NOT LIKE ?" : "%s LIKE ?";
+        }
+
+        @Override
+        public String caseInsensitiveEquals(boolean isNot) {
+            if (!caseInsensitiveCollation) {
+                return SqlDialect.super.caseInsensitiveEquals(isNot);
+            }
+            return isNot ? "%s <> ?" : "%s = ?";
+        }
+
+        /**
+         * MySQL returns only the AUTO_INCREMENT value as a generated key.
+         */
+        @Override
+        public boolean supportsReturning() {
+            return false;
+        }
+
+        @Override
+        public String quote(String value) {
+            return "'%s'".formatted(value.replace("\\", "\\\\").replace("'", "''"));
+        }
+
+        @Override
+        public String toString() {
+            return caseInsensitiveCollation ? "MYSQL(case-insensitive collation)" : "MYSQL";
+        }
+    }
+}
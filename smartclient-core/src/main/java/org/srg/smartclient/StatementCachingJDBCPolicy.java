@@ -0,0 +1,325 @@
+package org.srg.smartclient;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srg.smartclient.utils.Utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link JDBCHandler.JDBCPolicy} decorator that keeps prepared statements open between the requests,
+ * therefore the database does not need to re-parse and re-plan the same SQL, that is especially efficient
+ * along with the fetch plan cache which produces exactly the same SQL text for the same kind of requests.
+ *
+ * Statements are cached per physical connection, since connection pools usually close all the statements
+ * opened through the pooled connection once it is returned to the pool. Each cache is a bounded LRU,
+ * evicted statements are closed.
+ *
+ * Closing a cached statement returns it to the cache: parameters are cleared and statement settings
+ * (max rows, fetch size and fetch direction) are restored to their initial values.
+ *
+ * Non auto-commit connection is always rolled back before it is returned to the pool, therefore the callback
+ * must commit everything it wants to keep.
+ */
+public class StatementCachingJDBCPolicy implements JDBCHandler.JDBCPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(StatementCachingJDBCPolicy.class);
+    public static final int DEFAULT_MAX_STATEMENTS_PER_CONNECTION = 64;
+
+    private record StatementKey(String sql, int resultSetType, int resultSetConcurrency) {}
+
+    private final JDBCHandler.JDBCPolicy delegate;
+    private final int maxStatementsPerConnection;
+
+    private final Map<Connection, StatementCache> caches = new IdentityHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public StatementCachingJDBCPolicy(JDBCHandler.JDBCPolicy delegate) {
+        this(delegate, DEFAULT_MAX_STATEMENTS_PER_CONNECTION);
+    }
+
+    public StatementCachingJDBCPolicy(JDBCHandler.JDBCPolicy delegate, int maxStatementsPerConnection) {
+        this.delegate = delegate;
+        this.maxStatementsPerConnection = maxStatementsPerConnection;
+    }
+
+    @Override
+    public void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+        delegate.withConnectionDo(database, connection -> {
+            final Connection physical = unwrap(connection);
+            try {
+                return callback.apply(createCachingConnection(connection, getStatementCache(physical)));
+            } finally {
+                rollbackIfNotCommitted(connection);
+                purgeClosedConnections();
+            }
+        });
+    }
+
+    /**
+     * Statements are executed on the physical connection, bypassing the statement proxies of the pool, therefore
+     * the pool does not know that the connection was used and may return it to the pool with an open transaction.
+     * Anything that was not committed by the callback is rolled back explicitly.
+     */
+    private static void rollbackIfNotCommitted(Connection connection) {
+        try {
+            if (!connection.isClosed() && !connection.getAutoCommit()) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            logger.warn("Can't roll back the connection that is returned to the pool.", e);
+        }
+    }
+
+    @Override
+    public SqlDialect getDialect(String database) {
+        return delegate.getDialect(database);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int getCachedStatementCount() {
+        return caches.values().stream()
+                .mapToInt(StatementCache::size)
+                .sum();
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCachingJDBCPolicy{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                '}';
+    }
+
+    private static Connection unwrap(Connection connection) {
+        try {
+            if (connection.isWrapperFor(Connection.class)) {
+                return connection.unwrap(Connection.class);
+            }
+        } catch (SQLException e) {
+            logger.debug("Can't unwrap connection, statements will be cached per pooled connection.", e);
+        }
+        return connection;
+    }
+
+    private synchronized StatementCache getStatementCache(Connection physical) {
+        StatementCache cache = caches.get(physical);
+
+        if (cache == null) {
+            cache = new StatementCache(physical);
+            caches.put(physical, cache);
+        }
+
+        return cache;
+    }
+
+    /**
+     * Forgets physical connections that were closed by the pool, along with their statements.
+     */
+    private synchronized void purgeClosedConnections() {
+        caches.keySet().removeIf(c -> {
+            try {
+                return c.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        });
+    }
+
+    private Connection createCachingConnection(Connection connection, StatementCache cache) {
+        return (Connection) Proxy.newProxyInstance(
+                StatementCachingJDBCPolicy.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    if ("prepareStatement".equals(method.getName())) {
+                        if (args.length == 1) {
+                            return cache.checkout((Connection) proxy,
+                                    new StatementKey((String) args[0], ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY));
+                        }
+
+                        if (args.length == 3
+                                && method.getParameterTypes()[1] == int.class
+                                && method.getParameterTypes()[2] == int.class) {
+                            return cache.checkout((Connection) proxy,
+                                    new StatementKey((String) args[0], (Integer) args[1], (Integer) args[2]));
+                        }
+                    }
+
+                    return invoke(connection, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class CachedStatement {
+        private final StatementKey key;
+        private final PreparedStatement statement;
+        private final int maxRows;
+        private final int fetchSize;
+        private final int fetchDirection;
+        private boolean inUse;
+        private boolean evicted;
+
+        private CachedStatement(StatementKey key, PreparedStatement statement) throws SQLException {
+            this.key = key;
+            this.statement = statement;
+            this.maxRows = statement.getMaxRows();
+            this.fetchSize = statement.getFetchSize();
+            this.fetchDirection = statement.getFetchDirection();
+        }
+
+        private void reset() throws SQLException {
+            statement.clearParameters();
+            statement.clearWarnings();
+            statement.setMaxRows(maxRows);
+            statement.setFetchSize(fetchSize);
+            statement.setFetchDirection(fetchDirection);
+        }
+    }
+
+    private class StatementCache {
+        private final Connection physical;
+        private final Map<StatementKey, CachedStatement> statements;
+
+        private StatementCache(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+                    if (size() <= maxStatementsPerConnection) {
+                        return false;
+                    }
+
+                    final CachedStatement cs = eldest.getValue();
+                    if (cs.inUse) {
+                        // Will be closed once it is released
+                        cs.evicted = true;
+                    } else {
+                        closeQuietly(cs.statement);
+                    }
+                    return true;
+                }
+            };
+        }
+
+        private synchronized int size() {
+            return statements.size();
+        }
+
+        private PreparedStatement checkout(Connection logicalConnection, StatementKey key) throws SQLException {
+            synchronized (this) {
+                final CachedStatement cs = statements.get(key);
+
+                if (cs != null && cs.statement.isClosed()) {
+                    statements.remove(key);
+                } else if (cs != null && !cs.inUse) {
+                    cs.inUse = true;
+                    hits.incrementAndGet();
+                    return createStatementHandle(logicalConnection, cs);
+                } else if (cs != null) {
+                    // The same statement is already in use, e.g. by a nested fetch, it can't be shared
+                    misses.incrementAndGet();
+                    return physical.prepareStatement(key.sql(), key.resultSetType(), key.resultSetConcurrency());
+                }
+            }
+
+            misses.incrementAndGet();
+            final CachedStatement cs = new CachedStatement(key,
+                    physical.prepareStatement(key.sql(), key.resultSetType(), key.resultSetConcurrency()));
+            cs.inUse = true;
+
+            synchronized (this) {
+                statements.putIfAbsent(key, cs);
+                if (statements.get(key) != cs) {
+                    // Concurrently cached, therefore this statement will be closed on release
+                    cs.evicted = true;
+                }
+            }
+
+            return createStatementHandle(logicalConnection, cs);
+        }
+
+        private void release(CachedStatement cs) {
+            synchronized (this) {
+                if (!cs.evicted) {
+                    try {
+                        cs.reset();
+                        cs.inUse = false;
+                        return;
+                    } catch (SQLException e) {
+                        logger.debug("Can't reset cached statement, it will be closed.", e);
+                        statements.remove(cs.key, cs);
+                    }
+                }
+            }
+
+            closeQuietly(cs.statement);
+        }
+
+        private PreparedStatement createStatementHandle(Connection logicalConnection, CachedStatement cs) {
+            final boolean[] closed = {false};
+
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    StatementCachingJDBCPolicy.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getDeclaringClass() == Object.class) {
+                            return invoke(cs.statement, method, args);
+                        }
+
+                        switch (method.getName()) {
+                            case "close":
+                                if (!closed[0]) {
+                                    closed[0] = true;
+                                    release(cs);
+                                }
+                                return null;
+
+                            case "isClosed":
+                                return closed[0] || cs.statement.isClosed();
+
+                            case "getConnection":
+                                return logicalConnection;
+
+                            default:
+                                if (closed[0]) {
+                                    throw new SQLException("Statement is closed.");
+                                }
+                                return invoke(cs.statement, method, args);
+                        }
+                    });
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.debug("Can't close cached statement.", e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.srg.smartclient;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches totalRows calculated for paginated fetches of a single data source.
+ *
+ * Entry is identified by the operationId and the generated query with its parameters, therefore
+ * scrolling through the same filtered grid re-uses the previously calculated total.
+ *
+ * Entries expire after the max age provided by the operation binding, all the entries
+ * are dropped on any modification of the data source or any data source it refers via foreignKey/includeFrom.
+ */
+public class TotalRowsCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private record Key(String operationId, String query, List<Object> params) {}
+    private record CachedTotal(int totalRows, long expiresAt) {}
+
+    private final Map<Key, CachedTotal> entries;
+
+    // Incremented on each invalidation, prevents caching of totals that were calculated before the modification
+    private long generation;
+
+    public TotalRowsCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public TotalRowsCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedTotal> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return cached total or {@code null} if there is no cached value or it is expired
+     */
+    public synchronized Integer get(String operationId, String query, List<Object> params) {
+        final Key key = new Key(operationId, query, params);
+        final CachedTotal e = entries.get(key);
+
+        if (e == null) {
+            return null;
+        }
+
+        if (e.expiresAt() - System.nanoTime() <= 0) {
+            entries.remove(key);
+            return null;
+        }
+
+        return e.totalRows();
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @param generation generation obtained before the total was calculated, total is not cached if the cache
+     *                   was invalidated since then
+     */
+    public synchronized void put(String operationId, String query, List<Object> params, int totalRows, int maxAgeSeconds,
+                                 long generation) {
+        if (maxAgeSeconds <= 0 || this.generation != generation) {
+            return;
+        }
+
+        entries.put(new Key(operationId, query, params),
+                new CachedTotal(totalRows, System.nanoTime() + TimeUnit.SECONDS.toNanos(maxAgeSeconds)));
+    }
+
+    public synchronized void invalidate() {
+        ++generation;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
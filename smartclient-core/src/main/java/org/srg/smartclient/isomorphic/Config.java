@@ -44,11 +44,18 @@ final public class Config {
             public static class Database {
                 public enum DatabaseType {
                     mysql,
+                    postgresql,
                     h2
                 }
                 private DatabaseType type;
                 private boolean ansiMode = false;
 
+                /**
+                 * Whether all the compared string columns have case-insensitive collation,
+                 * see {@link org.srg.smartclient.SqlDialect#withCaseInsensitiveCollation()}.
+                 */
+                private boolean caseInsensitiveCollation = false;
+
                 public DatabaseType getType() {
                     return type;
                 }
@@ -56,6 +63,10 @@ final public class Config {
                 public boolean isAnsiMode() {
                     return ansiMode;
                 }
+
+                public boolean isCaseInsensitiveCollation() {
+                    return caseInsensitiveCollation;
+                }
             }
 
             private String name;
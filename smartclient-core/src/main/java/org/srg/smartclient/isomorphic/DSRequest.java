@@ -5,7 +5,7 @@ import java.util.*;
 /**
  * https://www.smartclient.com/smartgwt/javadoc/com/smartgwt/client/data/DSRequest.html
  */
-public class DSRequest implements IDSRequest {
+public class DSRequest implements IDSRequest, Cloneable {
     @Override
     public Iterator<DSRequest> iterator() {
         return Collections.singleton(this).iterator();
@@ -192,7 +192,25 @@ public class DSRequest implements IDSRequest {
         this.additionalOutputs = additionalOutputs;
     }
 
-    public static class MapData extends HashMap implements IDSRequestData {
+    /**
+     * @return shallow copy of the request, of the same class as the request itself
+     */
+    public DSRequest copy() {
+        try {
+            return (DSRequest) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class MapData extends HashMap<String, Object> implements IDSRequestData {
+
+    }
+
+    /**
+     * Multiple records, is used by the batch ADD.
+     */
+    public static class ListData extends ArrayList<Map<String, Object>> implements IDSRequestData {
 
     }
 }
@@ -13,6 +13,7 @@ public class DSResponse {
     private static final int STATUS_MAX_LOGIN_ATTEMPTS_EXCEEDED = -6;
     private static final int STATUS_LOGIN_REQUIRED = -7;
     private static final int STATUS_LOGIN_SUCCESS = -8;
+    public static final int STATUS_TRANSACTION_FAILED = -10;
     private static final int STATUS_TRANSPORT_ERROR = -90;
     private static final int STATUS_SERVER_TIMEOUT = -100;
 
@@ -88,6 +89,15 @@ public class DSResponse {
         return retVal;
     }
 
+    /**
+     * Response for an operation that was rolled back due to a failure of another operation within the same queue.
+     */
+    public static DSResponse transactionFailed(String message, Object... args) {
+        final DSResponse retVal = failure(message, args);
+        retVal.setStatus(DSResponse.STATUS_TRANSACTION_FAILED);
+        return retVal;
+    }
+
     public static DSResponse successFetch(int startRow, int endRow, Iterable<DSField> fields, Iterable<Object[]> data) {
         return successFetch(startRow, endRow, -1, fields, data);
     }
@@ -29,6 +29,19 @@ public final class DSResponseDataContainer {
         return generalFailure;
     }
 
+    /**
+     * Rows that are read from the data store while they are being consumed, rather than retained in memory.
+     *
+     * Rows can be traversed only once, either by {@link #forEach(java.util.function.Consumer)} or by
+     * {@link #iterator()}, any subsequent traversal fails with {@link IllegalStateException}.
+     * Resources are released once the traversal ends, the iterator that is not traversed to the end
+     * must be closed explicitly.
+     */
+    public interface StreamedData extends Iterable<Object[]>, AutoCloseable {
+        @Override
+        void close();
+    }
+
     public static class RawDataResponse {
         private final Iterable<DSField> fields;
         private final Iterable<Object[]> data;
@@ -45,6 +58,10 @@ public final class DSResponseDataContainer {
         public Iterable<Object[]> getData() {
             return data;
         }
+
+        public boolean isStreamed() {
+            return data instanceof StreamedData;
+        }
     }
 
     public static DSResponseDataContainer createRaw(Iterable<DSField> fields, Iterable<Object[]> data) {
@@ -23,6 +23,57 @@ public class DataSource {
         NOT_AVAILABLE
     }
 
+    /**
+     * Server side only.
+     *
+     * Determines how the fields with includeSummaryFunction are fetched.
+     */
+    public enum IncludeSummaryStrategy {
+        /**
+         * Correlated sub-query in the SELECT clause, the aggregate is calculated once per fetched row.
+         */
+        SUBQUERY,
+
+        /**
+         * LEFT JOIN LATERAL with the correlated sub-query, it is used only if the dialect supports LATERAL,
+         * see {@link org.srg.smartclient.SqlDialect#supportsLateralJoin()}, otherwise {@link #SUBQUERY} is used.
+         */
+        LATERAL,
+
+        /**
+         * Aggregates are calculated after the page is fetched, by a single query per field that is restricted
+         * to the keys of the fetched rows and grouped by the referring key.
+         *
+         * Summary fields that are used in criteria or in sortBy are still calculated by the {@link #SUBQUERY}.
+         */
+        BATCHED
+    }
+
+    /**
+     * Server side only.
+     *
+     * Determines how the values of the IN_SET criteria are bound to the query.
+     */
+    public enum InSetStrategy {
+        /**
+         * One parameter per value, each list size produces a different query.
+         */
+        EXPANDED,
+
+        /**
+         * One parameter per value, the list is padded with its last value up to the next power of two, therefore
+         * only a few query shapes are produced. Too long lists are split into several IN lists of the max bucket size.
+         */
+        PADDED,
+
+        /**
+         * All the values are bound as a single array parameter, {@code = ANY(?)}, requires array support
+         * from the database and the driver. Must be enabled explicitly, only for the data sources whose IN_SET
+         * columns match the array element type derived from the field type.
+         */
+        ARRAY
+    }
+
     private String id;
     private DSServerType serverType;
     private String dbName;
@@ -56,6 +107,58 @@ public class DataSource {
 
     private List<OperationBinding> operationBindings;
 
+    /**
+     * Server side only.
+     *
+     * If enabled, totalRows of the paginated fetch is calculated concurrently with the page query,
+     * by a separate connection.
+     *
+     * Each concurrent fetch holds two pooled connections at once, therefore the pool should be sized for twice
+     * the number of the concurrent fetches. If the second connection is not available within a short timeout,
+     * totalRows is calculated by the connection of the page query instead.
+     */
+    private boolean concurrentTotalRows = false;
+
+    /**
+     * Server side only.
+     *
+     * Maximum number of cached fetch responses, 0 disables caching. Intended for the reference data that is
+     * fetched over and over again and rarely modified.
+     *
+     * Cached responses are dropped on any add/update/remove performed by this data source or by any data source
+     * it refers via foreignKey/includeFrom.
+     */
+    private int fetchCacheMaxEntries = 0;
+
+    /**
+     * Server side only.
+     *
+     * Number of seconds fetch response is cached, 0 means that responses never expire.
+     */
+    private int fetchCacheMaxAge = 0;
+
+    /**
+     * Server side only.
+     *
+     * If enabled, added or updated row is returned by the modification statement itself, as the generated
+     * columns (that is INSERT/UPDATE ... RETURNING for the databases that support it), instead of the
+     * subsequent fetch. Subsequent fetch is still used if any of the returned fields can't be read from
+     * the table directly, like includeFrom or calculated fields, or if the driver does not return the columns.
+     */
+    private boolean captureModifiedRows = false;
+
+    /**
+     * Server side only.
+     */
+    private IncludeSummaryStrategy includeSummaryStrategy = IncludeSummaryStrategy.SUBQUERY;
+
+    /**
+     * Server side only.
+     *
+     * If not set, the default strategy of the SQL dialect is used.
+     */
+    private InSetStrategy inSetStrategy;
+
     private String serverConstructor;
 
     public void setId(String id) {
@@ -144,6 +247,54 @@ public class DataSource {
         this.deletionType = deletionType;
     }
 
+    public boolean isConcurrentTotalRows() {
+        return concurrentTotalRows;
+    }
+
+    public void setConcurrentTotalRows(boolean concurrentTotalRows) {
+        this.concurrentTotalRows = concurrentTotalRows;
+    }
+
+    public int getFetchCacheMaxEntries() {
+        return fetchCacheMaxEntries;
+    }
+
+    public void setFetchCacheMaxEntries(int fetchCacheMaxEntries) {
+        this.fetchCacheMaxEntries = fetchCacheMaxEntries;
+    }
+
+    public int getFetchCacheMaxAge() {
+        return fetchCacheMaxAge;
+    }
+
+    public void setFetchCacheMaxAge(int fetchCacheMaxAge) {
+        this.fetchCacheMaxAge = fetchCacheMaxAge;
+    }
+
+    public boolean isCaptureModifiedRows() {
+        return captureModifiedRows;
+    }
+
+    public void setCaptureModifiedRows(boolean captureModifiedRows) {
+        this.captureModifiedRows = captureModifiedRows;
+    }
+
+    public IncludeSummaryStrategy getIncludeSummaryStrategy() {
+        return includeSummaryStrategy;
+    }
+
+    public void setIncludeSummaryStrategy(IncludeSummaryStrategy includeSummaryStrategy) {
+        this.includeSummaryStrategy = includeSummaryStrategy;
+    }
+
+    public InSetStrategy getInSetStrategy() {
+        return inSetStrategy;
+    }
+
+    public void setInSetStrategy(InSetStrategy inSetStrategy) {
+        this.inSetStrategy = inSetStrategy;
+    }
+
     //    public String getSchemaBean() {
 //        return schemaBean;
 //    }
@@ -10,6 +10,48 @@ package org.srg.smartclient.isomorphic;
  *
  */
 public class OperationBinding {
+
+    /**
+     * Determines how the total number of rows is calculated for paginated fetches.
+     */
+    public enum TotalRowsStrategy {
+        /**
+         * Separate {@code SELECT count(*)} query is executed before the data query.
+         */
+        COUNT,
+
+        /**
+         * Total is calculated by the {@code COUNT(*) OVER()} window function within the data query,
+         * the separate count query is executed only if the requested page is empty.
+         */
+        WINDOW_FUNCTION,
+
+        /**
+         * Total is calculated by the capped count query, that stops counting after
+         * {@link #getEstimatedTotalRowsLimit()} rows. Intended for the huge tables where exact total is too expensive.
+         */
+        ESTIMATED
+    }
+
+    /**
+     * Determines how the requested page is located for paginated fetches.
+     */
+    public enum PaginationStrategy {
+        /**
+         * {@code LIMIT ... OFFSET ...}
+         */
+        OFFSET,
+
+        /**
+         * The next page is located by the last sort key of the previous page ({@code WHERE (sort columns) > (?, ..)}),
+         * that keeps the deep scrolling cost flat. Sort order is extended with the primary key to make it unique.
+         *
+         * Falls back to OFFSET if the previous page is unknown, like for the random jumps, and if any of the sort
+         * fields is nullable, that is neither a primary key nor a required field of the data source's own table.
+         */
+        KEYSET
+    }
+
     private DSRequest.OperationType operationType;
     private String operationId = "";
 
@@ -64,6 +106,60 @@ public class OperationBinding {
      */
     private String customSQL = "";
 
+    /**
+     * Applicable to fetch operations only.
+     *
+     * @see TotalRowsStrategy
+     */
+    private TotalRowsStrategy totalRowsStrategy = TotalRowsStrategy.COUNT;
+
+    /**
+     * Applicable to fetch operations only.
+     *
+     * @see PaginationStrategy
+     */
+    private PaginationStrategy paginationStrategy = PaginationStrategy.OFFSET;
+
+    /**
+     * Applicable to fetch operations only.
+     *
+     * If enabled, fetched rows are serialized straight from the open ResultSet, instead of being loaded in memory,
+     * that is intended for the large unpaginated fetches and exports. Fetches that include sub-entities
+     * or use keyset pagination are never streamed.
+     */
+    private boolean streamingFetch = false;
+
+    /**
+     * Maximum number of rows counted by the {@link TotalRowsStrategy#ESTIMATED} strategy.
+     */
+    private int estimatedTotalRowsLimit = 10000;
+
+    /**
+     * Applicable to fetch operations only.
+     *
+     * Number of seconds calculated totalRows is cached for the same criteria, 0 disables caching.
+     * Cached totals are dropped on any add/update/remove performed by the data source.
+     */
+    private int totalRowsCacheMaxAge = 0;
+
+    /**
+     * Applicable to fetch operations only.
+     *
+     * If enabled, sub-entities of different fields are fetched concurrently, each field by its own connection,
+     * otherwise all of them are fetched one by one by the same connection as the main fetch, that must be kept
+     * if transactional consistency is required.
+     *
+     * Each concurrent fetch holds up to {@link #subEntityFetchParallelism} additional pooled connections along with
+     * its own one. If an additional connection is not available within a short timeout, the remaining sub-entities
+     * are fetched by the connection of the main fetch.
+     */
+    private boolean parallelSubEntityFetch = false;
+
+    /**
+     * Maximum number of sub-entity fetches performed concurrently for a single request.
+     */
+    private int subEntityFetchParallelism = 4;
+
     public DSRequest.OperationType getOperationType() {
         return operationType;
     }
@@ -119,4 +215,60 @@ public class OperationBinding {
     public void setCustomSQL(String customSQL) {
         this.customSQL = customSQL;
     }
+
+    public TotalRowsStrategy getTotalRowsStrategy() {
+        return totalRowsStrategy;
+    }
+
+    public void setTotalRowsStrategy(TotalRowsStrategy totalRowsStrategy) {
+        this.totalRowsStrategy = totalRowsStrategy;
+    }
+
+    public int getEstimatedTotalRowsLimit() {
+        return estimatedTotalRowsLimit;
+    }
+
+    public void setEstimatedTotalRowsLimit(int estimatedTotalRowsLimit) {
+        this.estimatedTotalRowsLimit = estimatedTotalRowsLimit;
+    }
+
+    public int getTotalRowsCacheMaxAge() {
+        return totalRowsCacheMaxAge;
+    }
+
+    public void setTotalRowsCacheMaxAge(int totalRowsCacheMaxAge) {
+        this.totalRowsCacheMaxAge = totalRowsCacheMaxAge;
+    }
+
+    public PaginationStrategy getPaginationStrategy() {
+        return paginationStrategy;
+    }
+
+    public void setPaginationStrategy(PaginationStrategy paginationStrategy) {
+        this.paginationStrategy = paginationStrategy;
+    }
+
+    public boolean isStreamingFetch() {
+        return streamingFetch;
+    }
+
+    public void setStreamingFetch(boolean streamingFetch) {
+        this.streamingFetch = streamingFetch;
+    }
+
+    public boolean isParallelSubEntityFetch() {
+        return parallelSubEntityFetch;
+    }
+
+    public void setParallelSubEntityFetch(boolean parallelSubEntityFetch) {
+        this.parallelSubEntityFetch = parallelSubEntityFetch;
+    }
+
+    public int getSubEntityFetchParallelism() {
+        return subEntityFetchParallelism;
+    }
+
+    public void setSubEntityFetchParallelism(int subEntityFetchParallelism) {
+        this.subEntityFetchParallelism = subEntityFetchParallelism;
+    }
 }
@@ -0,0 +1,357 @@
+package org.srg.smartclient.isomorphic.criteria;
+
+import org.srg.smartclient.isomorphic.DSField;
+import org.srg.smartclient.isomorphic.DSResponseDataContainer;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates criteria over the already fetched rows, the rows are laid out the same way as
+ * {@link DSResponseDataContainer.RawDataResponse#getData()}: one array element per field.
+ *
+ * Semantics follow the SQL generated by the AdvancedJDBCHandler, including the three-valued logic:
+ * a comparison with NULL is unknown and the row matches only if the whole criteria is true. LIKE based
+ * operators treat '%' and '_' in the value as wildcards, case-insensitive operators compare LOWER() values.
+ *
+ * Criteria is compiled once, the resulting predicate can be applied to any number of rows.
+ */
+public final class CriteriaEvaluator {
+
+    /**
+     * Three-valued condition: {@code null} stands for unknown.
+     */
+    @FunctionalInterface
+    private interface Condition {
+        Boolean test(Object[] row);
+    }
+
+    private CriteriaEvaluator() {}
+
+    /**
+     * @param fields column layout of the rows
+     * @throws IllegalArgumentException if the criteria refers a field that is not a part of the layout
+     */
+    public static Predicate<Object[]> compile(Criteria criteria, Iterable<DSField> fields) {
+        final Map<String, Integer> columns = new HashMap<>();
+        int idx = 0;
+        for (DSField f : fields) {
+            columns.put(f.getName(), idx++);
+        }
+
+        final Condition condition = compile(criteria, columns);
+        return row -> Boolean.TRUE.equals(condition.test(row));
+    }
+
+    /**
+     * @return rows that satisfy the criteria, in the original order
+     */
+    public static List<Object[]> filter(DSResponseDataContainer.RawDataResponse raw, Criteria criteria) {
+        final Predicate<Object[]> predicate = compile(criteria, raw.getFields());
+        final List<Object[]> result = new ArrayList<>();
+        raw.getData().forEach(row -> {
+            if (predicate.test(row)) {
+                result.add(row);
+            }
+        });
+        return result;
+    }
+
+    private static Condition compile(Criteria c, Map<String, Integer> columns) {
+        if (c.getFieldName() == null || c.getFieldName().isBlank()) {
+            final List<Condition> conditions = c.getCriteria() == null ? List.of() : c.getCriteria().stream()
+                    .map(cc -> compile(cc, columns))
+                    .collect(Collectors.toList());
+
+            return switch (c.getOperator()) {
+                case AND -> and(conditions);
+                case OR -> or(conditions);
+                case NOT -> conditions.isEmpty() ? row -> Boolean.TRUE : not(or(conditions));
+                case NOOP -> row -> Boolean.TRUE;
+                default -> throw new IllegalArgumentException("Operator '%s' requires a field name."
+                        .formatted(c.getOperator()));
+            };
+        }
+
+        final Integer column = columns.get(c.getFieldName());
+        if (column == null) {
+            throw new IllegalArgumentException("Nothing known about field '%s'.".formatted(c.getFieldName()));
+        }
+
+        final int idx = column;
+        final Object value = c.getValue();
+
+        return switch (c.getOperator()) {
+            case IS_NULL, IS_BLANK -> row -> row[idx] == null;
+            case NOT_NULL, NOT_BLANK -> row -> row[idx] != null;
+
+            case EQUALS -> row -> compare(row[idx], value, false, cmp -> cmp == 0);
+            case NOT_EQUAL -> row -> compare(row[idx], value, false, cmp -> cmp != 0);
+            case IEQUALS -> row -> compare(row[idx], value, true, cmp -> cmp == 0);
+            case INOT_EQUAL -> row -> compare(row[idx], value, true, cmp -> cmp != 0);
+
+            case GREATER_THAN -> row -> compare(row[idx], value, false, cmp -> cmp > 0);
+            case GREATER_OR_EQUAL -> row -> compare(row[idx], value, false, cmp -> cmp >= 0);
+            case LESS_THAN -> row -> compare(row[idx], value, false, cmp -> cmp < 0);
+            case LESS_OR_EQUAL -> row -> compare(row[idx], value, false, cmp -> cmp <= 0);
+
+            case BETWEEN -> and(List.of(
+                    row -> compare(row[idx], c.getStart(), false, cmp -> cmp > 0),
+                    row -> compare(row[idx], c.getEnd(), false, cmp -> cmp < 0)
+            ));
+            case BETWEEN_INCLUSIVE -> and(List.of(
+                    row -> compare(row[idx], c.getStart(), false, cmp -> cmp >= 0),
+                    row -> compare(row[idx], c.getEnd(), false, cmp -> cmp <= 0)
+            ));
+
+            case STARTS_WITH, NOT_STARTS_WITH, ISTARTS_WITH, INOT_STARTS_WITH,
+                    ENDS_WITH, NOT_ENDS_WITH, IENDS_WITH, INOT_ENDS_WITH,
+                    CONTAINS, NOT_CONTAINS, ICONTAINS, INOT_CONTAINS -> like(idx, c.getOperator(), value);
+
+            case IN_SET -> inSet(idx, value);
+            case NOT_IN_SET -> not(inSet(idx, value));
+
+            default -> throw new IllegalArgumentException("Operator '%s' can't be applied to the field '%s'."
+                    .formatted(c.getOperator(), c.getFieldName()));
+        };
+    }
+
+    private static Condition and(List<Condition> conditions) {
+        return row -> {
+            Boolean result = Boolean.TRUE;
+            for (Condition c : conditions) {
+                final Boolean r = c.test(row);
+                if (Boolean.FALSE.equals(r)) {
+                    return Boolean.FALSE;
+                }
+                if (r == null) {
+                    result = null;
+                }
+            }
+            return result;
+        };
+    }
+
+    private static Condition or(List<Condition> conditions) {
+        if (conditions.isEmpty()) {
+            // Empty criteria does not filter anything, as well as in SQL
+            return row -> Boolean.TRUE;
+        }
+
+        return row -> {
+            Boolean result = Boolean.FALSE;
+            for (Condition c : conditions) {
+                final Boolean r = c.test(row);
+                if (Boolean.TRUE.equals(r)) {
+                    return Boolean.TRUE;
+                }
+                if (r == null) {
+                    result = null;
+                }
+            }
+            return result;
+        };
+    }
+
+    private static Condition not(Condition condition) {
+        return row -> {
+            final Boolean r = condition.test(row);
+            return r == null ? null : !r;
+        };
+    }
+
+    private static Condition inSet(int idx, Object value) {
+        final List<Object> values;
+        if (value instanceof Collection<?> c) {
+            values = new ArrayList<>(c);
+        } else if (value instanceof Object[] a) {
+            values = Arrays.asList(a);
+        } else {
+            values = Collections.singletonList(value);
+        }
+
+        if (values.isEmpty()) {
+            return row -> Boolean.FALSE;
+        }
+
+        return or(values.stream()
+                .<Condition>map(v -> row -> compare(row[idx], v, false, cmp -> cmp == 0))
+                .collect(Collectors.toList()));
+    }
+
+    private static Condition like(int idx, OperatorId operator, Object value) {
+        if (value == null) {
+            return row -> null;
+        }
+
+        final String name = operator.name();
+        final boolean caseInsensitive = name.charAt(0) == 'I';
+        final boolean isNot = name.contains("NOT_");
+
+        final String pattern;
+        if (name.endsWith("STARTS_WITH")) {
+            pattern = "%s%%".formatted(value);
+        } else if (name.endsWith("ENDS_WITH")) {
+            pattern = "%%%s".formatted(value);
+        } else {
+            pattern = "%%%s%%".formatted(value);
+        }
+
+        final Pattern regex = likeToRegex(caseInsensitive ? lower(pattern) : pattern);
+
+        return row -> {
+            final Object v = row[idx];
+            if (v == null) {
+                return null;
+            }
+
+            final String s = caseInsensitive ? lower(v.toString()) : v.toString();
+            return regex.matcher(s).matches() != isNot;
+        };
+    }
+
+    /**
+     * SQL LIKE pattern without an escape character: '%' matches any sequence, '_' matches any single character.
+     */
+    private static Pattern likeToRegex(String pattern) {
+        final StringBuilder sb = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+
+        for (char ch : pattern.toCharArray()) {
+            if (ch == '%' || ch == '_') {
+                if (!literal.isEmpty()) {
+                    sb.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                sb.append(ch == '%' ? ".*" : ".");
+            } else {
+                literal.append(ch);
+            }
+        }
+
+        if (!literal.isEmpty()) {
+            sb.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(sb.toString(), Pattern.DOTALL);
+    }
+
+    private static String lower(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return {@code null} if any of the values is NULL or the values can't be compared
+     */
+    private static Boolean compare(Object rowValue, Object value, boolean caseInsensitive, IntPredicate result) {
+        if (rowValue == null || value == null) {
+            return null;
+        }
+
+        final Integer cmp = compareValues(rowValue, value, caseInsensitive);
+        return cmp == null ? null : result.test(cmp);
+    }
+
+    /**
+     * The criteria value is converted to the type of the row value, the same way as the database converts
+     * the bound parameter to the column type.
+     */
+    private static Integer compareValues(Object rowValue, Object value, boolean caseInsensitive) {
+        if (caseInsensitive) {
+            return lower(rowValue.toString()).compareTo(lower(value.toString()));
+        }
+
+        if (rowValue instanceof Number || value instanceof Number) {
+            final BigDecimal a = toBigDecimal(rowValue);
+            final BigDecimal b = toBigDecimal(value);
+            return a == null || b == null ? null : a.compareTo(b);
+        }
+
+        if (rowValue instanceof Boolean || value instanceof Boolean) {
+            final Boolean a = toBoolean(rowValue);
+            final Boolean b = toBoolean(value);
+            return a == null || b == null ? null : a.compareTo(b);
+        }
+
+        if (rowValue instanceof java.util.Date || rowValue instanceof TemporalAccessor) {
+            final Long a = toEpochMillis(rowValue);
+            final Long b = toEpochMillis(value);
+            return a == null || b == null ? null : a.compareTo(b);
+        }
+
+        return rowValue.toString().compareTo(value.toString());
+    }
+
+    private static BigDecimal toBigDecimal(Object v) {
+        try {
+            return new BigDecimal(v.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Boolean toBoolean(Object v) {
+        if (v instanceof Boolean b) {
+            return b;
+        }
+
+        final String s = v.toString().trim();
+        if (s.equalsIgnoreCase("true") || s.equals("1")) {
+            return true;
+        } else if (s.equalsIgnoreCase("false") || s.equals("0")) {
+            return false;
+        }
+        return null;
+    }
+
+    private static Long toEpochMillis(Object v) {
+        if (v instanceof java.util.Date d) {
+            return d.getTime();
+        } else if (v instanceof Instant i) {
+            return i.toEpochMilli();
+        } else if (v instanceof LocalDateTime ldt) {
+            return java.sql.Timestamp.valueOf(ldt).getTime();
+        } else if (v instanceof LocalDate ld) {
+            return java.sql.Date.valueOf(ld).getTime();
+        } else if (v instanceof OffsetDateTime odt) {
+            return odt.toInstant().toEpochMilli();
+        } else if (v instanceof ZonedDateTime zdt) {
+            return zdt.toInstant().toEpochMilli();
+        } else if (v instanceof Number n) {
+            return n.longValue();
+        }
+
+        final String s = v.toString().trim();
+        try {
+            return Instant.parse(s).toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+        }
+
+        try {
+            return OffsetDateTime.parse(s).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+        }
+
+        try {
+            return java.sql.Timestamp.valueOf(LocalDateTime.parse(s)).getTime();
+        } catch (DateTimeParseException ignored) {
+        }
+
+        try {
+            return java.sql.Date.valueOf(LocalDate.parse(s)).getTime();
+        } catch (DateTimeParseException ignored) {
+        }
+
+        try {
+            return java.sql.Timestamp.valueOf(s).getTime();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package org.srg.smartclient.isomorphic.criteria;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Simplifies criteria trees produced by the FilterBuilder before they are translated into SQL:
+ * <ul>
+ *     <li>nested AND/OR nodes of the same operator are flattened, single-child nodes are replaced by the child;</li>
+ *     <li>duplicate conditions are removed;</li>
+ *     <li>EQUALS/IN_SET conditions on the same field within OR are merged into a single IN_SET;</li>
+ *     <li>EQUALS/IN_SET and range conditions on the same field within AND are intersected,
+ *     that is done for the numeric values only, since string comparison depends on the DB collation;</li>
+ *     <li>contradictions are folded into the constant false.</li>
+ * </ul>
+ *
+ * Children of AND/OR nodes are ordered canonically, therefore the same criteria built in a different order
+ * produce the same SQL and the same cache keys.
+ */
+public final class CriteriaNormalizer {
+    private static final ObjectMapper valueMapper = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private static final Set<OperatorId> RANGE_OPERATORS = EnumSet.of(
+            OperatorId.GREATER_THAN, OperatorId.GREATER_OR_EQUAL,
+            OperatorId.LESS_THAN, OperatorId.LESS_OR_EQUAL
+    );
+
+    /**
+     * Marks the condition that is never satisfied.
+     */
+    private static final Criteria FALSE = new Criteria();
+
+    /**
+     * @param criteria normalized criteria, it has no conditions if the source criteria is always false
+     * @param alwaysFalse {@code true} if no record can satisfy the criteria
+     * @param key canonical representation of the criteria, including the values
+     * @param shape canonical representation of the criteria without the values, identifies the generated SQL
+     */
+    public record Normalized(AdvancedCriteria criteria, boolean alwaysFalse, String key, String shape) {}
+
+    private CriteriaNormalizer() {}
+
+    public static Normalized normalize(AdvancedCriteria ac) {
+        final Criteria c = simplify(ac);
+
+        final AdvancedCriteria result = new AdvancedCriteria();
+        result.set_constructor(ac.get_constructor());
+        result.setStrictSQLFiltering(ac.isStrictSQLFiltering());
+        result.setOperator(OperatorId.AND);
+
+        if (c == null || c == FALSE) {
+            result.setCriteria(List.of());
+        } else if (isCompound(c)) {
+            result.setOperator(c.getOperator());
+            result.setCriteria(c.getCriteria());
+        } else {
+            result.setCriteria(List.of(c));
+        }
+
+        return c == FALSE ?
+                new Normalized(result, true, "false", "false")
+                : new Normalized(result, false, describe(result, true), describe(result, false));
+    }
+
+    /**
+     * @return simplified copy of the criteria, {@link #FALSE} or {@code null} if there is no condition
+     */
+    private static Criteria simplify(Criteria c) {
+        if (!isCompound(c)) {
+            return simplifyLeaf(c);
+        }
+
+        final OperatorId op = c.getOperator();
+        if (op != OperatorId.AND && op != OperatorId.OR) {
+            return copy(c, c.getCriteria());
+        }
+
+        final List<Criteria> children = new ArrayList<>();
+        boolean hasFalse = false;
+
+        if (c.getCriteria() != null) {
+            for (Criteria child : c.getCriteria()) {
+                final Criteria sc = simplify(child);
+
+                if (sc == null) {
+                    // Empty conditions are ignored, as they were ignored by the SQL generation
+                    continue;
+                }
+
+                if (sc == FALSE) {
+                    if (op == OperatorId.AND) {
+                        return FALSE;
+                    }
+                    hasFalse = true;
+                    continue;
+                }
+
+                if (isCompound(sc) && sc.getOperator() == op) {
+                    children.addAll(sc.getCriteria());
+                } else {
+                    children.add(sc);
+                }
+            }
+        }
+
+        List<Criteria> merged = op == OperatorId.AND ? mergeConjunction(children) : mergeDisjunction(children);
+        if (merged == null) {
+            return FALSE;
+        }
+
+        // -- remove duplicates and order canonically
+        final Map<String, Criteria> unique = new TreeMap<>();
+        for (Criteria m : merged) {
+            unique.putIfAbsent(describe(m, true), m);
+        }
+        merged = new ArrayList<>(unique.values());
+
+        if (merged.isEmpty()) {
+            return hasFalse ? FALSE : null;
+        }
+
+        if (merged.size() == 1) {
+            return merged.get(0);
+        }
+
+        return copy(c, merged);
+    }
+
+    private static Criteria simplifyLeaf(Criteria c) {
+        if (c.getOperator() != OperatorId.IN_SET) {
+            return copy(c, null);
+        }
+
+        final List<Object> values = distinct(toList(c.getValue()));
+        if (values.isEmpty()) {
+            return FALSE;
+        }
+
+        return values.size() == 1 ?
+                leaf(c.getFieldName(), OperatorId.EQUALS, values.get(0))
+                : leaf(c.getFieldName(), OperatorId.IN_SET, values);
+    }
+
+    /**
+     * Merges EQUALS and IN_SET conditions on the same field into a single IN_SET.
+     */
+    private static List<Criteria> mergeDisjunction(List<Criteria> children) {
+        final Map<String, List<Object>> valuesByField = new LinkedHashMap<>();
+        final List<Criteria> result = new ArrayList<>();
+
+        for (Criteria c : children) {
+            if (!isCompound(c)
+                    && (c.getOperator() == OperatorId.EQUALS || c.getOperator() == OperatorId.IN_SET)
+                    && c.getValue() != null) {
+                valuesByField.computeIfAbsent(c.getFieldName(), k -> new ArrayList<>())
+                        .addAll(toList(c.getValue()));
+            } else {
+                result.add(c);
+            }
+        }
+
+        for (Map.Entry<String, List<Object>> e : valuesByField.entrySet()) {
+            result.add(simplifyLeaf(leaf(e.getKey(), OperatorId.IN_SET, e.getValue())));
+        }
+        return result;
+    }
+
+    /**
+     * Intersects numeric EQUALS, IN_SET and range conditions on the same field.
+     *
+     * @return merged conditions or {@code null} if they are contradictory
+     */
+    private static List<Criteria> mergeConjunction(List<Criteria> children) {
+        final Map<String, List<Criteria>> numericByField = new LinkedHashMap<>();
+        final List<Criteria> result = new ArrayList<>();
+
+        for (Criteria c : children) {
+            if (isNumericCondition(c)) {
+                numericByField.computeIfAbsent(c.getFieldName(), k -> new ArrayList<>()).add(c);
+            } else {
+                result.add(c);
+            }
+        }
+
+        for (Map.Entry<String, List<Criteria>> e : numericByField.entrySet()) {
+            if (e.getValue().size() == 1) {
+                result.addAll(e.getValue());
+                continue;
+            }
+
+            final List<Criteria> merged = mergeNumericConditions(e.getKey(), e.getValue());
+            if (merged == null) {
+                return null;
+            }
+            result.addAll(merged);
+        }
+        return result;
+    }
+
+    private static List<Criteria> mergeNumericConditions(String fieldName, List<Criteria> conditions) {
+        List<Object> values = null;
+        Object lower = null;
+        boolean lowerInclusive = true;
+        Object upper = null;
+        boolean upperInclusive = true;
+
+        for (Criteria c : conditions) {
+            switch (c.getOperator()) {
+                case EQUALS, IN_SET -> {
+                    final List<Object> v = toList(c.getValue());
+                    values = values == null ? distinct(v)
+                            : values.stream().filter(a -> containsNumber(v, a)).collect(Collectors.toList());
+                }
+
+                case GREATER_THAN, GREATER_OR_EQUAL -> {
+                    final boolean inclusive = c.getOperator() == OperatorId.GREATER_OR_EQUAL;
+                    final int cmp = lower == null ? 1 : compare(c.getValue(), lower);
+                    if (cmp > 0 || (cmp == 0 && !inclusive)) {
+                        lower = c.getValue();
+                        lowerInclusive = inclusive;
+                    }
+                }
+
+                case LESS_THAN, LESS_OR_EQUAL -> {
+                    final boolean inclusive = c.getOperator() == OperatorId.LESS_OR_EQUAL;
+                    final int cmp = upper == null ? -1 : compare(c.getValue(), upper);
+                    if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                        upper = c.getValue();
+                        upperInclusive = inclusive;
+                    }
+                }
+
+                default -> throw new IllegalStateException();
+            }
+        }
+
+        if (values != null) {
+            final List<Object> inRange = new ArrayList<>();
+            for (Object v : values) {
+                if (isWithin(v, lower, lowerInclusive, upper, upperInclusive)) {
+                    inRange.add(v);
+                }
+            }
+
+            if (inRange.isEmpty()) {
+                return null;
+            }
+
+            return List.of(inRange.size() == 1 ?
+                    leaf(fieldName, OperatorId.EQUALS, inRange.get(0))
+                    : leaf(fieldName, OperatorId.IN_SET, inRange));
+        }
+
+        if (lower != null && upper != null) {
+            final int cmp = compare(lower, upper);
+            if (cmp > 0 || (cmp == 0 && !(lowerInclusive && upperInclusive))) {
+                return null;
+            }
+
+            if (cmp == 0) {
+                return List.of(leaf(fieldName, OperatorId.EQUALS, lower));
+            }
+        }
+
+        final List<Criteria> result = new ArrayList<>(2);
+        if (lower != null) {
+            result.add(leaf(fieldName, lowerInclusive ? OperatorId.GREATER_OR_EQUAL : OperatorId.GREATER_THAN, lower));
+        }
+        if (upper != null) {
+            result.add(leaf(fieldName, upperInclusive ? OperatorId.LESS_OR_EQUAL : OperatorId.LESS_THAN, upper));
+        }
+        return result;
+    }
+
+    private static boolean isNumericCondition(Criteria c) {
+        if (isCompound(c)) {
+            return false;
+        }
+
+        if (c.getOperator() == OperatorId.EQUALS || c.getOperator() == OperatorId.IN_SET) {
+            final List<Object> values = toList(c.getValue());
+            return !values.isEmpty() && values.stream().allMatch(v -> v instanceof Number);
+        }
+
+        return RANGE_OPERATORS.contains(c.getOperator()) && c.getValue() instanceof Number;
+    }
+
+    private static boolean isWithin(Object v, Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+        if (lower != null) {
+            final int cmp = compare(v, lower);
+            if (cmp < 0 || (cmp == 0 && !lowerInclusive)) {
+                return false;
+            }
+        }
+
+        if (upper != null) {
+            final int cmp = compare(v, upper);
+            return cmp < 0 || (cmp == 0 && upperInclusive);
+        }
+        return true;
+    }
+
+    private static boolean containsNumber(List<Object> values, Object v) {
+        return values.stream().anyMatch(a -> compare(a, v) == 0);
+    }
+
+    private static int compare(Object a, Object b) {
+        return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+    }
+
+    private static boolean isCompound(Criteria c) {
+        return c.getFieldName() == null || c.getFieldName().isBlank();
+    }
+
+    private static List<Object> toList(Object value) {
+        if (value instanceof Collection<?> c) {
+            return new ArrayList<>(c);
+        } else if (value instanceof Object[] a) {
+            return Arrays.asList(a);
+        } else {
+            return Collections.singletonList(value);
+        }
+    }
+
+    /**
+     * @return distinct values in the canonical order
+     */
+    private static List<Object> distinct(List<Object> values) {
+        final Map<String, Object> unique = new TreeMap<>();
+        for (Object v : values) {
+            unique.putIfAbsent(describeValue(v), v);
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    private static Criteria leaf(String fieldName, OperatorId operator, Object value) {
+        final Criteria c = new Criteria();
+        c.setFieldName(fieldName);
+        c.setOperator(operator);
+        c.setValue(value);
+        return c;
+    }
+
+    private static Criteria copy(Criteria c, List<Criteria> criteria) {
+        final Criteria r = new Criteria();
+        r.set_constructor(c.get_constructor());
+        r.setFieldName(c.getFieldName());
+        r.setOperator(c.getOperator());
+        r.setStart(c.getStart());
+        r.setEnd(c.getEnd());
+        r.setValue(c.getValue());
+        r.setCriteria(criteria);
+        return r;
+    }
+
+    private static String describe(Criteria c, boolean withValues) {
+        if (isCompound(c)) {
+            return c.getCriteria() == null ? c.getOperator().name() : c.getCriteria().stream()
+                    .map(cc -> describe(cc, withValues))
+                    .collect(Collectors.joining(", ", c.getOperator().name() + "(", ")"));
+        }
+
+        if (!withValues) {
+            return "%s %s".formatted(c.getFieldName(), c.getOperator().name());
+        }
+
+        return "%s %s %s %s %s".formatted(c.getFieldName(), c.getOperator().name(),
+                describeValue(c.getValue()), describeValue(c.getStart()), describeValue(c.getEnd()));
+    }
+
+    private static String describeValue(Object v) {
+        if (v instanceof Number) {
+            return new BigDecimal(v.toString()).stripTrailingZeros().toPlainString();
+        }
+
+        try {
+            return valueMapper.writeValueAsString(v);
+        } catch (JsonProcessingException e) {
+            return String.valueOf(v);
+        }
+    }
+}
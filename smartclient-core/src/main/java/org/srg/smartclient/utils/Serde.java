@@ -21,6 +21,7 @@ import javax.persistence.JoinTable;
 import javax.persistence.metamodel.Attribute;
 import javax.persistence.metamodel.IdentifiableType;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.lang.annotation.IncompleteAnnotationException;
 import java.util.*;
@@ -71,39 +72,51 @@ public class Serde {
         writer.write("\n");
 
         // -- write data
-        for (Object[] r :rdr.getData()){
-            first = true;
-            index = 0;
-            for (Object v: r) {
-                if (skipFieldIndexes.contains(index)) {
-                    index++;
-                    continue;
+        try {
+            rdr.getData().forEach(r -> {
+                try {
+                    writeCSVRow(writer, separator, mapper, skipFieldIndexes, r);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.flush();
+    }
+
+    private static void writeCSVRow(Writer writer, char separator, ObjectMapper mapper, List<Integer> skipFieldIndexes, Object[] r) throws IOException {
+        boolean first = true;
+        int index = 0;
+        for (Object v: r) {
+            if (skipFieldIndexes.contains(index)) {
                 index++;
-                if (!first){
-                    writer.write(separator);
-                }
-                if (v != null) {
-                    if (v instanceof String) {
-                        writer.append('"');
-                        writer.write((String) v);
-                        writer.append('"');
-                    } else if (v instanceof DSResponseDataContainer.RawDataResponse subValue) {
-                        final String str = mapper.writeValueAsString(subValue);
-                        writer.write(str);
-                    } else {
-                        writer.write(v.toString());
-                    }
+                continue;
+            }
+            index++;
+            if (!first){
+                writer.write(separator);
+            }
+            if (v != null) {
+                if (v instanceof String) {
+                    writer.append('"');
+                    writer.write((String) v);
+                    writer.append('"');
+                } else if (v instanceof DSResponseDataContainer.RawDataResponse subValue) {
+                    final String str = mapper.writeValueAsString(subValue);
+                    writer.write(str);
                 } else {
-                    writer.write("");
+                    writer.write(v.toString());
                 }
-
-                first = false;
+            } else {
+                writer.write("");
             }
-            writer.write("\n");
-        }
 
-        writer.flush();
+            first = false;
+        }
+        writer.write("\n");
     }
 
     public static void serializeResponse(Writer writer, Integer transactionNum, Collection<DSResponse> responses) throws IOException {
@@ -157,9 +170,11 @@ public class Serde {
     private static class DSRequestDeserializer extends JsonDeserializer<IDSRequestData> {
         @Override
         public IDSRequestData deserialize(JsonParser p, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-            final ObjectNode node = p.readValueAsTree();
+            final JsonNode node = p.readValueAsTree();
 
-            if (node.has("operator")) {
+            if (node.isArray()) {
+                return p.getCodec().treeToValue(node, DSRequest.ListData.class);
+            } else if (node.has("operator")) {
                 return  p.getCodec().treeToValue(node, AdvancedCriteria.class);
             } else {
                 return p.getCodec().treeToValue(node, DSRequest.MapData.class);
@@ -244,6 +259,12 @@ public class Serde {
 
         public static String SERIALIZE_FIELDS_ONLY = "SERIALIZE_FIELDS_ONLY";
 
+        /**
+         * Streamed rows can be traversed only once, therefore they are not serialized if this attribute is set,
+         * that is used for logging.
+         */
+        public static String SKIP_STREAMED_DATA = "SKIP_STREAMED_DATA";
+
         protected void serializeFieldsOnly(DSResponseDataContainer.RawDataResponse rr, JsonGenerator jg, SerializerProvider serializers) throws IOException {
 
             final List<String> names = StreamSupport.stream(rr.getFields().spliterator(), false)
@@ -259,7 +280,10 @@ public class Serde {
         public void serialize(DSResponseDataContainer.RawDataResponse rr, JsonGenerator jg, SerializerProvider serializers) throws IOException {
             final boolean isFieldsOnly = serializers.getAttribute(RawDataResponseSerializer.SERIALIZE_FIELDS_ONLY) != null;
 
-            if (isFieldsOnly) {
+            final boolean isStreamedSkipped = rr.isStreamed()
+                    && serializers.getAttribute(RawDataResponseSerializer.SKIP_STREAMED_DATA) != null;
+
+            if (isFieldsOnly || isStreamedSkipped) {
                 // Reduce verbosity for logging
                 serializeFieldsOnly(rr, jg, serializers);
                 return;
@@ -275,16 +299,29 @@ public class Serde {
                 fields.add(dsf);
             });
 
-            for (Object r[]: rr.getData()) {
-                int[] idx= {0};
-                data.replaceAll((k,v) -> {
-                    int i = idx[0];
-                    final DSField f = fields.get(i);
-                    final Object formattedValue = formatValue(f, r[i]);
-                    idx[0]++;
-                    return formattedValue;
+            /*
+             * forEach is used instead of iterator, since it allows streamed data to pass rows
+             * while the ResultSet is still open, without loading all of them in memory
+             */
+            try {
+                rr.getData().forEach(r -> {
+                    int[] idx = {0};
+                    data.replaceAll((k, v) -> {
+                        int i = idx[0];
+                        final DSField f = fields.get(i);
+                        final Object formattedValue = formatValue(f, r[i]);
+                        idx[0]++;
+                        return formattedValue;
+                    });
+
+                    try {
+                        jg.writeObject(data);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
                 });
-                jg.writeObject(data);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
             jg.writeEndArray();
         }
@@ -12,6 +12,7 @@ import org.srg.smartclient.utils.Serde;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.TimeZone;
+import java.util.concurrent.Semaphore;
 
 public abstract class AbstractJDBCHandlerTest<H extends JDBCHandler> extends AbstractHandlerTest<H> {
     protected static class ExtraField extends AbstractHandlerTest.ExtraFieldBase{
@@ -142,6 +143,24 @@ public abstract class AbstractJDBCHandlerTest<H extends JDBCHandler> extends Abs
         return null;
     }
 
+    /**
+     * Emulates the connection pool of the given size, borrowing from the exhausted pool blocks
+     * until any connection is returned.
+     */
+    protected void limitConnections(int maxConnections) {
+        final JDBCHandler.JDBCPolicy delegate = jdbcPolicy;
+        final Semaphore pool = new Semaphore(maxConnections);
+
+        jdbcPolicy = (db, callback) -> {
+            pool.acquire();
+            try {
+                delegate.withConnectionDo(db, callback);
+            } finally {
+                pool.release();
+            }
+        };
+    }
+
     @Override
     protected JDBCHandler.JDBCPolicy getJDJdbcPolicy() {
         return (db, callback) -> {
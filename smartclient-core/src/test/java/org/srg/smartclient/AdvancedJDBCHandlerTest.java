@@ -1,14 +1,36 @@
 package org.srg.smartclient;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import net.javacrumbs.jsonunit.core.Option;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.aggregator.ArgumentsAccessor;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.srg.smartclient.isomorphic.DSRequest;
 import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.DataSource;
+import org.srg.smartclient.isomorphic.IDSRequestData;
+import org.srg.smartclient.isomorphic.OperationBinding;
 import org.srg.smartclient.isomorphic.criteria.AdvancedCriteria;
+import org.srg.smartclient.utils.Utils;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 public class AdvancedJDBCHandlerTest extends AbstractJDBCHandlerTest<AdvancedJDBCHandler> {
@@ -81,6 +103,224 @@ public class AdvancedJDBCHandlerTest extends AbstractJDBCHandlerTest<AdvancedJDB
         JsonTestSupport.assertJsonEquals(expected, response);
     }
 
+    /**
+     * Sub-entities of all the fetched rows must be fetched by a single foreign request per relation.
+     */
+    @Test
+    public void fetchOneToMany_EntireEntity_ByTheSingleForeignFetch() throws Exception {
+        final AdvancedJDBCHandler employeeRoleHandler = withHandlers(Handler.EmployeeRole);
+        withExtraFields(ExtraField.OneToMany_FetchEntireEntities, ExtraField.SqlCalculated);
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name, roles");
+        request.setAdditionalOutputs(
+                "roles!EmployeeRoleDS.role," +
+                        "roles!EmployeeRoleDS.employee");
+
+        final DSResponse response = handler.handleFetch(request);
+
+        Mockito.verify(employeeRoleHandler, Mockito.times(1))
+                .handleFetch(Mockito.any());
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                  status:0,
+                  startRow:0,
+                  endRow:6,
+                  totalRows:6,
+                  data:[
+                     {
+                        id:1,
+                        name:'admin',
+                        roles:[
+                           {
+                              role:'Admin',
+                              employee:1
+                           },
+                           {
+                              role:'Developer',
+                              employee:1
+                           }
+                        ]
+                     },
+                     {
+                        id:2,
+                        name:'developer',
+                        roles:[
+                           {
+                              role:'Developer',
+                              employee:2
+                           }
+                        ]
+                     },
+                     {
+                        id:3,
+                        name:'UseR3',
+                        roles:[]
+                     },
+                     {
+                        id:4,
+                        name:'manager1',
+                        roles:[
+                           {
+                              role:'PM',
+                              employee:4
+                           }
+                        ]
+                     },
+                     {
+                        id:5,
+                        name:'manager2',
+                        roles:[
+                           {
+                              role:'PM',
+                              employee:5
+                           }
+                        ]
+                     },
+                     {
+                        id:6,
+                        name:'user2',
+                        roles:[]
+                     }
+                  ]
+                }""", response);
+    }
+
+    /**
+     * Sub-entities of different fields must be fetched concurrently, each field by its own foreign request.
+     */
+    @Test
+    public void fetchOneToMany_SeveralFields_InParallel() throws Exception {
+        assertSeveralFieldsAreFetchedInParallel();
+    }
+
+    /**
+     * Fetch holds the only pooled connection, therefore sub-entities must be fetched by that connection
+     * instead of waiting for the additional ones.
+     */
+    @Test
+    public void fetchOneToMany_SeveralFields_InParallel_FallsBackToCurrentConnection() throws Exception {
+        limitConnections(1);
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), this::assertSeveralFieldsAreFetchedInParallel);
+    }
+
+    private void assertSeveralFieldsAreFetchedInParallel() throws Exception {
+        final AdvancedJDBCHandler employeeRoleHandler = withHandlers(Handler.EmployeeRole);
+        withExtraFields(ExtraField.OneToMany_FetchEntireEntities, ExtraField.SqlCalculated, """
+                [
+                    {
+                        name:"roleIds"
+                        ,foreignKey:"EmployeeRoleDS.employee"
+                        ,multiple:true
+                    }
+                ]""");
+
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setParallelSubEntityFetch(true);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, roles, roleIds");
+        request.setAdditionalOutputs("roles!EmployeeRoleDS.role");
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        final DSResponse response = handler.handleFetch(request);
+
+        Mockito.verify(employeeRoleHandler, Mockito.times(2))
+                .handleFetch(Mockito.any());
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                  status:0,
+                  startRow:0,
+                  endRow:2,
+                  totalRows:6,
+                  data:[
+                     {
+                        id:1,
+                        roles:[
+                           {role:'Admin'},
+                           {role:'Developer'}
+                        ],
+                        roleIds:[
+                           {role:'Admin', employee:1},
+                           {role:'Developer', employee:1}
+                        ]
+                     },
+                     {
+                        id:2,
+                        roles:[
+                           {role:'Developer'}
+                        ],
+                        roleIds:[
+                           {role:'Developer', employee:2}
+                        ]
+                     }
+                  ]
+                }""", response);
+    }
+
+    /**
+     * Many To Many sub-entities of all the fetched rows must be fetched by a single foreign request,
+     * join table links are retrieved with the IN_SET strategy of the data source.
+     */
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(DataSource.InSetStrategy.class)
+    public void fetchManyToMany_EntireEntity_ByTheSingleForeignFetch(DataSource.InSetStrategy strategy) throws Exception {
+        final AdvancedJDBCHandler projectHandler = withHandlers(Handler.Project);
+        withExtraFields(projectHandler, ExtraField.Project_IncludeTeamMembersFromFromEmployee);
+        projectHandler.dataSource().setInSetStrategy(strategy);
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, teamMembers");
+        request.setAdditionalOutputs("teamMembers!EmployeeDS.name");
+
+        final DSResponse response = projectHandler.handleFetch(request);
+
+        Mockito.verify(handler, Mockito.times(1))
+                .handleFetch(Mockito.any());
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                  status:0,
+                  startRow:0,
+                  endRow:5,
+                  totalRows:5,
+                  data:[
+                     {
+                        id:1,
+                        teamMembers:[
+                           {name:'admin'},
+                           {name:'developer'}
+                        ]
+                     },
+                     {
+                        id:2,
+                        teamMembers:[
+                           {name:'developer'},
+                           {name:'UseR3'}
+                        ]
+                     },
+                     {
+                        id:3,
+                        teamMembers:[
+                           {name:'manager1'},
+                           {name:'manager2'}
+                        ]
+                     },
+                     {
+                        id:4
+                     },
+                     {
+                        id:5
+                     }
+                  ]
+                }""", response);
+    }
+
     private static Arguments basicCriteria() {
         return Arguments.of(
                 "basic criteria",
@@ -693,4 +933,385 @@ public class AdvancedJDBCHandlerTest extends AbstractJDBCHandlerTest<AdvancedJDB
 //    private static Arguments compositeAndCaseInsensitiveCriteria() {
 //        return Arguments.of();
 //    }
+
+    @Test
+    public void batchAdd_AddedRecordsAreFetchedAtOnce() throws Exception {
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "ADD",
+                 textMatchStyle : "EXACT",
+                 data : [
+                   {id: 20, name: "Record 1"},
+                   {name: "Record 2"},
+                   {name: "Record 3"}
+                 ]
+               }
+            """);
+
+        final DSResponse response = handler.handleAdd(request);
+
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     data:[
+                         {id:20, name: 'Record 1'},
+                         {id:21, name: 'Record 2'},
+                         {id:22, name: 'Record 3'}
+                     ]
+                }""", response);
+
+        // Both batches are fetched by the single IN_SET fetch
+        Mockito.verify(handler, Mockito.times(1))
+                .doHandleFetch(Mockito.any(), Mockito.any(), Mockito.anyBoolean());
+    }
+
+    @Test
+    public void caseInsensitiveCriteria_AreGeneratedByDialect() throws Exception {
+        final SqlDialect dialect = Mockito.spy(SqlDialect.H2);
+        final JDBCHandler.JDBCPolicy policy = getJDJdbcPolicy();
+
+        final AdvancedJDBCHandler h = new AdvancedJDBCHandler(new JDBCHandler.JDBCPolicy() {
+            @Override
+            public void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+                policy.withConnectionDo(database, callback);
+            }
+
+            @Override
+            public SqlDialect getDialect(String database) {
+                return dialect;
+            }
+        }, dsRegistry, handler.dataSource());
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setStartRow(0);
+        request.setEndRow(1);
+        request.setData(JsonTestSupport.fromJSON(AdvancedCriteria.class, """
+                {
+                    "operator" : "and",
+                    "_constructor" : "AdvancedCriteria",
+                    "criteria" : [
+                        {
+                            "fieldName":"name",
+                            "operator":"iContains",
+                            "value":"USER",
+                            "_constructor":null
+                        }
+                    ]
+                }"""));
+
+        final DSResponse response = h.handleFetch(request);
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status:0,
+                    startRow:0,
+                    endRow:1,
+                    totalRows:2,
+                    data:[
+                        {id:3, name:'UseR3'}
+                    ]
+                }""", response);
+
+        Mockito.verify(dialect, Mockito.atLeastOnce()).caseInsensitiveLike(false);
+        Mockito.verify(dialect, Mockito.atLeastOnce()).paginationClause(1, 0);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(DataSource.InSetStrategy.class)
+    public void inSet_WithEachStrategy(DataSource.InSetStrategy strategy) throws Exception {
+        handler.dataSource().setInSetStrategy(strategy);
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status:0,
+                    data:[
+                        {id:1, name:'admin'},
+                        {id:3, name:'UseR3'},
+                        {id:5, name:'manager2'}
+                    ]
+                }""", fetchInSet(List.of(1, 3, 5)), Option.IGNORING_EXTRA_FIELDS);
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status:0,
+                    data:[
+                        {id:2, name:'developer'},
+                        {id:4, name:'manager1'},
+                        {id:6, name:'user2'}
+                    ]
+                }""", fetchInSet(List.of(2, 4, 6, 42)), Option.IGNORING_EXTRA_FIELDS);
+
+        // Lists of the different sizes must share the same query, unless the values are expanded as is
+        Assertions.assertEquals(strategy == DataSource.InSetStrategy.EXPANDED ? 2 : 1,
+                handler.getFetchPlanCache().size());
+    }
+
+    @Test
+    public void inSetArray_IsFreedOnceStatementHasExecuted() throws Exception {
+        final List<Array> created = new ArrayList<>();
+        final List<Array> freed = new ArrayList<>();
+        final JDBCHandler.JDBCPolicy policy = getJDJdbcPolicy();
+
+        final AdvancedJDBCHandler h = new AdvancedJDBCHandler((database, callback) ->
+                policy.withConnectionDo(database, conn -> callback.apply(trackArrays(conn, created, freed))),
+                dsRegistry, handler.dataSource());
+        h.dataSource().setInSetStrategy(DataSource.InSetStrategy.ARRAY);
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setSortBy(List.of("id"));
+        request.setData(JsonTestSupport.fromJSON(AdvancedCriteria.class, """
+                {
+                    "operator" : "and",
+                    "_constructor" : "AdvancedCriteria",
+                    "criteria" : [
+                        {"fieldName":"id", "operator":"inSet", "value":[1, 3]}
+                    ]
+                }"""));
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status:0,
+                    data:[
+                        {id:1, name:'admin'},
+                        {id:3, name:'UseR3'}
+                    ]
+                }""", h.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        // -- count and page queries, each one frees its own array
+        Assertions.assertEquals(2, created.size());
+        Assertions.assertEquals(2, freed.size());
+        created.forEach(a -> Assertions.assertTrue(freed.stream().anyMatch(f -> f == a)));
+    }
+
+    /**
+     * Wraps the connection and its statements, therefore arrays created via {@code PreparedStatement.getConnection()}
+     * are tracked as well.
+     */
+    private static Connection trackArrays(Connection conn, List<Array> created, List<Array> freed) {
+        final Map<Object, Object> unwrapped = new IdentityHashMap<>();
+        final Connection[] proxy = new Connection[1];
+
+        proxy[0] = (Connection) Proxy.newProxyInstance(AdvancedJDBCHandlerTest.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (p, method, args) -> {
+                    final Object result = invoke(conn, method, args);
+                    if (result instanceof Array array) {
+                        final Array a = (Array) Proxy.newProxyInstance(AdvancedJDBCHandlerTest.class.getClassLoader(),
+                                new Class<?>[] {Array.class},
+                                (ap, am, aargs) -> {
+                                    if (am.getName().equals("free")) {
+                                        freed.add((Array) ap);
+                                    }
+                                    return invoke(array, am, aargs);
+                                });
+                        unwrapped.put(a, array);
+                        created.add(a);
+                        return a;
+                    }
+
+                    if (result instanceof PreparedStatement st) {
+                        return Proxy.newProxyInstance(AdvancedJDBCHandlerTest.class.getClassLoader(),
+                                new Class<?>[] {PreparedStatement.class},
+                                (sp, sm, sargs) -> {
+                                    if (sm.getName().equals("getConnection")) {
+                                        return proxy[0];
+                                    }
+
+                                    if (sargs != null) {
+                                        for (int i = 0; i < sargs.length; ++i) {
+                                            sargs[i] = unwrapped.getOrDefault(sargs[i], sargs[i]);
+                                        }
+                                    }
+                                    return invoke(st, sm, sargs);
+                                });
+                    }
+                    return result;
+                });
+        return proxy[0];
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private DSResponse fetchInSet(List<Integer> ids) throws Exception {
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setSortBy(List.of("id"));
+        request.setData(JsonTestSupport.fromJSON(AdvancedCriteria.class, """
+                {
+                    "operator" : "and",
+                    "_constructor" : "AdvancedCriteria",
+                    "criteria" : [
+                        {
+                            "fieldName":"id",
+                            "operator":"inSet",
+                            "value":%s
+                        }
+                    ]
+                }""".formatted(ids)));
+        return handler.handleFetch(request);
+    }
+
+    @Test
+    public void contradictoryCriteria_MustNotQueryDatabase() throws Exception {
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setData(JsonTestSupport.fromJSON(AdvancedCriteria.class, """
+                {
+                    "operator" : "and",
+                    "_constructor" : "AdvancedCriteria",
+                    "criteria" : [
+                        {"fieldName":"id", "operator":"greaterThan", "value":2},
+                        {
+                            "operator" : "and",
+                            "criteria" : [
+                                {"fieldName":"id", "operator":"inSet", "value":[1, 2]}
+                            ]
+                        }
+                    ]
+                }"""));
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status:0,
+                    startRow:0,
+                    endRow:0,
+                    totalRows:0,
+                    data:[]
+                }""", handler.handleFetch(request));
+
+        Mockito.verify(handler, Mockito.never())
+                .doHandleFetch(Mockito.any(), Mockito.any(), Mockito.anyBoolean());
+    }
+
+    @Test
+    public void redundantCriteria_AreNormalizedToTheSameQuery() throws Exception {
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setSortBy(List.of("id"));
+        request.setData(JsonTestSupport.fromJSON(AdvancedCriteria.class, """
+                {
+                    "operator" : "and",
+                    "_constructor" : "AdvancedCriteria",
+                    "criteria" : [
+                        {
+                            "operator" : "or",
+                            "criteria" : [
+                                {"fieldName":"id", "operator":"equals", "value":4},
+                                {"fieldName":"id", "operator":"equals", "value":1},
+                                {
+                                    "operator" : "or",
+                                    "criteria" : [
+                                        {"fieldName":"id", "operator":"equals", "value":5},
+                                        {"fieldName":"id", "operator":"equals", "value":1}
+                                    ]
+                                }
+                            ]
+                        },
+                        {"fieldName":"id", "operator":"lessThan", "value":5}
+                    ]
+                }"""));
+
+        final IDSRequestData criteria = request.getData();
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status:0,
+                    data:[
+                        {id:1, name:'admin'},
+                        {id:4, name:'manager1'}
+                    ]
+                }""", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        // -- the request itself is not modified, normalized criteria is fetched by its copy
+        Assertions.assertSame(criteria, request.getData());
+
+        final ArgumentCaptor<DSRequest> fetched = ArgumentCaptor.forClass(DSRequest.class);
+        Mockito.verify(handler).doHandleFetch(fetched.capture(), Mockito.any(), Mockito.anyBoolean());
+
+        // Equality on the field combined with the range is folded into a single IN_SET
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    operator:'and',
+                    criteria:[
+                        {fieldName:'id', operator:'inSet', value:[1, 4]}
+                    ]
+                }""", fetched.getValue().getData(), Option.IGNORING_EXTRA_FIELDS);
+    }
+
+    /**
+     * Excluded field is not filtered by the generated SQL, therefore the contradiction on it does not mean
+     * that nothing is fetched.
+     */
+    @Test
+    public void contradictoryCriteria_OnExcludedField_IsNotNormalized() throws Exception {
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setExcludeCriteriaFields("id");
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id");
+        request.setData(JsonTestSupport.fromJSON(AdvancedCriteria.class, """
+                {
+                    "operator" : "and",
+                    "_constructor" : "AdvancedCriteria",
+                    "criteria" : [
+                        {"fieldName":"id", "operator":"equals", "value":1},
+                        {"fieldName":"id", "operator":"equals", "value":2}
+                    ]
+                }"""));
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status:0,
+                    totalRows:6
+                }""", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+    }
+
+    /**
+     * Template that refers the criteria renders it exactly as it was sent.
+     */
+    @Test
+    public void criteriaReferredByTemplate_IsNotNormalized() throws Exception {
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setWhereClause("${defaultWhereClause} AND <#if advancedCriteria.id??>opaque.id_employee = ${advancedCriteria.id}<#else>1 = 0</#if>");
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setOperationType(DSRequest.OperationType.FETCH);
+        request.setOutputs("id");
+        request.setData(JsonTestSupport.fromJSON(AdvancedCriteria.class, """
+                {
+                    "operator" : "or",
+                    "_constructor" : "AdvancedCriteria",
+                    "criteria" : [
+                        {"fieldName":"id", "operator":"equals", "value":2}
+                    ]
+                }"""));
+
+        final IDSRequestData criteria = request.getData();
+        final DSResponse response = handler.handleFetch(request);
+
+        final ArgumentCaptor<DSRequest> fetched = ArgumentCaptor.forClass(DSRequest.class);
+        Mockito.verify(handler).doHandleFetch(fetched.capture(), Mockito.any(), Mockito.anyBoolean());
+        Assertions.assertSame(criteria, fetched.getValue().getData());
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status:0,
+                    data:[
+                        {id:2}
+                    ]
+                }""", response, Option.IGNORING_EXTRA_FIELDS);
+    }
 }
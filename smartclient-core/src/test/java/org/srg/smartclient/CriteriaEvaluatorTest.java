@@ -0,0 +1,132 @@
+package org.srg.smartclient;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.DSResponseDataContainer;
+import org.srg.smartclient.isomorphic.criteria.AdvancedCriteria;
+import org.srg.smartclient.isomorphic.criteria.CriteriaEvaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory evaluation must return exactly the same rows as the SQL generated for the same criteria.
+ */
+public class CriteriaEvaluatorTest extends AbstractJDBCHandlerTest<AdvancedJDBCHandler> {
+
+    @BeforeEach
+    @Override
+    public void setupDataSources() throws Exception {
+        super.setupDataSources();
+        withExtraFields(ExtraField.FiredAt);
+    }
+
+    @Override
+    protected Class<AdvancedJDBCHandler> getHandlerClass() {
+        return AdvancedJDBCHandler.class;
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {
+            "{fieldName:'name', operator:'contains', value:'er'}",
+            "{fieldName:'name', operator:'iContains', value:'SER'}",
+            "{fieldName:'name', operator:'notContains', value:'er'}",
+            "{fieldName:'name', operator:'iNotContains', value:'SER'}",
+            "{fieldName:'name', operator:'contains', value:'_se'}",
+            "{fieldName:'name', operator:'startsWith', value:'man'}",
+            "{fieldName:'name', operator:'iStartsWith', value:'MAN'}",
+            "{fieldName:'name', operator:'notStartsWith', value:'man'}",
+            "{fieldName:'name', operator:'iNotStartsWith', value:'U'}",
+            "{fieldName:'name', operator:'endsWith', value:'2'}",
+            "{fieldName:'name', operator:'iEndsWith', value:'r3'}",
+            "{fieldName:'name', operator:'notEndsWith', value:'2'}",
+            "{fieldName:'name', operator:'iNotEndsWith', value:'R3'}",
+            "{fieldName:'name', operator:'equals', value:'UseR3'}",
+            "{fieldName:'name', operator:'iEquals', value:'user3'}",
+            "{fieldName:'name', operator:'notEqual', value:'UseR3'}",
+            "{fieldName:'name', operator:'iNotEqual', value:'user3'}",
+            "{fieldName:'name', operator:'greaterThan', value:'manager1'}",
+            "{fieldName:'id', operator:'greaterThan', value:3}",
+            "{fieldName:'id', operator:'lessOrEqual', value:'3'}",
+            "{fieldName:'id', operator:'between', start:2, end:5}",
+            "{fieldName:'id', operator:'betweenInclusive', start:2, end:5}",
+            "{fieldName:'id', operator:'inSet', value:[1, 3, 42]}",
+            "{fieldName:'firedAt', operator:'isNull'}",
+            "{fieldName:'firedAt', operator:'notBlank'}",
+            "{fieldName:'firedAt', operator:'greaterThan', value:'2000-05-04T03:02:01.000+00:00'}",
+            "{fieldName:'firedAt', operator:'lessOrEqual', value:'2000-05-04T03:02:01.000+00:00'}",
+            "{fieldName:'firedAt', operator:'notEqual', value:'2000-05-04T03:02:01.000+00:00'}",
+            """
+                {operator:'or', criteria:[
+                    {fieldName:'id', operator:'lessThan', value:2},
+                    {operator:'and', criteria:[
+                        {fieldName:'name', operator:'iContains', value:'MAN'},
+                        {fieldName:'firedAt', operator:'isNull'}
+                    ]}
+                ]}"""
+    })
+    public void inMemoryEvaluation_MatchesSQL(String criteria) throws Exception {
+        final String json = "{_constructor:'AdvancedCriteria', operator:'and', criteria:[%s]}".formatted(criteria);
+
+        final AdvancedCriteria ac = JsonTestSupport.fromJSON(AdvancedCriteria.class, json);
+        Assertions.assertEquals(fetchIds(ac), evaluateIds(ac));
+    }
+
+    @Test
+    public void notInSetAndNot_AreEvaluatedWithSQLNullSemantics() throws Exception {
+        Assertions.assertEquals(List.of(3, 4, 6), evaluateIds(JsonTestSupport.fromJSON(AdvancedCriteria.class, """
+                {
+                    _constructor:'AdvancedCriteria',
+                    operator:'and',
+                    criteria:[
+                        {fieldName:'id', operator:'notInSet', value:[1, 2, 5]}
+                    ]
+                }""")));
+
+        // NOT of the unknown comparison is still unknown, therefore the rows with NULL firedAt do not match
+        Assertions.assertEquals(List.of(1), evaluateIds(JsonTestSupport.fromJSON(AdvancedCriteria.class, """
+                {
+                    _constructor:'AdvancedCriteria',
+                    operator:'not',
+                    criteria:[
+                        {fieldName:'firedAt', operator:'greaterThan', value:'2000-03-01T00:00:00.000+00:00'}
+                    ]
+                }""")));
+    }
+
+    private List<Object> evaluateIds(AdvancedCriteria ac) throws Exception {
+        final DSResponse all = fetch(null);
+        final DSResponseDataContainer.RawDataResponse raw = all.getData().getRawDataResponse();
+        return ids(CriteriaEvaluator.filter(raw, ac));
+    }
+
+    private List<Object> fetchIds(AdvancedCriteria ac) throws Exception {
+        final List<Object[]> rows = new ArrayList<>();
+        fetch(ac).getData().getRawDataResponse().getData().forEach(rows::add);
+        return ids(rows);
+    }
+
+    private DSResponse fetch(AdvancedCriteria ac) throws Exception {
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name, firedAt");
+        request.setSortBy(List.of("id"));
+        request.setData(ac);
+
+        final DSResponse response = handler.handleFetch(request);
+        Assertions.assertEquals(DSResponse.STATUS_SUCCESS, response.getStatus());
+        return response;
+    }
+
+    private static List<Object> ids(List<Object[]> rows) {
+        final List<Object> ids = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            ids.add(row[0]);
+        }
+        return ids;
+    }
+}
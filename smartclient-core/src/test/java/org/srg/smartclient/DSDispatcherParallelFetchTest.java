@@ -0,0 +1,146 @@
+package org.srg.smartclient;
+
+import net.javacrumbs.jsonunit.core.Option;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.DSTransaction;
+import org.srg.smartclient.isomorphic.OperationBinding;
+import org.srg.smartclient.utils.Serde;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class DSDispatcherParallelFetchTest extends AbstractJDBCHandlerTest<JDBCHandler> {
+    private DSDispatcher dispatcher;
+
+    @Override
+    protected Class<JDBCHandler> getHandlerClass() {
+        return JDBCHandler.class;
+    }
+
+    @BeforeEach
+    public void setupDispatcher() {
+        dispatcher = new DSDispatcher(getJDJdbcPolicy());
+        dispatcher.setParallelFetchLimit(4);
+        dispatcher.registerHandler(handler);
+    }
+
+    @Test
+    public void leadingFetches_AreHandledConcurrently() throws Exception {
+        final CountDownLatch allFetchesStarted = new CountDownLatch(2);
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        Mockito.doAnswer(invocation -> {
+            final DSRequest r = invocation.getArgument(0);
+
+            // the last fetch follows the update, it must be handled after the update only
+            if (r.getData() instanceof Map m && !m.get("id").equals(3)) {
+                threads.add(Thread.currentThread().getName());
+                allFetchesStarted.countDown();
+
+                Assertions.assertTrue(allFetchesStarted.await(5, TimeUnit.SECONDS),
+                        "Fetches were not handled concurrently.");
+            }
+            return invocation.callRealMethod();
+        }).when(handler).handleFetch(Mockito.any());
+
+        final DSTransaction transaction = Serde.deserializeRequest("""
+            {
+                "transaction": {
+                    "transactionNum": 1,
+                    "operations": [
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"fetch",
+                            "outputs":"id, name",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 1}
+                        },
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"fetch",
+                            "outputs":"id, name",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 2}
+                        },
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"update",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 3, "name": "user3-2"},
+                            "oldValues":{"id": 3, "name": "UseR3"}
+                        },
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"fetch",
+                            "outputs":"id, name",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 3}
+                        }
+                    ]
+                }
+            }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(transaction));
+
+        JsonTestSupport.assertJsonEquals("""
+                [
+                    {status: 0, data:[{id:1, name: 'admin'}]},
+                    {status: 0, data:[{id:2, name: 'developer'}]},
+                    {status: 0, data:[{id:3, name: 'user3-2'}]},
+                    {status: 0, data:[{id:3, name: 'user3-2'}]}
+                ]""", responses, Option.IGNORING_EXTRA_FIELDS);
+
+        Assertions.assertEquals(2, threads.size());
+    }
+
+    @Test
+    public void streamedFetchFollowedByUpdate_ReturnsRowsBeforeUpdate() throws Exception {
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setStreamingFetch(true);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSTransaction transaction = Serde.deserializeRequest("""
+            {
+                "transaction": {
+                    "transactionNum": 2,
+                    "operations": [
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"fetch",
+                            "outputs":"id, name",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 3}
+                        },
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"update",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 3, "name": "user3-2"},
+                            "oldValues":{"id": 3, "name": "UseR3"}
+                        }
+                    ]
+                }
+            }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(transaction));
+
+        Assertions.assertFalse(responses.get(0).getData().getRawDataResponse().isStreamed());
+
+        JsonTestSupport.assertJsonEquals("""
+                [
+                    {status: 0, totalRows: 1, data:[{id:3, name: 'UseR3'}]},
+                    {status: 0, data:[{id:3, name: 'user3-2'}]}
+                ]""", responses, Option.IGNORING_EXTRA_FIELDS);
+    }
+}
@@ -0,0 +1,240 @@
+package org.srg.smartclient;
+
+import net.javacrumbs.jsonunit.core.Option;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.DSTransaction;
+import org.srg.smartclient.utils.Serde;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DSDispatcherTransactionTest extends AbstractJDBCHandlerTest<JDBCHandler> {
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private DSDispatcher dispatcher;
+
+    @Override
+    protected Class<JDBCHandler> getHandlerClass() {
+        return JDBCHandler.class;
+    }
+
+    @Override
+    protected JDBCHandler.JDBCPolicy getJDJdbcPolicy() {
+        final JDBCHandler.JDBCPolicy policy = super.getJDJdbcPolicy();
+        return (db, callback) -> {
+            connectionCount.incrementAndGet();
+            policy.withConnectionDo(db, callback);
+        };
+    }
+
+    @BeforeEach
+    public void setupDispatcher() {
+        dispatcher = new DSDispatcher(getJDJdbcPolicy());
+        dispatcher.setTransactionalQueues(true);
+        dispatcher.registerHandler(handler);
+    }
+
+    @Test
+    public void queuedUpdates_AreBatchedAndCommittedAtOnce() throws Exception {
+        final DSTransaction transaction = Serde.deserializeRequest("""
+            {
+                "transaction": {
+                    "transactionNum": 1,
+                    "operations": [
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"update",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 2, "name": "developer-2"},
+                            "oldValues":{"id": 2, "name": "developer"}
+                        },
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"update",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 3, "name": "user3-2"},
+                            "oldValues":{"id": 3, "name": "UseR3"}
+                        }
+                    ]
+                }
+            }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(transaction));
+
+        JsonTestSupport.assertJsonEquals("""
+                [
+                    {status: 0, data:[{id:2, name: 'developer-2'}]},
+                    {status: 0, data:[{id:3, name: 'user3-2'}]}
+                ]""", responses, Option.IGNORING_EXTRA_FIELDS);
+
+        Assertions.assertEquals(1, connectionCount.get());
+        Mockito.verify(handler, Mockito.never())
+                .handleUpdate(Mockito.any());
+
+        assertName(2, "developer-2");
+        assertName(3, "user3-2");
+    }
+
+    @Test
+    public void failedOperation_RollsBackWholeQueue() throws Exception {
+        final DSTransaction transaction = Serde.deserializeRequest("""
+            {
+                "transaction": {
+                    "transactionNum": 2,
+                    "operations": [
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"update",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 2, "name": "developer-2"},
+                            "oldValues":{"id": 2, "name": "developer"}
+                        },
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"add",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 3, "name": "duplicate"},
+                            "oldValues":null
+                        },
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"remove",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 6},
+                            "oldValues":null
+                        }
+                    ]
+                }
+            }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(transaction));
+
+        Assertions.assertEquals(3, responses.size());
+        Assertions.assertEquals(DSResponse.STATUS_TRANSACTION_FAILED, responses.get(0).getStatus());
+        Assertions.assertEquals(-1, responses.get(1).getStatus());
+        Assertions.assertEquals(DSResponse.STATUS_TRANSACTION_FAILED, responses.get(2).getStatus());
+
+        assertName(2, "developer");
+        assertName(3, "UseR3");
+        assertName(6, "user2");
+    }
+
+    @Test
+    public void fetchWithinRolledBackQueue_IsNotCached() throws Exception {
+        handler.dataSource().setFetchCacheMaxEntries(10);
+
+        final DSTransaction transaction = Serde.deserializeRequest("""
+            {
+                "transaction": {
+                    "transactionNum": 3,
+                    "operations": [
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"update",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 2, "name": "developer-2"},
+                            "oldValues":{"id": 2, "name": "developer"}
+                        },
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"fetch",
+                            "outputs":"id, name",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 2}
+                        },
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"add",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 3, "name": "duplicate"},
+                            "oldValues":null
+                        }
+                    ]
+                }
+            }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(transaction));
+        Assertions.assertEquals(DSResponse.STATUS_TRANSACTION_FAILED, responses.get(1).getStatus());
+
+        assertName(2, "developer");
+    }
+
+    @Test
+    public void fetchBeforeCommit_IsNotCachedAfterCommit() throws Exception {
+        handler.dataSource().setFetchCacheMaxEntries(10);
+
+        /*
+         * Concurrent fetch by another thread is performed after the row is updated, but before the queue is committed,
+         * therefore it reads and caches the old row.
+         */
+        dispatcher.registerHandler(new IHandler() {
+            @Override
+            public String id() {
+                return "ConcurrentFetchDS";
+            }
+
+            @Override
+            public DSResponse handle(DSRequest request) {
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        assertName(2, "developer");
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }).join();
+
+                return DSResponse.success(null);
+            }
+        });
+
+        final DSTransaction transaction = Serde.deserializeRequest("""
+            {
+                "transaction": {
+                    "transactionNum": 4,
+                    "operations": [
+                        {
+                            "dataSource":"EmployeeDS",
+                            "operationType":"update",
+                            "textMatchStyle":"exact",
+                            "data":{"id": 2, "name": "developer-2"},
+                            "oldValues":{"id": 2, "name": "developer"}
+                        },
+                        {
+                            "dataSource":"ConcurrentFetchDS",
+                            "operationType":"custom"
+                        }
+                    ]
+                }
+            }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(transaction));
+        Assertions.assertEquals(DSResponse.STATUS_SUCCESS, responses.get(0).getStatus());
+        Assertions.assertEquals(DSResponse.STATUS_SUCCESS, responses.get(1).getStatus());
+
+        assertName(2, "developer-2");
+    }
+
+    private void assertName(int id, String name) throws Exception {
+        final DSRequest request = new DSRequest();
+        request.setDataSource("EmployeeDS");
+        request.setOperationType(DSRequest.OperationType.FETCH);
+        request.setOutputs("id, name");
+        request.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+        request.wrapAndSetData(Map.of("id", id));
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    data:[
+                        {id:%d, name: '%s'}
+                    ]
+                }""".formatted(id, name), handler.handle(request), Option.IGNORING_EXTRA_FIELDS);
+    }
+}
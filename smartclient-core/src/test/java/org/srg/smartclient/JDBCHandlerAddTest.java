@@ -2,6 +2,7 @@ package org.srg.smartclient;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javacrumbs.jsonunit.core.Option;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.srg.smartclient.isomorphic.DSRequest;
@@ -10,6 +11,9 @@ import org.srg.smartclient.utils.ContextualRuntimeException;
 import org.srg.smartclient.utils.Serde;
 
 import java.io.StringWriter;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class JDBCHandlerAddTest extends AbstractJDBCHandlerTest<JDBCHandler> {
 
@@ -148,5 +152,108 @@ public class JDBCHandlerAddTest extends AbstractJDBCHandlerTest<JDBCHandler> {
         Assertions.assertTrue( ex.getMessage().contains("SQL add query execution failed."));
     }
 
+    @Test
+    public void batchAdd() throws Exception {
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 useStrictJSON : true,
+                 dataSource : "EmployeeDS",
+                 operationType : "ADD",
+                 textMatchStyle : "EXACT",
+                 data : [
+                   {name: "Record 1"},
+                   {name: "Record 2"},
+                   {id: 20, name: "Record 3"},
+                   {name: "Record 4"}
+                 ],
+                 oldValues : null
+               }
+            """);
+
+        final DSResponse response = handler.handleAdd(request);
+
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     data:[
+                         {id:7, name: 'Record 1'},
+                         {id:8, name: 'Record 2'},
+                         {id:20, name: 'Record 3'},
+                         {id:21, name: 'Record 4'}
+                     ]
+                }""", response);
+    }
+
+    @Test
+    public void batchAddMustBeRolledBack_ifAnyRecordFails() throws Exception {
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 useStrictJSON : true,
+                 dataSource : "EmployeeDS",
+                 operationType : "ADD",
+                 textMatchStyle : "EXACT",
+                 data : [
+                   {id: 20, name: "Record 1"},
+                   {id: 2, name: "Record 2"}
+                 ],
+                 oldValues : null
+               }
+            """);
+
+        final Exception ex = Assertions.assertThrows(Exception.class, () -> {
+            handler.handleAdd(request);
+        });
+        Assertions.assertTrue( ex.getMessage().contains("SQL batch add query execution failed."));
+
+        final DSRequest fetch = new DSRequest();
+        fetch.setDataSource("EmployeeDS");
+        fetch.setOperationType(DSRequest.OperationType.FETCH);
+        fetch.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+        fetch.wrapAndSetData(Map.of("id", 20));
+
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     data:[]
+                }""", handler.handleFetch(fetch), Option.IGNORING_EXTRA_FIELDS);
+    }
+
+    @Test
+    public void addWithCapturedRow() throws Exception {
+        handler.dataSource().setCaptureModifiedRows(true);
+
+        // Mockito spy overrides all the methods, including row post-processing hooks, that disables row capturing
+        final AtomicInteger fetchCount = new AtomicInteger();
+        final JDBCHandler h = new JDBCHandler(getJDJdbcPolicy(), dsRegistry, handler.dataSource()) {
+            @Override
+            protected DSResponse doHandleFetch(DSRequest request, Connection connection, boolean calculateTotal) throws Exception {
+                fetchCount.incrementAndGet();
+                return super.doHandleFetch(request, connection, calculateTotal);
+            }
+        };
+
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "ADD",
+                 textMatchStyle : "EXACT",
+                 data : {
+                   name: "A new Record"
+                 }
+               }
+            """);
+
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     data:[
+                         {
+                             id:7,
+                             name: 'A new Record'
+                         }
+                     ]
+                }""", h.handleAdd(request));
 
+        Assertions.assertEquals(0, fetchCount.get());
+    }
 }
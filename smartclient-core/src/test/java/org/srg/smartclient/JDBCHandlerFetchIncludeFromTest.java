@@ -1,13 +1,26 @@
 package org.srg.smartclient;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import net.javacrumbs.jsonunit.core.Option;
 import org.hamcrest.MatcherAssert;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.srg.smartclient.isomorphic.DSField;
 import org.srg.smartclient.isomorphic.DSRequest;
 import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.DataSource;
+import org.srg.smartclient.isomorphic.OperationBinding;
 
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalToCompressingWhiteSpace;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class JDBCHandlerFetchIncludeFromTest extends AbstractJDBCHandlerTest<JDBCHandler> {
 
@@ -86,6 +99,48 @@ public class JDBCHandlerFetchIncludeFromTest extends AbstractJDBCHandlerTest<JDB
             }""", response);
     }
 
+    /**
+     * Total is calculated by the query that joins LocationDS, therefore it is dropped once LocationDS is modified.
+     */
+    @Test
+    public void cachedTotal_IsDroppedOnModificationOfIncludedDataSource() throws Exception {
+        final JDBCHandler h = RelationSupportTest.IncludeFrom_TestCases.Direct_Without_IncludeVia.apply(this);
+        final DSHandler location = dsRegistry.getDataSourceHandlerById("LocationDS");
+        Mockito.doReturn(List.of(h, location)).when(dsRegistry).handlers();
+
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setTotalRowsCacheMaxAge(60);
+        h.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id");
+        request.setStartRow(0);
+        request.setEndRow(1);
+        request.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+        request.wrapAndSetData(Map.of("location_city", "Kharkiv"));
+
+        JsonTestSupport.assertJsonEquals("{totalRows: 2}", h.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        final DSRequest update = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "LocationDS",
+                 operationType : "UPDATE",
+                 data : {
+                   id : 2,
+                   city: 'Kharkiv'
+                 },
+                 oldValues : {
+                   id : 2,
+                   city : 'Lviv'
+                 }
+               }
+            """);
+        assertEquals(DSResponse.STATUS_SUCCESS, location.handle(update).getStatus());
+
+        JsonTestSupport.assertJsonEquals("{totalRows: 4}", h.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+    }
+
     @Test
     public void indirectIncludeFrom_without_includeVia() throws Exception {
         final JDBCHandler h = RelationSupportTest.IncludeFrom_TestCases.Indirect_Without_IncludeVia.apply(this);
@@ -461,4 +516,201 @@ public class JDBCHandlerFetchIncludeFromTest extends AbstractJDBCHandlerTest<JDB
                   ]
                 }""", response);
     }
+
+    @Test
+    public void directIncludeFrom_joinIsOmittedWhenNotRequested() throws Exception {
+        final JDBCHandler h = RelationSupportTest.IncludeFrom_TestCases.Direct_Without_IncludeVia.apply(this);
+
+        final DSRequest request = new DSRequest();
+        request.setOperationType(DSRequest.OperationType.FETCH);
+        request.setOutputs("id, name");
+
+        final SQLFetchContext<JDBCHandler> narrowCtx = new SQLFetchContext<>(h, request, null);
+        MatcherAssert.assertThat(narrowCtx.getGenericQuery(), not(containsString("JOIN")));
+
+        // -- join is still generated for the sort field
+        request.setSortBy(List.of("location_city"));
+
+        final SQLFetchContext<JDBCHandler> sortedCtx = new SQLFetchContext<>(h, request, null);
+        MatcherAssert.assertThat(sortedCtx.getGenericQuery(), containsString("LEFT JOIN locations"));
+    }
+
+    /**
+     * Cached plans contain the joins derived from the relations, therefore registration of any handler drops them.
+     */
+    @Test
+    public void directIncludeFrom_cachedPlanIsDroppedOnceHandlerIsRegistered() throws Exception {
+        final JDBCHandler h = RelationSupportTest.IncludeFrom_TestCases.Direct_Without_IncludeVia.apply(this);
+
+        final DSRequest request = new DSRequest();
+        request.setOperationType(DSRequest.OperationType.FETCH);
+        request.setOutputs("id, location_city");
+
+        final SQLFetchContext<JDBCHandler> cachedCtx = new SQLFetchContext<>(h, request, null);
+        MatcherAssert.assertThat(cachedCtx.getGenericQuery(), containsString("locations.city"));
+        assertEquals(1, h.getFetchPlanCache().size());
+
+        // -- re-registered data source stores the city in another column
+        final DataSource location = JsonTestSupport.fromJSON(DataSource.class, Handler.Location);
+        location.getField("city").setDbName("country_id");
+
+        new DSDispatcher(getJDJdbcPolicy()).registerHandler(doInitHandler(location));
+
+        final SQLFetchContext<JDBCHandler> ctx = new SQLFetchContext<>(h, request, null);
+        MatcherAssert.assertThat(ctx.getGenericQuery(), containsString("locations.country_id"));
+    }
+
+    @Test
+    public void directIncludeFrom_memoizedRelationIsDroppedOnceHandlerIsRegistered() throws Exception {
+        final JDBCHandler h = RelationSupportTest.IncludeFrom_TestCases.Direct_Without_IncludeVia.apply(this);
+        final DSField includeFrom = h.getField("location_city");
+
+        final RelationSupport.ImportFromRelation memoized = h.describeImportFrom(includeFrom);
+        assertSame(memoized, h.describeImportFrom(includeFrom));
+
+        // -- re-registered data source
+        final DataSource location = JsonTestSupport.fromJSON(DataSource.class, Handler.Location);
+        new DSDispatcher(getJDJdbcPolicy()).registerHandler(doInitHandler(location));
+
+        final RelationSupport.ImportFromRelation ifr = h.describeImportFrom(includeFrom);
+        assertNotSame(memoized, ifr);
+        assertSame(location, ifr.getLast().foreign().dataSource());
+    }
+
+    /**
+     * Relation that was being resolved while the handler was registered may refer to the previous data source,
+     * therefore it is not memoized for the new generation.
+     */
+    @Test
+    public void relationResolvedBeforeHandlerIsRegistered_IsNotMemoized() throws Exception {
+        final AbstractDSHandler.RelationKey key = new AbstractDSHandler.RelationKey("test", handler.dataSource(), null, null);
+        final AbstractDSHandler.RelationKey anotherKey = new AbstractDSHandler.RelationKey("another", handler.dataSource(), null, null);
+
+        final String stale = handler.memoizeRelation(key, () -> {
+            // -- handler is registered and another relation is resolved meanwhile
+            AbstractDSHandler.invalidateRelations();
+            handler.memoizeRelation(anotherKey, () -> "another");
+            return "stale";
+        });
+        assertEquals("stale", stale);
+
+        assertEquals("actual", handler.memoizeRelation(key, () -> "actual"));
+        assertEquals("another", handler.memoizeRelation(anotherKey, () -> "unexpected"));
+    }
+
+    @Test
+    public void includeSummary_AllStrategiesProduceTheSameData() throws Exception {
+        final JDBCHandler h = RelationSupportTest.IncludeFrom_TestCases.Direct_Multiple_OneToMany_With_IncludeVia.apply(this);
+
+        assertSummaryStrategies(h, "concatRoles", "_concatRolesSummary.summary_value", """
+                {
+                    status: 0,
+                    data:[
+                        {id:1, concatRoles: 'Admin, Developer'},
+                        {id:2, concatRoles: 'Developer'},
+                        {id:3, concatRoles: null},
+                        {id:4, concatRoles: 'PM'},
+                        {id:5, concatRoles: 'PM'},
+                        {id:6, concatRoles: null}
+                    ]
+                }""");
+    }
+
+    @Test
+    public void includeSummaryCount_AllStrategiesReturnZeroForNoRecords() throws Exception {
+        final JDBCHandler h = withHandlers(Handler.EmployeeRole, Handler.Employee);
+        withExtraFields(h, """
+                   [{
+                       name:'rolesCount',
+                       type:'INTEGER',
+                       includeFrom:'EmployeeRoleDS.role',
+                       includeSummaryFunction:'COUNT',
+                       multiple:true
+                   }]
+                """,
+                ExtraFieldBase.Employee_RolesFromEmployeeRole
+        );
+
+        assertSummaryStrategies(h, "rolesCount", "COALESCE(_rolesCountSummary.summary_value, 0)", """
+                {
+                    status: 0,
+                    data:[
+                        {id:1, rolesCount: 2},
+                        {id:2, rolesCount: 1},
+                        {id:3, rolesCount: 0},
+                        {id:4, rolesCount: 1},
+                        {id:5, rolesCount: 1},
+                        {id:6, rolesCount: 0}
+                    ]
+                }""");
+    }
+
+    @Test
+    public void includeSummary_BatchedStrategyFallsBackToSubqueryForSortedField() throws Exception {
+        final JDBCHandler h = RelationSupportTest.IncludeFrom_TestCases.Direct_Multiple_OneToMany_With_IncludeVia.apply(this);
+        h.dataSource().setIncludeSummaryStrategy(DataSource.IncludeSummaryStrategy.BATCHED);
+
+        final DSRequest request = new DSRequest();
+        request.setDataSource(h.id());
+        request.setOperationType(DSRequest.OperationType.FETCH);
+        request.setOutputs("id, concatRoles");
+        request.setSortBy(List.of("concatRoles", "id"));
+
+        final SQLFetchContext<JDBCHandler> ctx = new SQLFetchContext<>(h, request, null);
+        assertTrue(ctx.getBatchedSummaries().isEmpty());
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    data:[
+                        {id:3, concatRoles: null},
+                        {id:6, concatRoles: null},
+                        {id:1, concatRoles: 'Admin, Developer'},
+                        {id:2, concatRoles: 'Developer'},
+                        {id:4, concatRoles: 'PM'},
+                        {id:5, concatRoles: 'PM'}
+                    ]
+                }""", h.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+    }
+
+    /**
+     * Data is verified with the SUBQUERY and BATCHED strategies and with the LATERAL one, that falls back to SUBQUERY,
+     * since the dialect does not support LATERAL. H2 does not support LATERAL, therefore only the generated SQL
+     * is verified for the dialect that supports it.
+     */
+    private static void assertSummaryStrategies(JDBCHandler h, String summaryField, String summaryColumn, String expected) throws Exception {
+        final DSRequest request = new DSRequest();
+        request.setDataSource(h.id());
+        request.setOperationType(DSRequest.OperationType.FETCH);
+        request.setOutputs("id, " + summaryField);
+        request.setSortBy(List.of("id"));
+
+        JsonTestSupport.assertJsonEquals(expected, h.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        // -- batched
+        h.dataSource().setIncludeSummaryStrategy(DataSource.IncludeSummaryStrategy.BATCHED);
+
+        final SQLFetchContext<JDBCHandler> batchedCtx = new SQLFetchContext<>(h, request, null);
+        assertEquals(1, batchedCtx.getBatchedSummaries().size());
+        MatcherAssert.assertThat(batchedCtx.getGenericQuery(), not(containsString("GROUP BY")));
+        MatcherAssert.assertThat(batchedCtx.getGenericQuery(), not(containsString("FROM employee_role")));
+
+        JsonTestSupport.assertJsonEquals(expected, h.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        // -- lateral is not supported by the dialect
+        h.dataSource().setIncludeSummaryStrategy(DataSource.IncludeSummaryStrategy.LATERAL);
+
+        final SQLFetchContext<JDBCHandler> fallbackCtx = new SQLFetchContext<>(h, request, null);
+        MatcherAssert.assertThat(fallbackCtx.getGenericQuery(), not(containsString("LATERAL")));
+
+        JsonTestSupport.assertJsonEquals(expected, h.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        // -- lateral is supported by the dialect
+        Mockito.doReturn(SqlDialect.POSTGRESQL).when(h).getDialect();
+        h.getFetchPlanCache().invalidate();
+
+        final SQLFetchContext<JDBCHandler> ctx = new SQLFetchContext<>(h, request, null);
+        MatcherAssert.assertThat(ctx.getGenericQuery(), containsString("LEFT JOIN LATERAL"));
+        MatcherAssert.assertThat(ctx.getGenericQuery(), containsString(summaryColumn));
+    }
 }
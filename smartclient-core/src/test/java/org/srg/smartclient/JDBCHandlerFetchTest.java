@@ -1,14 +1,28 @@
 package org.srg.smartclient;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import net.javacrumbs.jsonunit.core.Option;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.srg.smartclient.isomorphic.DSRequest;
 import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.OperationBinding;
 
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class JDBCHandlerFetchTest extends AbstractJDBCHandlerTest<JDBCHandler> {
 
     @Override
@@ -142,6 +156,286 @@ public class JDBCHandlerFetchTest extends AbstractJDBCHandlerTest<JDBCHandler> {
     }
 
 
+    @Test
+    public void fetchPaginated_WithWindowFunctionTotal() throws Exception {
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setTotalRowsStrategy(OperationBinding.TotalRowsStrategy.WINDOW_FUNCTION);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        // -- the 2-nd page, total is calculated by the data query
+        DSRequest request = new DSRequest();
+        request.setStartRow(2);
+        request.setEndRow(4);
+
+        final DSResponse response1 = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 2,
+                    endRow: 4,
+                    totalRows: 6,
+                    data:[
+                        {
+                            id:3,
+                            name: 'UseR3'
+                        },
+                        {
+                            id:4,
+                            name: 'manager1'
+                        }
+                    ]
+                }""", response1);
+
+        // -- page beyond the last one, total is calculated by the separate count query
+        request.setStartRow(10);
+        request.setEndRow(12);
+
+        final DSResponse response2 = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 10,
+                    endRow: 10,
+                    totalRows: 6,
+                    data:[]
+                }""", response2);
+    }
+
+    @Test
+    public void fetchPaginated_WithCachedTotal() throws Exception {
+        withExtraFields(ExtraField.Deleted);
+
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setTotalRowsCacheMaxAge(60);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        JsonTestSupport.assertJsonEquals("{totalRows: 6}", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        // -- modification that bypasses data source must not affect cached total
+        try (Connection conn = jdbcDataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("UPDATE employee SET deleted = true WHERE id = 6");
+            conn.commit();
+        }
+
+        JsonTestSupport.assertJsonEquals("{totalRows: 6}", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        // -- modification performed by data source drops cached total
+        final DSRequest removeRequest = new DSRequest();
+        removeRequest.setOperationType(DSRequest.OperationType.REMOVE);
+        removeRequest.wrapAndSetData(Map.of("id", 5));
+        handler.handleRemove(removeRequest);
+
+        JsonTestSupport.assertJsonEquals("{totalRows: 4}", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+    }
+
+    /**
+     * Data source is modified while the total is being calculated, therefore the calculated total may be stale.
+     */
+    @Test
+    public void fetchPaginated_TotalCalculatedBeforeModification_IsNotCached() throws Exception {
+        withExtraFields(ExtraField.Deleted);
+
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setTotalRowsCacheMaxAge(60);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest removeRequest = new DSRequest();
+        removeRequest.setOperationType(DSRequest.OperationType.REMOVE);
+        removeRequest.wrapAndSetData(Map.of("id", 5));
+
+        Mockito.doAnswer(invocation -> {
+                    final Object total = invocation.callRealMethod();
+                    handler.handleRemove(removeRequest);
+                    return total;
+                })
+                .doCallRealMethod()
+                .when(handler).fetchTotalRows(Mockito.any(), Mockito.any());
+
+        final DSRequest request = new DSRequest();
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        JsonTestSupport.assertJsonEquals("{totalRows: 6}", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+        JsonTestSupport.assertJsonEquals("{totalRows: 5}", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+    }
+
+    @Test
+    public void fetchPaginated_WithEstimatedTotal() throws Exception {
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setTotalRowsStrategy(OperationBinding.TotalRowsStrategy.ESTIMATED);
+        binding.setEstimatedTotalRowsLimit(3);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+
+        // -- the 1'st page, total is capped by the limit
+        request.setStartRow(0);
+        request.setEndRow(2);
+        JsonTestSupport.assertJsonEquals("{endRow: 2, totalRows: 3}", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        // -- the 2'nd page, total is extended to let client request the next one
+        request.setStartRow(2);
+        request.setEndRow(4);
+        JsonTestSupport.assertJsonEquals("{endRow: 4, totalRows: 5}", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        // -- the page beyond the last one, exact total is known
+        request.setStartRow(6);
+        request.setEndRow(8);
+        JsonTestSupport.assertJsonEquals("{endRow: 6, totalRows: 6}", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+    }
+
+    @Test
+    public void fetchPaginated_WithKeyset() throws Exception {
+        withExtraFields(ExtraField.Deleted);
+
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setPaginationStrategy(OperationBinding.PaginationStrategy.KEYSET);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setComponentId("grid");
+        request.setOutputs("id, name");
+        request.setSortBy(List.of("-name"));
+
+        // -- the 1'st page
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        JsonTestSupport.assertJsonEquals_WithOrder("""
+                {
+                    status: 0,
+                    startRow: 0,
+                    endRow: 2,
+                    totalRows: 6,
+                    data:[
+                        {id:6, name: 'user2'},
+                        {id:5, name: 'manager2'}
+                    ]
+                }""", handler.handleFetch(request));
+
+        /*
+         * Modification that bypasses data source shifts row positions, with OFFSET the 2'nd page
+         * would skip 'manager1', but seek continues right after the last row of the previous page.
+         */
+        try (Connection conn = jdbcDataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("UPDATE employee SET deleted = true WHERE id = 6");
+            conn.commit();
+        }
+
+        // -- the 2'nd page is located by seek
+        request.setStartRow(2);
+        request.setEndRow(4);
+
+        JsonTestSupport.assertJsonEquals_WithOrder("""
+                {
+                    status: 0,
+                    startRow: 2,
+                    endRow: 4,
+                    totalRows: 5,
+                    data:[
+                        {id:4, name: 'manager1'},
+                        {id:2, name: 'developer'}
+                    ]
+                }""", handler.handleFetch(request));
+
+        // -- random jump, the previous page is unknown, therefore OFFSET is used
+        request.setStartRow(3);
+        request.setEndRow(5);
+
+        JsonTestSupport.assertJsonEquals_WithOrder("""
+                {
+                    status: 0,
+                    startRow: 3,
+                    endRow: 5,
+                    totalRows: 5,
+                    data:[
+                        {id:1, name: 'admin'},
+                        {id:3, name: 'UseR3'}
+                    ]
+                }""", handler.handleFetch(request));
+    }
+
+    /**
+     * Data source is modified while the page is being fetched, therefore the last key of the page may be stale
+     * and the next page is fetched with OFFSET.
+     */
+    @Test
+    public void fetchPaginated_WithKeyset_FetchedBeforeModification_IsNotCached() throws Exception {
+        withExtraFields(ExtraField.Deleted);
+
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setPaginationStrategy(OperationBinding.PaginationStrategy.KEYSET);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest removeRequest = new DSRequest();
+        removeRequest.setOperationType(DSRequest.OperationType.REMOVE);
+        removeRequest.wrapAndSetData(Map.of("id", 3));
+
+        Mockito.doAnswer(invocation -> {
+                    final Object total = invocation.callRealMethod();
+                    handler.handleRemove(removeRequest);
+                    return total;
+                })
+                .doCallRealMethod()
+                .when(handler).fetchTotalRows(Mockito.any(), Mockito.any());
+
+        final DSRequest request = new DSRequest();
+        request.setComponentId("grid");
+        request.setOutputs("id, name");
+        request.setSortBy(List.of("-name"));
+
+        // -- the 1'st page
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        JsonTestSupport.assertJsonEquals_WithOrder("""
+                {
+                    status: 0,
+                    startRow: 0,
+                    endRow: 2,
+                    totalRows: 6,
+                    data:[
+                        {id:6, name: 'user2'},
+                        {id:5, name: 'manager2'}
+                    ]
+                }""", handler.handleFetch(request));
+
+        // -- modification that bypasses data source shifts row positions, seek would return 'manager1' and 'developer'
+        try (Connection conn = jdbcDataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("UPDATE employee SET deleted = true WHERE id = 6");
+            conn.commit();
+        }
+
+        // -- the 2'nd page is fetched with OFFSET
+        request.setStartRow(2);
+        request.setEndRow(4);
+
+        JsonTestSupport.assertJsonEquals_WithOrder("""
+                {
+                    status: 0,
+                    startRow: 2,
+                    endRow: 4,
+                    totalRows: 4,
+                    data:[
+                        {id:2, name: 'developer'},
+                        {id:1, name: 'admin'}
+                    ]
+                }""", handler.handleFetch(request));
+    }
+
     @Test
     public void fetchPaginated() throws Exception {
         // -- the 1'st page
@@ -829,4 +1123,334 @@ public class JDBCHandlerFetchTest extends AbstractJDBCHandlerTest<JDBCHandler> {
                ]
             }""", response);
     }
+
+    @Test
+    public void fetchPaginated_WithKeysetByNullableField() throws Exception {
+        withExtraFields(ExtraField.FiredAt);
+
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setPaginationStrategy(OperationBinding.PaginationStrategy.KEYSET);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setComponentId("grid");
+        request.setOutputs("id, firedAt");
+        request.setSortBy(List.of("-firedAt"));
+
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        JsonTestSupport.assertJsonEquals_WithOrder("""
+                {
+                    status: 0,
+                    startRow: 0,
+                    endRow: 2,
+                    totalRows: 6,
+                    data:[
+                        {id:5, firedAt: '2000-05-04T03:02:01.000+00:00'},
+                        {id:1, firedAt: '2000-01-02T03:04:05.000+00:00'}
+                    ]
+                }""", handler.handleFetch(request));
+
+        // -- rows with NULL sort key can't be located by seek, therefore the page is fetched with OFFSET
+        request.setStartRow(2);
+        request.setEndRow(4);
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 2,
+                    endRow: 4,
+                    totalRows: 6
+                }""", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+    }
+
+    @Test
+    public void fetchPaginated_Streamed() throws Exception {
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setStreamingFetch(true);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setStartRow(1);
+        request.setEndRow(3);
+
+        final DSResponse response = handler.handleFetch(request);
+
+        // -- rows are not fetched until the response is serialized
+        assertTrue(response.getData().getRawDataResponse().isStreamed());
+
+        JsonTestSupport.assertJsonEquals_WithOrder("""
+                {
+                    status: 0,
+                    startRow: 1,
+                    endRow: 3,
+                    totalRows: 6,
+                    data:[
+                        {id:2, name: 'developer'},
+                        {id:3, name: 'UseR3'}
+                    ]
+                }""", response);
+    }
+
+    @Test
+    public void fetchStreamed_IsTraversedOnlyOnce() throws Exception {
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setStreamingFetch(true);
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        final DSResponse response = handler.handleFetch(request);
+        final Iterable<Object[]> data = response.getData().getRawDataResponse().getData();
+
+        final List<Object> ids = new LinkedList<>();
+        for (Object[] r : data) {
+            ids.add(r[0]);
+        }
+
+        assertEquals(List.of(1, 2), ids);
+        assertThrows(IllegalStateException.class, () -> data.forEach(r -> {}));
+    }
+
+    @Test
+    public void fetchWithCustomSQL_TransfersAllColumns() throws Exception {
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setCustomSQL("SELECT e.id AS employee_id, e.name AS employee_name FROM employee e WHERE e.id < 3");
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+
+        JsonTestSupport.assertJsonEquals_WithOrder("""
+                {
+                    status: 0,
+                    startRow: 0,
+                    endRow: 2,
+                    totalRows: 2,
+                    data:[
+                        {id:1, name: 'admin'},
+                        {id:2, name: 'developer'}
+                    ]
+                }""", handler.handleFetch(request));
+    }
+
+    @Test
+    public void fetchWithCachedPlan() throws Exception {
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+        request.wrapAndSetData(Map.of("name", "developer"));
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    data:[
+                        {id:2, name: 'developer'}
+                    ]
+                }""", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        assertEquals(1, handler.getFetchPlanCache().size());
+
+        // -- the same criteria shape with another value re-uses the plan
+        request.wrapAndSetData(Map.of("name", "admin"));
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    data:[
+                        {id:1, name: 'admin'}
+                    ]
+                }""", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        assertEquals(1, handler.getFetchPlanCache().size());
+
+        // -- SQL that depends on the criteria values is not cached
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setWhereClause("opaque.name = '${criteria.name}'");
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    data:[
+                        {id:1, name: 'admin'}
+                    ]
+                }""", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        assertEquals(1, handler.getFetchPlanCache().size());
+    }
+
+    /**
+     * Only the templates provided by the operation binding are parsed and cached, but never the rendered SQL,
+     * that differs for each set of the requested fields.
+     */
+    @Test
+    public void fetchWithTemplate_CachesOnlyBindingTemplates() throws Exception {
+        final OperationBinding binding = new OperationBinding();
+        binding.setOperationType(DSRequest.OperationType.FETCH);
+        binding.setWhereClause("${defaultWhereClause} AND opaque.id_employee <> ${criteria.id} + 1");
+        handler.dataSource().setOperationBindings(List.of(binding));
+
+        final DSRequest request = new DSRequest();
+        request.setOperationType(DSRequest.OperationType.FETCH);
+        request.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+        request.wrapAndSetData(Map.of("id", 2));
+
+        request.setOutputs("id, name");
+        JsonTestSupport.assertJsonEquals("{data:[{id:2, name: 'developer'}]}",
+                handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+
+        final int cachedTemplates = SQLTemplateEngine.getCachedTemplateCount();
+
+        for (String outputs : new String[] {"id", "name, id"}) {
+            request.setOutputs(outputs);
+            JsonTestSupport.assertJsonEquals("{status: 0}", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+        }
+
+        assertEquals(cachedTemplates, SQLTemplateEngine.getCachedTemplateCount());
+    }
+
+    @Test
+    public void fetchWithCriteriaOnlyField_IsNotProjected() throws Exception {
+        withExtraFields(ExtraField.Email);
+
+        final DSRequest request = new DSRequest();
+        request.setOperationType(DSRequest.OperationType.FETCH);
+        request.setOutputs("id, name");
+        request.setTextMatchStyle(DSRequest.TextMatchStyle.SUBSTRING);
+        request.wrapAndSetData(Map.of("email", "pm2"));
+
+        final SQLFetchContext<JDBCHandler> ctx = new SQLFetchContext<>(handler, request, null);
+        assertEquals("opaque.id_employee, opaque.name_employee", ctx.getOutputColumns());
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    data:[
+                        {id:5, name: 'manager2'}
+                    ]
+                }""", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+    }
+
+    @Test
+    public void fetchPaginated_WithConcurrentTotal() throws Exception {
+        handler.dataSource().setConcurrentTotalRows(true);
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setStartRow(2);
+        request.setEndRow(4);
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 2,
+                    endRow: 4,
+                    totalRows: 6,
+                    data:[
+                        {id:3, name: 'UseR3'},
+                        {id:4, name: 'manager1'}
+                    ]
+                }""", handler.handleFetch(request));
+    }
+
+    /**
+     * Fetch holds the only pooled connection, therefore the concurrent count must not wait for the second one.
+     */
+    @Test
+    public void fetchPaginated_WithConcurrentTotal_FallsBackToCurrentConnection() throws Exception {
+        handler.dataSource().setConcurrentTotalRows(true);
+        limitConnections(1);
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setStartRow(2);
+        request.setEndRow(4);
+
+        final DSResponse response = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> handler.handleFetch(request));
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 2,
+                    endRow: 4,
+                    totalRows: 6,
+                    data:[
+                        {id:3, name: 'UseR3'},
+                        {id:4, name: 'manager1'}
+                    ]
+                }""", response);
+    }
+
+    @Test
+    public void fetchWithCachedResponse() throws Exception {
+        handler.dataSource().setFetchCacheMaxEntries(10);
+
+        final DSRequest request = new DSRequest();
+        request.setDataSource("EmployeeDS");
+        request.setOperationType(DSRequest.OperationType.FETCH);
+        request.setOutputs("id, name");
+        request.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+        request.wrapAndSetData(Map.of("id", 2));
+
+        final String expected = """
+                {
+                    status: 0,
+                    data:[
+                        {id:2, name: 'developer'}
+                    ]
+                }""";
+
+        final DSResponse fetched = handler.handle(request);
+        JsonTestSupport.assertJsonEquals(expected, fetched, Option.IGNORING_EXTRA_FIELDS);
+
+        // -- cached snapshot is not affected by the modifications of the returned responses
+        fetched.setOperationId("modified");
+
+        final DSResponse cached = handler.handle(request);
+        JsonTestSupport.assertJsonEquals(expected, cached, Option.IGNORING_EXTRA_FIELDS);
+        assertNull(cached.getOperationId());
+        assertNotSame(cached, handler.handle(request));
+
+        Mockito.verify(handler, Mockito.times(1))
+                .handleFetch(Mockito.any());
+
+        // -- modification drops cached responses
+        final DSRequest update = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "UPDATE",
+                 data : {
+                   id : 2,
+                   name: 'updated-developer'
+                 },
+                 oldValues : {
+                   id : 2,
+                   name : 'developer'
+                 }
+               }
+            """);
+        handler.handle(update);
+
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    data:[
+                        {id:2, name: 'updated-developer'}
+                    ]
+                }""", handler.handle(request), Option.IGNORING_EXTRA_FIELDS);
+
+        Mockito.verify(handler, Mockito.times(2))
+                .handleFetch(Mockito.any());
+    }
 }
@@ -10,6 +10,8 @@ import org.srg.smartclient.utils.ContextualRuntimeException;
 import org.srg.smartclient.utils.Serde;
 
 import java.io.StringWriter;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class JDBCHandlerUpdateTest extends AbstractJDBCHandlerTest<JDBCHandler> {
@@ -198,4 +200,51 @@ public class JDBCHandlerUpdateTest extends AbstractJDBCHandlerTest<JDBCHandler>
 
         Assertions.assertTrue( ex.getMessage().contains("unexisted_field"));
     }
+
+    @Test
+    public void updateWithCapturedRow() throws Exception {
+        withExtraFields(ExtraField.Email);
+        handler.dataSource().setCaptureModifiedRows(true);
+
+        // Mockito spy overrides all the methods, including row post-processing hooks, that disables row capturing
+        final AtomicInteger fetchCount = new AtomicInteger();
+        final JDBCHandler h = new JDBCHandler(getJDJdbcPolicy(), dsRegistry, handler.dataSource()) {
+            @Override
+            protected DSResponse doHandleFetch(DSRequest request, Connection connection, boolean calculateTotal) throws Exception {
+                fetchCount.incrementAndGet();
+                return super.doHandleFetch(request, connection, calculateTotal);
+            }
+        };
+
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "UPDATE",
+                 textMatchStyle : "EXACT",
+                 data : {
+                   id : 2,
+                   email: 'updated-developer@acme.org'
+                 },
+                 oldValues : {
+                   id : 2,
+                   name : 'developer',
+                   email: 'developer@acme.org'
+                 }
+               }
+            """);
+
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     data:[
+                         {
+                             id:2,
+                             email:'updated-developer@acme.org',
+                             name:'developer'
+                         }
+                     ]
+                }""", h.handleUpdate(request));
+
+        Assertions.assertEquals(0, fetchCount.get());
+    }
 }
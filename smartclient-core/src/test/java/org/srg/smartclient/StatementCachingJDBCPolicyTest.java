@@ -0,0 +1,290 @@
+package org.srg.smartclient;
+
+import net.javacrumbs.jsonunit.core.Option;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.srg.smartclient.isomorphic.DSRequest;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+public class StatementCachingJDBCPolicyTest extends AbstractJDBCHandlerTest<JDBCHandler> {
+    private static final String SELECT_NAME = "SELECT name FROM employee WHERE id = ?";
+
+    private final ProxyConnectionPool pool = new ProxyConnectionPool(2);
+    private final JDBCHandler.JDBCPolicy poolPolicy = (db, callback) -> {
+        try (Connection connection = pool.borrow()) {
+            callback.apply(connection);
+        }
+    };
+
+    private StatementCachingJDBCPolicy cachingPolicy;
+
+    @Override
+    protected Class<JDBCHandler> getHandlerClass() {
+        return JDBCHandler.class;
+    }
+
+    @Override
+    protected JDBCHandler.JDBCPolicy getJDJdbcPolicy() {
+        cachingPolicy = new StatementCachingJDBCPolicy(poolPolicy);
+        return cachingPolicy;
+    }
+
+    @AfterEach
+    public void closePool() throws SQLException {
+        pool.evictIdle();
+    }
+
+    @Test
+    public void repeatedFetchReusesStatements() throws Exception {
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        final String expected = """
+                {
+                    status: 0,
+                    startRow: 0,
+                    endRow: 2,
+                    totalRows: 6,
+                    data:[
+                        {id:1, name: 'admin'},
+                        {id:2, name: 'developer'}
+                    ]
+                }""";
+
+        JsonTestSupport.assertJsonEquals(expected, handler.handleFetch(request));
+
+        // -- count and page queries are prepared once
+        assertEquals(0, cachingPolicy.getHits());
+        assertEquals(2, cachingPolicy.getMisses());
+
+        JsonTestSupport.assertJsonEquals(expected, handler.handleFetch(request));
+
+        assertEquals(2, cachingPolicy.getHits());
+        assertEquals(2, cachingPolicy.getMisses());
+        assertEquals(2, cachingPolicy.getCachedStatementCount());
+
+        // -- statement settings are restored, therefore unpaginated fetch is not limited by the previous max rows
+        request.setEndRow(-1);
+        request.setStartRow(0);
+        JsonTestSupport.assertJsonEquals("{endRow: 6}", handler.handleFetch(request), Option.IGNORING_EXTRA_FIELDS);
+    }
+
+    /**
+     * Each borrow provides a new pooled proxy, but statements are re-used as long as the physical connection is the same.
+     */
+    @Test
+    public void statementsAreCachedPerPhysicalConnection() throws Exception {
+        for (int i = 0; i < 2; ++i) {
+            cachingPolicy.withConnectionDo(null, outer -> {
+                assertEquals("admin", selectName(outer, 1));
+
+                cachingPolicy.withConnectionDo(null, inner -> {
+                    assertEquals("developer", selectName(inner, 2));
+                    return null;
+                });
+                return null;
+            });
+        }
+
+        assertEquals(2, cachingPolicy.getMisses());
+        assertEquals(2, cachingPolicy.getHits());
+        assertEquals(2, cachingPolicy.getCachedStatementCount());
+    }
+
+    /**
+     * Pool does not track the statements of the physical connection, therefore it does not roll back
+     * the connection that is returned to it.
+     */
+    @Test
+    public void uncommittedChangesAreRolledBackOnRelease() throws Exception {
+        cachingPolicy.withConnectionDo(null, conn -> {
+            try (PreparedStatement st = conn.prepareStatement("UPDATE employee SET name = 'changed' WHERE id = 1")) {
+                st.executeUpdate();
+            }
+            return null;
+        });
+
+        cachingPolicy.withConnectionDo(null, conn -> {
+            assertEquals("admin", selectName(conn, 1));
+            return null;
+        });
+    }
+
+    /**
+     * Physical connection may be closed by the pool while the others are still re-used.
+     */
+    @Test
+    public void closedConnectionsAreForgottenOnRelease() throws Exception {
+        cachingPolicy.withConnectionDo(null, outer -> {
+            selectName(outer, 1);
+
+            cachingPolicy.withConnectionDo(null, inner -> {
+                selectName(inner, 2);
+                return null;
+            });
+            return null;
+        });
+        assertEquals(2, cachingPolicy.getCachedStatementCount());
+
+        pool.evictEldest();
+
+        cachingPolicy.withConnectionDo(null, conn -> null);
+        assertEquals(1, cachingPolicy.getCachedStatementCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsEvicted() throws Exception {
+        final StatementCachingJDBCPolicy policy = new StatementCachingJDBCPolicy(poolPolicy, 2);
+
+        policy.withConnectionDo(null, conn -> {
+            for (String sql : new String[] {SELECT_NAME, "SELECT id FROM employee", "SELECT email FROM employee"}) {
+                conn.prepareStatement(sql).close();
+            }
+            assertEquals(2, policy.getCachedStatementCount());
+
+            // -- the eldest one was evicted, therefore it is prepared again
+            assertEquals("admin", selectName(conn, 1));
+            return null;
+        });
+
+        assertEquals(0, policy.getHits());
+        assertEquals(4, policy.getMisses());
+    }
+
+    /**
+     * The same SQL may be prepared while the cached statement is still in use, e.g. by a nested fetch.
+     */
+    @Test
+    public void statementInUseIsNotShared() throws Exception {
+        cachingPolicy.withConnectionDo(null, conn -> {
+            try (PreparedStatement outer = conn.prepareStatement(SELECT_NAME);
+                 PreparedStatement inner = conn.prepareStatement(SELECT_NAME)) {
+                assertNotSame(outer, inner);
+
+                outer.setInt(1, 1);
+                inner.setInt(1, 2);
+
+                try (ResultSet outerRs = outer.executeQuery();
+                     ResultSet innerRs = inner.executeQuery()) {
+                    outerRs.next();
+                    innerRs.next();
+                    assertEquals("admin", outerRs.getString(1));
+                    assertEquals("developer", innerRs.getString(1));
+                }
+            }
+
+            assertEquals(1, cachingPolicy.getCachedStatementCount());
+            assertEquals("admin", selectName(conn, 1));
+            return null;
+        });
+
+        assertEquals(1, cachingPolicy.getHits());
+        assertEquals(2, cachingPolicy.getMisses());
+    }
+
+    private static String selectName(Connection conn, int id) throws SQLException {
+        try (PreparedStatement st = conn.prepareStatement(SELECT_NAME)) {
+            st.setInt(1, id);
+            try (ResultSet rs = st.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    /**
+     * Emulates the pool that hands out proxies of the physical connections, as HikariCP does: the proxy unwraps
+     * to the physical connection, and the returned connection is not rolled back, since the statements prepared
+     * by the physical connection directly are not tracked by the pool. The most recently returned connection
+     * is borrowed first.
+     */
+    private class ProxyConnectionPool {
+        private final int maxSize;
+        private final Deque<Connection> idle = new ArrayDeque<>();
+        private int size;
+
+        private ProxyConnectionPool(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private synchronized Connection borrow() throws SQLException {
+            Connection physical = idle.pollFirst();
+            if (physical == null) {
+                if (size == maxSize) {
+                    throw new SQLTransientConnectionException("Connection is not available.");
+                }
+                physical = jdbcDataSource.getConnection();
+                ++size;
+            }
+
+            final Connection p = physical;
+            final boolean[] closed = {false};
+
+            return (Connection) Proxy.newProxyInstance(
+                    StatementCachingJDBCPolicyTest.class.getClassLoader(),
+                    new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                if (!closed[0]) {
+                                    closed[0] = true;
+                                    giveBack(p);
+                                }
+                                return null;
+
+                            case "isClosed":
+                                return closed[0];
+
+                            case "isWrapperFor":
+                                return ((Class<?>) args[0]).isInstance(p);
+
+                            case "unwrap":
+                                return p;
+                        }
+
+                        try {
+                            return method.invoke(p, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        private synchronized void giveBack(Connection physical) {
+            idle.addFirst(physical);
+        }
+
+        /**
+         * Closes the least recently used idle physical connection, as the pool does once it reaches its max lifetime.
+         */
+        private synchronized void evictEldest() throws SQLException {
+            idle.removeLast().close();
+            --size;
+        }
+
+        /**
+         * Closes all the idle physical connections.
+         */
+        private synchronized void evictIdle() throws SQLException {
+            for (Connection c : idle) {
+                c.close();
+            }
+            size -= idle.size();
+            idle.clear();
+        }
+    }
+}
@@ -5,6 +5,8 @@ import org.srg.smartclient.isomorphic.Config;
 
 import java.io.IOException;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 
 public class TestServerConfig {
 
@@ -21,7 +23,8 @@ public class TestServerConfig {
                         "            name:'test2'," +
                         "            database:{" +
                         "               type:'h2'," +
-                        "               ansiMode:false" +
+                        "               ansiMode:false," +
+                        "               caseInsensitiveCollation:false" +
                         "            }," +
                         "            driverClass:'org.h2.jdbcx.JdbcDataSource'," +
                         "            driverProperties:{" +
@@ -34,7 +37,8 @@ public class TestServerConfig {
                         "            name:'test1'," +
                         "            database:{" +
                         "               type:'mysql'," +
-                        "               ansiMode:false" +
+                        "               ansiMode:false," +
+                        "               caseInsensitiveCollation:true" +
                         "            }," +
                         "            driverClass:'com.mysql.jdbc.jdbc2.optional.MysqlDataSource'," +
                         "            driverProperties:{" +
@@ -46,4 +50,18 @@ public class TestServerConfig {
                         "}", cfg
         );
     }
+
+    @Test
+    public void dialect() {
+        assertEquals(SqlDialect.H2, DBConnectionManager.get().getDialect("test2"));
+
+        // -- MySQL relies on the collation only if it is configured explicitly
+        assertEquals("LOWER(%s) LIKE LOWER(?)", SqlDialect.MYSQL.caseInsensitiveLike(false));
+        assertEquals("LOWER(%s) = LOWER(?)", SqlDialect.MYSQL.caseInsensitiveEquals(false));
+
+        final SqlDialect mysql = DBConnectionManager.get().getDialect("test1");
+        assertEquals("%s LIKE ?", mysql.caseInsensitiveLike(false));
+        assertEquals("%s <> ?", mysql.caseInsensitiveEquals(true));
+        assertEquals(SqlDialect.MYSQL.stringAggregate("name", ","), mysql.stringAggregate("name", ","));
+    }
 }
@@ -12,6 +12,29 @@ public class SmartClientProperties {
     private String dispatcherPath = "/dispatcher";
     private String sharedDirectory = DSDispatcher.DEFAULT_DS_PATH;
 
+    /**
+     * Maximum number of prepared statements cached per physical DB connection, 0 disables caching.
+     */
+    private int statementCacheSize = 0;
+
+    /**
+     * Whether all the operations of a queue are performed within a single DB transaction.
+     */
+    private boolean transactionalQueues = false;
+
+    /**
+     * Maximum number of leading FETCH operations of a queue that are handled concurrently, 1 (default) disables it.
+     * Concurrent FETCHes are handled by the pool threads without the ThreadLocal context of the request thread
+     * (security context, transaction or JPA session), therefore enable it only for handlers that do not rely on it.
+     */
+    private int parallelFetchLimit = DSDispatcher.DEFAULT_PARALLEL_FETCH_LIMIT;
+
+    /**
+     * Whether all the compared string columns have case-insensitive collation, therefore case-insensitive
+     * criteria are generated without LOWER() where the database supports it (MySQL).
+     */
+    private boolean caseInsensitiveCollation = false;
+
     public String getDispatcherPath() {
         return dispatcherPath;
     }
@@ -27,4 +50,36 @@ public class SmartClientProperties {
     public void setSharedDirectory(String sharedDirectory) {
         this.sharedDirectory = sharedDirectory;
     }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public boolean isTransactionalQueues() {
+        return transactionalQueues;
+    }
+
+    public void setTransactionalQueues(boolean transactionalQueues) {
+        this.transactionalQueues = transactionalQueues;
+    }
+
+    public int getParallelFetchLimit() {
+        return parallelFetchLimit;
+    }
+
+    public void setParallelFetchLimit(int parallelFetchLimit) {
+        this.parallelFetchLimit = parallelFetchLimit;
+    }
+
+    public boolean isCaseInsensitiveCollation() {
+        return caseInsensitiveCollation;
+    }
+
+    public void setCaseInsensitiveCollation(boolean caseInsensitiveCollation) {
+        this.caseInsensitiveCollation = caseInsensitiveCollation;
+    }
 }
@@ -7,6 +7,7 @@ import org.springframework.util.Assert;
 import org.srg.smartclient.DSDispatcher;
 import org.srg.smartclient.IDSDispatcher;
 import org.srg.smartclient.JDBCHandler;
+import org.srg.smartclient.StatementCachingJDBCPolicy;
 import org.srg.smartclient.spring.SmartClientProperties;
 
 import javax.sql.DataSource;
@@ -20,6 +21,7 @@ public class BasicSmartClientConfigurer implements SmartClientConfigurer, Initia
     private PlatformTransactionManager transactionManager;
     private IDSDispatcher dsDispatcher;
     private DataSourceJDBCPolicy dataSourceJDBCPolicy;
+    private JDBCHandler.JDBCPolicy jdbcPolicy;
 
 
     public BasicSmartClientConfigurer(SmartClientProperties properties, DataSource dataSource) {
@@ -38,7 +40,7 @@ public class BasicSmartClientConfigurer implements SmartClientConfigurer, Initia
     }
 
     protected JDBCHandler.JDBCPolicy getJdbcPolicy() {
-        return dataSourceJDBCPolicy;
+        return jdbcPolicy;
     }
 
     protected IDSDispatcher buildDSDispatcher() {
@@ -63,9 +65,20 @@ public class BasicSmartClientConfigurer implements SmartClientConfigurer, Initia
             Assert.state(dataSource != null, "DataSource must be set.");
 
             dataSourceJDBCPolicy = new DataSourceJDBCPolicy(dataSource);
+            dataSourceJDBCPolicy.setCaseInsensitiveCollation(properties.isCaseInsensitiveCollation());
+            dataSourceJDBCPolicy.detectDialect();
+
+            jdbcPolicy = properties.getStatementCacheSize() > 0 ?
+                    new StatementCachingJDBCPolicy(dataSourceJDBCPolicy, properties.getStatementCacheSize())
+                    : dataSourceJDBCPolicy;
 
             this.transactionManager = buildTransactionManager();
             this.dsDispatcher = buildDSDispatcher();
+
+            if (this.dsDispatcher instanceof DSDispatcher d) {
+                d.setTransactionalQueues(properties.isTransactionalQueues());
+                d.setParallelFetchLimit(properties.getParallelFetchLimit());
+            }
         }
         catch (Exception ex) {
             throw new IllegalStateException("Unable to initialize Smart Client", ex);
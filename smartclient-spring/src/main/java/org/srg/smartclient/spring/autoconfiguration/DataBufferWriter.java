@@ -0,0 +1,97 @@
+package org.srg.smartclient.spring.autoconfiguration;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import reactor.core.publisher.FluxSink;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writer that emits written text as a sequence of {@link DataBuffer} chunks.
+ *
+ * Chunk is emitted only when it is requested by the downstream, therefore the writing thread is blocked
+ * while the client is not ready to consume, that bounds memory usage by the chunk size.
+ *
+ * Closing the writer just flushes it, since Jackson closes the target after each written value,
+ * {@link FluxSink} must be completed explicitly.
+ */
+class DataBufferWriter extends Writer {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final FluxSink<DataBuffer> sink;
+    private final DataBufferFactory bufferFactory;
+    private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE);
+
+    private final Object lock = new Object();
+    private long requested;
+    private boolean cancelled;
+
+    DataBufferWriter(FluxSink<DataBuffer> sink, DataBufferFactory bufferFactory) {
+        this.sink = sink;
+        this.bufferFactory = bufferFactory;
+
+        sink.onRequest(n -> {
+            synchronized (lock) {
+                requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+                lock.notifyAll();
+            }
+        });
+
+        sink.onCancel(() -> {
+            synchronized (lock) {
+                cancelled = true;
+                lock.notifyAll();
+            }
+        });
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        chunk.append(cbuf, off, len);
+
+        if (chunk.length() >= CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // Surrogate pair must not be split between chunks, otherwise it will be encoded improperly
+        final int end = chunk.length() > 0 && Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)) ?
+                chunk.length() - 1 : chunk.length();
+
+        if (end == 0) {
+            return;
+        }
+
+        synchronized (lock) {
+            while (requested == 0 && !cancelled) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Response streaming was interrupted.");
+                }
+            }
+
+            if (cancelled) {
+                throw new IOException("Response streaming was cancelled by the client.");
+            }
+
+            if (requested != Long.MAX_VALUE) {
+                --requested;
+            }
+        }
+
+        sink.next(bufferFactory.wrap(chunk.substring(0, end).getBytes(StandardCharsets.UTF_8)));
+        chunk.delete(0, end);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
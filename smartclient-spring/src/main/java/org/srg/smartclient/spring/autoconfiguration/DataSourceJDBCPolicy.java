@@ -1,30 +1,79 @@
 package org.srg.smartclient.spring.autoconfiguration;
 
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.srg.smartclient.JDBCHandler;
+import org.srg.smartclient.SqlDialect;
 import org.srg.smartclient.utils.Utils;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 
 public class DataSourceJDBCPolicy implements JDBCHandler.JDBCPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceJDBCPolicy.class);
+
     private DataSource dataSource;
+    private volatile SqlDialect dialect;
+    private boolean caseInsensitiveCollation;
 
     public DataSourceJDBCPolicy(DataSource dataSource) {
         this.dataSource = dataSource;
     }
 
+    /**
+     * @see SqlDialect#withCaseInsensitiveCollation()
+     */
+    public void setCaseInsensitiveCollation(boolean caseInsensitiveCollation) {
+        this.caseInsensitiveCollation = caseInsensitiveCollation;
+    }
+
     @Override
     public void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
         // https://www.postgresql.org/message-id/CAKq0gv%2BwqDv6cmF__XR1sEY3wun0V2FQ4HenG%2BEc073xOU394Q%40mail.gmail.com
         try (final Connection connection = dataSource.getConnection() ){
             if (connection.getAutoCommit()) {
-                LoggerFactory.getLogger(DataSourceJDBCPolicy.class).warn(
+                logger.warn(
                         "Setting DB Connection autocommit to false. Consider to configure this in db connection."
                 );
                 connection.setAutoCommit(false);
             }
+
+            if (dialect == null) {
+                detectDialect(connection);
+            }
             callback.apply(connection);
         }
     }
+
+    /**
+     * Determines the dialect eagerly, therefore it is known before the first query is generated.
+     * If the database is not available yet, the dialect is determined by the first borrowed connection.
+     */
+    public void detectDialect() {
+        try (final Connection connection = dataSource.getConnection()) {
+            detectDialect(connection);
+        } catch (Exception e) {
+            logger.warn("Can't borrow a connection to determine the database product, " +
+                    "it will be determined by the first borrowed connection.", e);
+        }
+    }
+
+    private void detectDialect(Connection connection) {
+        try {
+            final SqlDialect d = SqlDialect.forProductName(connection.getMetaData().getDatabaseProductName());
+            dialect = caseInsensitiveCollation ? d.withCaseInsensitiveCollation() : d;
+        } catch (Exception e) {
+            logger.warn("Can't determine the database product, the generic SQL dialect will be used until it is determined.", e);
+        }
+    }
+
+    /**
+     * Dialect is determined by the database product name reported by the driver. Connection is never borrowed here,
+     * since the caller may already hold one, the generic dialect is used until the dialect is determined.
+     */
+    @Override
+    public SqlDialect getDialect(String database) {
+        final SqlDialect d = dialect;
+        return d == null ? SqlDialect.GENERIC : d;
+    }
 }
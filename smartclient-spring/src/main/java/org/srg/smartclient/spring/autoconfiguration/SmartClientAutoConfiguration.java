@@ -11,26 +11,34 @@ import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfigurat
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.*;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.util.MimeType;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import org.srg.smartclient.IDSDispatcher;
+import org.srg.smartclient.isomorphic.DSResponseDataContainer;
 import org.srg.smartclient.isomorphic.DSTransaction;
+import org.srg.smartclient.utils.Utils;
 import org.srg.smartclient.utils.Serde;
 import org.srg.smartclient.isomorphic.DSResponse;
 import org.srg.smartclient.isomorphic.IDSRequest;
 import org.srg.smartclient.spring.SmartClientProperties;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import javax.sql.DataSource;
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Optional;
 
@@ -80,8 +88,26 @@ public class SmartClientAutoConfiguration {
         try {
             final Collection<DSResponse> responses = dsDispatcher.dispatch(dsRequest);
 
+            final boolean isStreamed = responses.stream()
+                    .anyMatch(r -> r.getStatus() == DSResponse.STATUS_SUCCESS
+                            && r.getData() != null
+                            && r.getData().getResponseType() == DSResponseDataContainer.ResponseType.RAW
+                            && r.getData().getRawDataResponse().isStreamed());
+
             if (fileName == null || fileName.isBlank()) {
                 // -- Usual request processing
+                if (isStreamed) {
+                    return ServerResponse
+                            .ok()
+                            .cacheControl(CacheControl.noCache())
+                            .body(BodyInserters.fromDataBuffers(streamBody(w -> {
+                                w.write("<SCRIPT>//'\"]]>>isc_JSONResponseStart>>\n");
+                                Serde.serializeResponse(w, transactionNum, responses);
+                                w.write("\n//isc_JSONResponseEnd");
+                                return null;
+                            })));
+                }
+
                 try (final StringWriter sw = new StringWriter();) {
                     sw.write("<SCRIPT>//'\"]]>>isc_JSONResponseStart>>\n");
 
@@ -113,6 +139,18 @@ public class SmartClientAutoConfiguration {
 
                 final DSResponse response = responses.iterator().next();
 
+                if (isStreamed) {
+                    return ServerResponse
+                            .ok()
+                            .cacheControl(CacheControl.noCache())
+                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                            .header(HttpHeaders.CONTENT_TYPE, "text/csv")
+                            .body(BodyInserters.fromDataBuffers(streamBody(w -> {
+                                Serde.serializeResponseAsCSV(w, ',', response, byDatasourceConfig);
+                                return null;
+                            })));
+                }
+
                 try(final ByteArrayOutputStream bos = new ByteArrayOutputStream();) {
                     try (final OutputStreamWriter writer = new OutputStreamWriter(bos);) {
                         Serde.serializeResponseAsCSV(writer, ',', response, byDatasourceConfig);
@@ -143,6 +181,26 @@ public class SmartClientAutoConfiguration {
     }
 
 
+    /**
+     * Serializes the response while it is being sent to the client, that allows streamed data to be written
+     * straight from the open ResultSet without buffering the whole response in memory.
+     *
+     * Serialization is blocking (JDBC), therefore it is performed on the bounded elastic scheduler.
+     */
+    protected Flux<DataBuffer> streamBody(Utils.CheckedFunction<Writer, Void> serializer) {
+        return Flux.<DataBuffer>create(sink -> {
+                    try (Writer writer = new DataBufferWriter(sink, DefaultDataBufferFactory.sharedInstance)) {
+                        serializer.apply(writer);
+                    } catch (Throwable t) {
+                        logger.error("Streamed response serialization failed.", t);
+                        sink.error(t);
+                        return;
+                    }
+                    sink.complete();
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
     @Bean
     public RouterFunction<ServerResponse> smartClientRESTHandler() {
         // https://github.com/sdeleuze/webflux-multipart/blob/master/src/main/java/com/example/MultipartRoute.java
@@ -0,0 +1,90 @@
+package org.srg.smartclient;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.srg.smartclient.spring.autoconfiguration.DataSourceJDBCPolicy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DataSourceJDBCPolicyTest {
+    private DataSource dataSource;
+    private String productName = "PostgreSQL";
+
+    /**
+     * Emulates the pool of a single connection, borrowing from the exhausted pool fails the same way
+     * as the pool timeout does.
+     */
+    @BeforeEach
+    public void setupPool() throws Exception {
+        final Semaphore pool = new Semaphore(1);
+
+        final DatabaseMetaData metaData = Mockito.mock(DatabaseMetaData.class);
+        Mockito.doAnswer(invocation -> productName).when(metaData).getDatabaseProductName();
+
+        dataSource = Mockito.mock(DataSource.class);
+        Mockito.doAnswer(invocation -> {
+            if (!pool.tryAcquire()) {
+                throw new SQLTransientConnectionException("Connection is not available, request timed out.");
+            }
+
+            final Connection connection = Mockito.mock(Connection.class);
+            Mockito.doReturn(metaData).when(connection).getMetaData();
+            Mockito.doAnswer(i -> {
+                pool.release();
+                return null;
+            }).when(connection).close();
+            return connection;
+        }).when(dataSource).getConnection();
+    }
+
+    @Test
+    public void dialect_IsDeterminedByTheConnectionInHand() throws Exception {
+        final DataSourceJDBCPolicy policy = new DataSourceJDBCPolicy(dataSource);
+
+        policy.withConnectionDo(null, conn -> {
+            assertEquals(SqlDialect.POSTGRESQL, policy.getDialect(null));
+            return null;
+        });
+    }
+
+    @Test
+    public void dialect_IsDeterminedEagerly() throws Exception {
+        final DataSourceJDBCPolicy policy = new DataSourceJDBCPolicy(dataSource);
+        policy.detectDialect();
+
+        assertEquals(SqlDialect.POSTGRESQL, policy.getDialect(null));
+    }
+
+    @Test
+    public void genericDialect_IsNotCachedIfPoolIsExhausted() throws Exception {
+        final DataSourceJDBCPolicy policy = new DataSourceJDBCPolicy(dataSource);
+
+        try (Connection ignored = dataSource.getConnection()) {
+            policy.detectDialect();
+            assertEquals(SqlDialect.GENERIC, policy.getDialect(null));
+        }
+
+        policy.withConnectionDo(null, conn -> null);
+        assertEquals(SqlDialect.POSTGRESQL, policy.getDialect(null));
+    }
+
+    @Test
+    public void caseInsensitiveCollation_IsOptIn() throws Exception {
+        productName = "MySQL";
+
+        final DataSourceJDBCPolicy policy = new DataSourceJDBCPolicy(dataSource);
+        policy.detectDialect();
+        assertEquals("LOWER(%s) LIKE LOWER(?)", policy.getDialect(null).caseInsensitiveLike(false));
+
+        policy.setCaseInsensitiveCollation(true);
+        policy.detectDialect();
+        assertEquals("%s LIKE ?", policy.getDialect(null).caseInsensitiveLike(false));
+    }
+}